@@ -0,0 +1,45 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+/**
+ * The {@link PendingResult} of a whole {@link CommandBatch}.
+ *
+ * It finishes with the {@link Result} of the last step once every step has
+ * succeeded, or with the first failing {@link Result} (or exception) as soon
+ * as any step fails. The steps that weren't sent yet are then canceled, but
+ * those already sent are left to finish. An empty batch fails.
+ */
+public interface BatchResult extends PendingResult {
+
+    /**
+     * @return The number of commands in the batch.
+     */
+    int getStepCount();
+
+    /**
+     * @return How many of the commands have finished so far.
+     */
+    int getCompletedSteps();
+
+    /**
+     * @param index Position of the command in the batch, from zero.
+     * @return The {@link PendingResult} of that command.
+     */
+    PendingResult getStep(int index);
+}
@@ -0,0 +1,64 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+import gov.nasa.arc.astrobee.internal.BaseRobot;
+import gov.nasa.arc.astrobee.types.Point;
+import gov.nasa.arc.astrobee.types.Quaternion;
+
+/**
+ * A sequence of commands that is built up front and sent to the robot in one
+ * go by {@link #submit()}. Get one from {@link Robot#batch()}.
+ *
+ * Every command method returns the {@link PendingResult} of that one step,
+ * which stays {@link PendingResult.Status#QUEUED} until the batch is
+ * submitted. The executive only runs one motion command (a move, dock,
+ * perch and so on) at a time, so each motion command is sent once every step
+ * before it has completed, and the steps after it wait for it in turn. The
+ * other commands in between are sent back to back without waiting for acks.
+ * If a step fails, the steps that haven't been sent are canceled. Each step
+ * is rate limited and coalesced like the same command sent on its own.
+ *
+ * A batch is not thread-safe and can only be submitted once.
+ */
+public interface CommandBatch extends BaseRobot {
+
+    /**
+     * Add a move to the given position and orientation, see
+     * {@link Robot#simpleMove6DOF(Point, Quaternion)}.
+     *
+     * @param xyz The point within the ISS it should go to.
+     * @param rot The orientation of Astrobee after the move completes.
+     * @return {@link PendingResult} of this step.
+     */
+    PendingResult simpleMove6DOF(Point xyz, Quaternion rot);
+
+    /**
+     * @return How many commands have been added so far.
+     */
+    int size();
+
+    /**
+     * Publish every command added so far, in order, waiting for each motion
+     * command to complete before going on.
+     *
+     * @return A {@link BatchResult} that finishes when every step has
+     * finished, or as soon as one step fails.
+     */
+    BatchResult submit();
+}
@@ -0,0 +1,107 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which EKF updates a kinematics subscription is told about. By default
+ * that is every one of them.
+ *
+ * A state is delivered only if it meets the minimum confidence, and then
+ * only if it is the first, its confidence differs from the last one
+ * delivered, or it is at least the minimum interval after the last one and
+ * has moved (or turned) more than the threshold from it.
+ *
+ * The filter is copied when subscribing, so changing it afterwards does
+ * not affect existing subscriptions.
+ */
+public final class KinematicsFilter {
+    private long m_minIntervalNanos = 0;
+    private double m_positionThreshold = 0;
+    private double m_orientationThreshold = 0;
+    private Kinematics.Confidence m_minConfidence = Kinematics.Confidence.LOST;
+    private boolean m_once = false;
+
+    /**
+     * Deliver at most one state per {@code interval} of EKF time, e.g.
+     * 100 ms to go from 62.5 Hz down to 10 Hz. A change in confidence is
+     * delivered regardless.
+     */
+    public KinematicsFilter setMinInterval(long interval, TimeUnit units) {
+        if (interval < 0)
+            throw new IllegalArgumentException("interval must not be negative");
+        m_minIntervalNanos = units.toNanos(interval);
+        return this;
+    }
+
+    public long getMinInterval(TimeUnit units) {
+        return units.convert(m_minIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Only deliver once the robot has moved more than {@code meters} or
+     * turned more than {@code radians} since the last state delivered.
+     * Zero for both (the default) delivers regardless of motion.
+     */
+    public KinematicsFilter setChangeThreshold(double meters, double radians) {
+        if (meters < 0 || radians < 0)
+            throw new IllegalArgumentException("thresholds must not be negative");
+        m_positionThreshold = meters;
+        m_orientationThreshold = radians;
+        return this;
+    }
+
+    public double getPositionThreshold() {
+        return m_positionThreshold;
+    }
+
+    public double getOrientationThreshold() {
+        return m_orientationThreshold;
+    }
+
+    /**
+     * Drop states the robot is less sure of than {@code confidence}.
+     * {@link Kinematics.Confidence#LOST} (the default) lets everything
+     * through.
+     */
+    public KinematicsFilter setMinConfidence(final Kinematics.Confidence confidence) {
+        if (confidence == null)
+            throw new NullPointerException("confidence may not be null");
+        m_minConfidence = confidence;
+        return this;
+    }
+
+    public Kinematics.Confidence getMinConfidence() {
+        return m_minConfidence;
+    }
+
+    /**
+     * Cancel the subscription after the first delivery. With
+     * {@code setMinConfidence(GOOD)} this means "tell me when the robot
+     * knows where it is".
+     */
+    public KinematicsFilter setOnce(boolean once) {
+        m_once = once;
+        return this;
+    }
+
+    public boolean isOnce() {
+        return m_once;
+    }
+}
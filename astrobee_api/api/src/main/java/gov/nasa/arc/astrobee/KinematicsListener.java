@@ -0,0 +1,38 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+/**
+ * Receives kinematics pushed by
+ * {@link Robot#subscribeKinematics(KinematicsFilter, KinematicsListener)}.
+ */
+public interface KinematicsListener {
+
+    /**
+     * Called with the latest state that passed the filter. If the listener
+     * falls behind, states in between are skipped rather than queued.
+     *
+     * Calls for one subscription never overlap, but they are made on a
+     * shared thread, so don't block in here.
+     *
+     * @param kinematics Only valid until this method returns; copy it with
+     *                   {@link KinematicsSnapshot#set(KinematicsSnapshot)}
+     *                   to keep it.
+     */
+    void onKinematics(KinematicsSnapshot kinematics);
+}
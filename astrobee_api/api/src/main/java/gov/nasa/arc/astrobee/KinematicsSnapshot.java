@@ -0,0 +1,205 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+/**
+ * A reusable, mutable copy of the kinematic state of Astrobee, stored as
+ * primitives. Allocate one up front and pass it to
+ * {@link Robot#getCurrentKinematics(KinematicsSnapshot)} as often as you like
+ * without creating garbage.
+ *
+ * Not thread-safe: give each thread its own snapshot.
+ */
+public final class KinematicsSnapshot {
+    private Kinematics.Confidence m_confidence = Kinematics.Confidence.LOST;
+    private long m_timestamp = 0;
+
+    private double m_px, m_py, m_pz;
+    private double m_qx, m_qy, m_qz, m_qw = 1;
+    private double m_vx, m_vy, m_vz;
+    private double m_wx, m_wy, m_wz;
+    private double m_ax, m_ay, m_az;
+
+    /**
+     * Get the confidence Astrobee had in this state.
+     *
+     * @return {@link Kinematics.Confidence}
+     */
+    public Kinematics.Confidence getConfidence() {
+        return m_confidence;
+    }
+
+    /**
+     * Get the time this state was estimated, in nanoseconds of ROS time, or
+     * zero if no estimate has been received yet.
+     *
+     * @return The timestamp in nanoseconds.
+     */
+    public long getTimestamp() {
+        return m_timestamp;
+    }
+
+    public double getPositionX() {
+        return m_px;
+    }
+
+    public double getPositionY() {
+        return m_py;
+    }
+
+    public double getPositionZ() {
+        return m_pz;
+    }
+
+    public double getOrientationX() {
+        return m_qx;
+    }
+
+    public double getOrientationY() {
+        return m_qy;
+    }
+
+    public double getOrientationZ() {
+        return m_qz;
+    }
+
+    public double getOrientationW() {
+        return m_qw;
+    }
+
+    public double getLinearVelocityX() {
+        return m_vx;
+    }
+
+    public double getLinearVelocityY() {
+        return m_vy;
+    }
+
+    public double getLinearVelocityZ() {
+        return m_vz;
+    }
+
+    public double getAngularVelocityX() {
+        return m_wx;
+    }
+
+    public double getAngularVelocityY() {
+        return m_wy;
+    }
+
+    public double getAngularVelocityZ() {
+        return m_wz;
+    }
+
+    public double getLinearAccelerationX() {
+        return m_ax;
+    }
+
+    public double getLinearAccelerationY() {
+        return m_ay;
+    }
+
+    public double getLinearAccelerationZ() {
+        return m_az;
+    }
+
+    public KinematicsSnapshot setConfidence(final Kinematics.Confidence confidence) {
+        if (confidence == null)
+            throw new NullPointerException("confidence may not be null");
+        m_confidence = confidence;
+        return this;
+    }
+
+    public KinematicsSnapshot setTimestamp(final long timestamp) {
+        m_timestamp = timestamp;
+        return this;
+    }
+
+    public KinematicsSnapshot setPosition(double x, double y, double z) {
+        m_px = x;
+        m_py = y;
+        m_pz = z;
+        return this;
+    }
+
+    public KinematicsSnapshot setOrientation(double x, double y, double z, double w) {
+        m_qx = x;
+        m_qy = y;
+        m_qz = z;
+        m_qw = w;
+        return this;
+    }
+
+    public KinematicsSnapshot setLinearVelocity(double x, double y, double z) {
+        m_vx = x;
+        m_vy = y;
+        m_vz = z;
+        return this;
+    }
+
+    public KinematicsSnapshot setAngularVelocity(double x, double y, double z) {
+        m_wx = x;
+        m_wy = y;
+        m_wz = z;
+        return this;
+    }
+
+    public KinematicsSnapshot setLinearAcceleration(double x, double y, double z) {
+        m_ax = x;
+        m_ay = y;
+        m_az = z;
+        return this;
+    }
+
+    /**
+     * Copy every field of {@code other} into this snapshot.
+     *
+     * @param other The snapshot to copy.
+     * @return This snapshot.
+     */
+    public KinematicsSnapshot set(final KinematicsSnapshot other) {
+        m_confidence = other.m_confidence;
+        m_timestamp = other.m_timestamp;
+        m_px = other.m_px;
+        m_py = other.m_py;
+        m_pz = other.m_pz;
+        m_qx = other.m_qx;
+        m_qy = other.m_qy;
+        m_qz = other.m_qz;
+        m_qw = other.m_qw;
+        m_vx = other.m_vx;
+        m_vy = other.m_vy;
+        m_vz = other.m_vz;
+        m_wx = other.m_wx;
+        m_wy = other.m_wy;
+        m_wz = other.m_wz;
+        m_ax = other.m_ax;
+        m_ay = other.m_ay;
+        m_az = other.m_az;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "KinematicsSnapshot{" +
+                "confidence=" + m_confidence + "; " +
+                "timestamp=" + m_timestamp + "; " +
+                "position=[" + m_px + ", " + m_py + ", " + m_pz + "]; " +
+                "orientation=[" + m_qx + ", " + m_qy + ", " + m_qz + ", " + m_qw + "]}";
+    }
+}
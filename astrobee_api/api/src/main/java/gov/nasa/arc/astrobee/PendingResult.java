@@ -52,6 +52,49 @@ public interface PendingResult {
         }
     }
 
+    /**
+     * Notified once when a {@link PendingResult} finishes, either with a
+     * {@link Result} or with an exception.
+     *
+     * Listeners are called on the thread that completed the command, which is
+     * usually the thread delivering acks from the executive. They must be
+     * quick and must not block, otherwise every other command is held up.
+     */
+    interface CompletionListener {
+        /**
+         * @param pending The {@link PendingResult} that finished.
+         * @param result The {@link Result}, or {@code null} if it failed with
+         *               an exception.
+         * @param exception The cause of failure, or {@code null} if there is a
+         *                  {@link Result}.
+         */
+        void onComplete(PendingResult pending, Result result, AstrobeeException exception);
+    }
+
+    /**
+     * Notified every time the {@link Status} of a {@link PendingResult}
+     * changes. Same threading rules as {@link CompletionListener}.
+     */
+    interface StatusListener {
+        void onStatusChanged(PendingResult pending, Status status);
+    }
+
+    /**
+     * The next step in a chain of commands, see
+     * {@link PendingResult#thenCompose(Continuation)}.
+     */
+    interface Continuation {
+        /**
+         * Called with the successful result of the previous step.
+         *
+         * @param result The {@link Result} of the previous command.
+         * @return The {@link PendingResult} of the next command, or
+         *         {@code null} to end the chain with {@code result}.
+         * @throws AstrobeeException To fail the chain.
+         */
+        PendingResult then(Result result) throws AstrobeeException;
+    }
+
     boolean isFinished();
 
     Status getStatus();
@@ -59,4 +102,33 @@ public interface PendingResult {
     Result getResult() throws AstrobeeException, InterruptedException;
 
     Result getResult(long timeout, TimeUnit unit) throws AstrobeeException, InterruptedException, TimeoutException;
+
+    /**
+     * Register a listener to be called when this command finishes. If it has
+     * already finished, the listener is called immediately on the calling
+     * thread.
+     *
+     * @param listener The {@link CompletionListener} to call.
+     * @return This {@link PendingResult}.
+     */
+    PendingResult whenComplete(CompletionListener listener);
+
+    /**
+     * Register a listener to be called on every status change of this
+     * command.
+     *
+     * @param listener The {@link StatusListener} to call.
+     * @return This {@link PendingResult}.
+     */
+    PendingResult addStatusListener(StatusListener listener);
+
+    /**
+     * Chain another command after this one without waiting on a thread. The
+     * continuation is only called if this command succeeds; a failed or
+     * canceled result ends the chain with that result.
+     *
+     * @param continuation Issues the next command.
+     * @return A {@link PendingResult} that finishes when the whole chain does.
+     */
+    PendingResult thenCompose(Continuation continuation);
 }
@@ -46,4 +46,87 @@ public interface Robot extends BaseRobot {
      */
     Kinematics getCurrentKinematics();
 
+    /**
+     * Start a new {@link CommandBatch}: a sequence of commands that is built
+     * up front and published back to back when submitted.
+     *
+     * @return An empty {@link CommandBatch}.
+     */
+    CommandBatch batch();
+
+    /**
+     * Move the robot through every pose of a {@link Trajectory}, one
+     * {@code simpleMove6DOF} after the other. Each move is sent as soon as
+     * the previous one completes, so dense paths don't pay a round trip
+     * through the caller per pose. Poses added to the trajectory after this
+     * call are followed too, until it is finished.
+     *
+     * @param trajectory The poses to go through.
+     * @return A single {@link TrajectoryResult} for the whole trajectory.
+     */
+    TrajectoryResult followTrajectory(Trajectory trajectory);
+
+    /**
+     * Copy the last received kinematic state of the robot into a snapshot
+     * owned by the caller. Unlike {@link #getCurrentKinematics()}, this does
+     * not allocate, so it is the one to use when polling at a high rate.
+     *
+     * @param into The snapshot to fill in.
+     * @return {@code into}, for convenience.
+     */
+    KinematicsSnapshot getCurrentKinematics(KinematicsSnapshot into);
+
+    /**
+     * Get the kinematic state of the robot at a point in the recent past,
+     * for example when an image was captured. The state is interpolated
+     * between the two EKF updates around that time.
+     *
+     * Only the last few seconds are kept, see
+     * {@code RobotConfiguration#setKinematicsHistorySize(int)}.
+     *
+     * @param stampNanos ROS time in nanoseconds, as found in message headers.
+     * @param out The snapshot to fill in.
+     * @return {@code false} if that time isn't covered by the history.
+     */
+    boolean getKinematicsAt(long stampNanos, KinematicsSnapshot out);
+
+    /**
+     * Same as {@link #getKinematicsAt(long, KinematicsSnapshot)}, but returns
+     * a new immutable {@link Kinematics}.
+     *
+     * @param stampNanos ROS time in nanoseconds, as found in message headers.
+     * @return The {@link Kinematics}, or {@code null} if that time isn't
+     * covered by the history.
+     */
+    Kinematics getKinematicsAt(long stampNanos);
+
+    /**
+     * Have kinematic state pushed to {@code listener} as EKF updates arrive,
+     * instead of polling {@link #getCurrentKinematics()}. The filter picks
+     * which updates are worth hearing about, see {@link KinematicsFilter}.
+     *
+     * @param filter Which updates to deliver.
+     * @param listener Where to deliver them.
+     * @return A {@link Subscription} to cancel when no longer interested.
+     */
+    Subscription subscribeKinematics(KinematicsFilter filter, KinematicsListener listener);
+
+    /**
+     * Get a cache of the latest message on a telemetry topic, e.g.
+     * {@code hw/eps/battery_state}. Topics are resolved like the API's own,
+     * relative to the robot. The subscription is shared with every other
+     * handle on the same topic and goes through this robot's existing
+     * connection, so apps don't need nodes of their own for telemetry.
+     *
+     * @param topic The topic to read.
+     * @param messageType The message type name, e.g.
+     *                    {@code sensor_msgs/BatteryState}.
+     * @param type The Java type of those messages.
+     * @param <T> The Java type of those messages.
+     * @return A {@link Telemetry} handle, cancel it when done.
+     * @throws IllegalArgumentException If the topic is already in use with
+     * another message type.
+     */
+    <T> Telemetry<T> getTelemetry(String topic, String messageType, Class<T> type);
+
 }
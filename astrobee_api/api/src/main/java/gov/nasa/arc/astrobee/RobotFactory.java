@@ -18,6 +18,7 @@
 
 package gov.nasa.arc.astrobee;
 
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -87,6 +88,17 @@ public interface RobotFactory {
      */
     Robot getRobot(String name, long timeout, TimeUnit units) throws AstrobeeException, InterruptedException, TimeoutException;
 
+    /**
+     * Get "this" robot without blocking. The returned {@link Future}
+     * completes once the connection is up, so other start up work can run
+     * in the meantime. Failures surface from {@link Future#get()} as an
+     * {@link java.util.concurrent.ExecutionException} wrapping an
+     * {@link AstrobeeException}.
+     *
+     * @return A {@link Future} for this {@link Robot}.
+     */
+    Future<Robot> getRobotAsync();
+
     String getLocalName();
 
     /**
@@ -0,0 +1,59 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The latest message received on a telemetry topic, from
+ * {@link Robot#getTelemetry(String, String, Class)}.
+ *
+ * Every handle on the same topic shares one subscription, which is made on
+ * first use and dropped a little while after the last handle is canceled.
+ * Cancel handles you are done with.
+ *
+ * @param <T> The message type.
+ */
+public interface Telemetry<T> extends Subscription {
+
+    /**
+     * @return The topic this reads, as given when it was requested.
+     */
+    String getTopic();
+
+    /**
+     * @return The last message received, or {@code null} if none has been
+     * received yet. Don't modify it, it is shared.
+     */
+    T getLatest();
+
+    /**
+     * @return {@link System#nanoTime()} when the last message arrived, or
+     * zero if none has.
+     */
+    long getLastReceivedNanos();
+
+    /**
+     * Wait for a message if none has been received yet.
+     *
+     * @return The last message received.
+     * @throws TimeoutException If nothing arrives in time.
+     */
+    T awaitLatest(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException;
+}
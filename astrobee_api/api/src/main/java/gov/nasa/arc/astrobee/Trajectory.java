@@ -0,0 +1,190 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+import gov.nasa.arc.astrobee.types.MutableQuaternion;
+import gov.nasa.arc.astrobee.types.MutableVec3d;
+import gov.nasa.arc.astrobee.types.Point;
+import gov.nasa.arc.astrobee.types.Quaternion;
+import gov.nasa.arc.astrobee.types.ReadableQuaternion;
+import gov.nasa.arc.astrobee.types.ReadableVec3;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A sequence of timed poses for {@link Robot#followTrajectory(Trajectory)}.
+ *
+ * Poses can keep being added while the robot is already following the
+ * trajectory, so a path can be streamed as it is computed; call
+ * {@link #finish()} once the last one is in. Each pose has a time, in
+ * seconds from when following started, before which the robot will not
+ * start moving to it. The executive plans the motion itself, so times are
+ * a lower bound, not a schedule.
+ *
+ * Poses are stored as primitives, not as {@link Point}s and
+ * {@link Quaternion}s. Thread-safe.
+ */
+public final class Trajectory {
+
+    /**
+     * Notified after poses are added or the trajectory is finished, on the
+     * thread that did it.
+     */
+    public interface Listener {
+        void onTrajectoryChanged(Trajectory trajectory);
+    }
+
+    private double[] m_times;
+    private double[] m_xyz;
+    private double[] m_rot;
+    private int m_size = 0;
+    private boolean m_finished = false;
+
+    private final List<Listener> m_listeners = new CopyOnWriteArrayList<>();
+
+    public Trajectory() {
+        this(16);
+    }
+
+    public Trajectory(final int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative");
+        m_times = new double[capacity];
+        m_xyz = new double[capacity * 3];
+        m_rot = new double[capacity * 4];
+    }
+
+    /**
+     * Add a pose to move to as soon as the previous one is reached.
+     */
+    public Trajectory add(final ReadableVec3 xyz, final ReadableQuaternion rot) {
+        return add(0, xyz, rot);
+    }
+
+    /**
+     * Add a pose to move to once the previous one is reached, but not
+     * before {@code seconds} after following started.
+     *
+     * @throws IllegalStateException If the trajectory has been finished.
+     */
+    public Trajectory add(final double seconds, final ReadableVec3 xyz, final ReadableQuaternion rot) {
+        if (xyz == null || rot == null)
+            throw new NullPointerException("pose may not be null");
+        if (seconds < 0)
+            throw new IllegalArgumentException("seconds must not be negative");
+
+        synchronized (this) {
+            if (m_finished)
+                throw new IllegalStateException("Trajectory has been finished");
+            if (m_size == m_times.length)
+                grow();
+            final int i = m_size;
+            m_times[i] = seconds;
+            m_xyz[i * 3] = xyz.x();
+            m_xyz[i * 3 + 1] = xyz.y();
+            m_xyz[i * 3 + 2] = xyz.z();
+            m_rot[i * 4] = rot.x();
+            m_rot[i * 4 + 1] = rot.y();
+            m_rot[i * 4 + 2] = rot.z();
+            m_rot[i * 4 + 3] = rot.w();
+            m_size++;
+        }
+        fireChanged();
+        return this;
+    }
+
+    /**
+     * Mark the trajectory complete. Following it finishes once the robot
+     * reaches the last pose. Finishing twice is harmless.
+     */
+    public Trajectory finish() {
+        synchronized (this) {
+            if (m_finished)
+                return this;
+            m_finished = true;
+        }
+        fireChanged();
+        return this;
+    }
+
+    public synchronized boolean isFinished() {
+        return m_finished;
+    }
+
+    public synchronized int size() {
+        return m_size;
+    }
+
+    /**
+     * @return The earliest time to start towards pose {@code i}, in seconds.
+     */
+    public synchronized double getTime(final int i) {
+        check(i);
+        return m_times[i];
+    }
+
+    public synchronized MutableVec3d getPosition(final int i, final MutableVec3d out) {
+        check(i);
+        return out.set(m_xyz[i * 3], m_xyz[i * 3 + 1], m_xyz[i * 3 + 2]);
+    }
+
+    public synchronized MutableQuaternion getOrientation(final int i, final MutableQuaternion out) {
+        check(i);
+        return out.set(m_rot[i * 4], m_rot[i * 4 + 1], m_rot[i * 4 + 2], m_rot[i * 4 + 3]);
+    }
+
+    public synchronized Point getPoint(final int i) {
+        check(i);
+        return new Point(m_xyz[i * 3], m_xyz[i * 3 + 1], m_xyz[i * 3 + 2]);
+    }
+
+    public synchronized Quaternion getQuaternion(final int i) {
+        check(i);
+        return new Quaternion((float) m_rot[i * 4], (float) m_rot[i * 4 + 1],
+                              (float) m_rot[i * 4 + 2], (float) m_rot[i * 4 + 3]);
+    }
+
+    public void addListener(final Listener listener) {
+        if (listener == null)
+            throw new NullPointerException("listener may not be null");
+        m_listeners.add(listener);
+    }
+
+    public void removeListener(final Listener listener) {
+        m_listeners.remove(listener);
+    }
+
+    private void grow() {
+        final int capacity = Math.max(16, m_times.length * 2);
+        m_times = Arrays.copyOf(m_times, capacity);
+        m_xyz = Arrays.copyOf(m_xyz, capacity * 3);
+        m_rot = Arrays.copyOf(m_rot, capacity * 4);
+    }
+
+    private void check(final int i) {
+        if (i < 0 || i >= m_size)
+            throw new IndexOutOfBoundsException("index " + i + ", size " + m_size);
+    }
+
+    private void fireChanged() {
+        for (Listener l : m_listeners)
+            l.onTrajectoryChanged(this);
+    }
+}
@@ -0,0 +1,50 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee;
+
+/**
+ * The {@link PendingResult} of following a whole {@link Trajectory}.
+ *
+ * It finishes with the {@link Result} of the move to the last pose once the
+ * trajectory has been finished and every move has succeeded, or with the
+ * first failing {@link Result} (or exception), after which no further poses
+ * are sent. A trajectory finished without any poses fails with an
+ * {@link AstrobeeException}.
+ */
+public interface TrajectoryResult extends PendingResult {
+
+    /**
+     * Notified each time the robot reaches a pose of the trajectory, on the
+     * thread delivering acks from the executive. Must not block.
+     */
+    interface ProgressListener {
+        void onProgress(TrajectoryResult result, int completed);
+    }
+
+    /**
+     * @return The {@link Trajectory} being followed.
+     */
+    Trajectory getTrajectory();
+
+    /**
+     * @return How many poses have been reached so far.
+     */
+    int getCompletedWaypoints();
+
+    TrajectoryResult addProgressListener(ProgressListener listener);
+}
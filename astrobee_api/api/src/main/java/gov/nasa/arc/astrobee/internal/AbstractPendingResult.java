@@ -0,0 +1,208 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.internal;
+
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.PendingResult;
+import gov.nasa.arc.astrobee.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Common bookkeeping for {@link PendingResult} implementations: status,
+ * result/exception hand-off and listener dispatch. Listeners are always called
+ * outside of the internal lock, on the thread that caused the change.
+ */
+public abstract class AbstractPendingResult implements PendingResult {
+    // Synchronization object protecting the status, result and exception
+    private final Object m_sync = new Object();
+    private Status m_status;
+    private Result m_result = null;
+    private AstrobeeException m_exception = null;
+
+    private final CountDownLatch m_latch = new CountDownLatch(1);
+
+    // Only touched under m_sync, set to null once the listeners have fired
+    private List<CompletionListener> m_completionListeners = new ArrayList<>();
+    private final List<StatusListener> m_statusListeners = new CopyOnWriteArrayList<>();
+
+    protected AbstractPendingResult(final Status initial) {
+        m_status = initial;
+    }
+
+    @Override
+    public boolean isFinished() {
+        synchronized (m_sync) {
+            return m_status == Status.COMPLETED;
+        }
+    }
+
+    @Override
+    public Status getStatus() {
+        synchronized (m_sync) {
+            return m_status;
+        }
+    }
+
+    /**
+     * Change the status, notifying status listeners if it actually changed.
+     * Completion should go through {@link #setResult(Result)} or
+     * {@link #setThrowable(Throwable)} instead.
+     */
+    protected void setStatus(final Status status) {
+        synchronized (m_sync) {
+            if (m_status == status || m_latch.getCount() == 0)
+                return;
+            m_status = status;
+        }
+        fireStatusChanged(status);
+    }
+
+    /**
+     * Finish with the given result.
+     *
+     * @return {@code false} if a result or exception was already set.
+     */
+    protected boolean setResult(final Result r) {
+        return complete(r, null);
+    }
+
+    /**
+     * Finish with the given exception.
+     *
+     * @return {@code false} if a result or exception was already set.
+     */
+    protected boolean setThrowable(final Throwable t) {
+        final AstrobeeException e;
+        if (t instanceof AstrobeeException)
+            e = (AstrobeeException) t;
+        else
+            e = new AstrobeeException(t);
+        return complete(null, e);
+    }
+
+    private boolean complete(final Result r, final AstrobeeException e) {
+        final List<CompletionListener> listeners;
+        final boolean changed;
+        synchronized (m_sync) {
+            // If the count has hit zero, then someone has already set either
+            // a result or an exception, so bail.
+            if (m_latch.getCount() == 0)
+                return false;
+
+            // We are the first, set our result/exception.
+            changed = m_status != Status.COMPLETED;
+            m_status = Status.COMPLETED;
+            m_result = r;
+            m_exception = e;
+            listeners = m_completionListeners;
+            m_completionListeners = null;
+            m_latch.countDown();
+        }
+
+        if (changed)
+            fireStatusChanged(Status.COMPLETED);
+        for (CompletionListener l : listeners)
+            fireComplete(l, r, e);
+        return true;
+    }
+
+    @Override
+    public Result getResult() throws AstrobeeException, InterruptedException {
+        m_latch.await();
+        if (m_exception != null)
+            throw m_exception;
+        return m_result;
+    }
+
+    @Override
+    public Result getResult(long timeout, TimeUnit unit) throws AstrobeeException, InterruptedException, TimeoutException {
+        m_latch.await(timeout, unit);
+        if (m_exception != null)
+            throw m_exception;
+        return m_result;
+    }
+
+    @Override
+    public PendingResult whenComplete(final CompletionListener listener) {
+        if (listener == null)
+            throw new NullPointerException("listener may not be null");
+
+        synchronized (m_sync) {
+            if (m_completionListeners != null) {
+                m_completionListeners.add(listener);
+                return this;
+            }
+        }
+
+        // Already done, call it right away
+        fireComplete(listener, m_result, m_exception);
+        return this;
+    }
+
+    @Override
+    public PendingResult addStatusListener(final StatusListener listener) {
+        if (listener == null)
+            throw new NullPointerException("listener may not be null");
+        m_statusListeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public PendingResult thenCompose(final Continuation continuation) {
+        if (continuation == null)
+            throw new NullPointerException("continuation may not be null");
+        final ComposedPendingResult next = new ComposedPendingResult(this, continuation);
+        whenComplete(next);
+        return next;
+    }
+
+    /**
+     * Called when a listener throws. Listeners belong to the user, so the
+     * default is to drop the exception and carry on with the others.
+     *
+     * @param e What the listener threw.
+     */
+    protected void onListenerException(final RuntimeException e) {
+    }
+
+    private void fireStatusChanged(final Status status) {
+        for (StatusListener l : m_statusListeners) {
+            try {
+                l.onStatusChanged(this, status);
+            } catch (RuntimeException e) {
+                onListenerException(e);
+            }
+        }
+    }
+
+    private void fireComplete(final CompletionListener l,
+                              final Result r,
+                              final AstrobeeException e) {
+        try {
+            l.onComplete(this, r, e);
+        } catch (RuntimeException ex) {
+            onListenerException(ex);
+        }
+    }
+}
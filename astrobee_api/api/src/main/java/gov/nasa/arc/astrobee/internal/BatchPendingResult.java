@@ -0,0 +1,108 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.internal;
+
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.BatchResult;
+import gov.nasa.arc.astrobee.PendingResult;
+import gov.nasa.arc.astrobee.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the steps of a {@link gov.nasa.arc.astrobee.CommandBatch}. It is
+ * {@link Status#QUEUED} until the first step is picked up, then
+ * {@link Status#EXECUTING} until it finishes.
+ */
+public final class BatchPendingResult extends AbstractPendingResult
+        implements BatchResult, PendingResult.CompletionListener, PendingResult.StatusListener {
+    private final List<PendingResult> m_steps;
+    private final AtomicInteger m_completed = new AtomicInteger(0);
+
+    public BatchPendingResult(final List<? extends PendingResult> steps) {
+        super(Status.QUEUED);
+        m_steps = new ArrayList<PendingResult>(steps);
+    }
+
+    /**
+     * Start following the steps. Call once, before they are published.
+     */
+    public BatchPendingResult attach() {
+        if (m_steps.isEmpty()) {
+            setThrowable(new AstrobeeException("Batch has no commands"));
+            return this;
+        }
+        for (PendingResult step : m_steps) {
+            step.addStatusListener(this);
+            step.whenComplete(this);
+        }
+        return this;
+    }
+
+    @Override
+    public int getStepCount() {
+        return m_steps.size();
+    }
+
+    @Override
+    public int getCompletedSteps() {
+        return m_completed.get();
+    }
+
+    @Override
+    public PendingResult getStep(final int index) {
+        return m_steps.get(index);
+    }
+
+    @Override
+    public void onStatusChanged(final PendingResult pending, final Status status) {
+        if (status != Status.QUEUED)
+            setStatus(Status.EXECUTING);
+    }
+
+    @Override
+    public void onComplete(final PendingResult pending,
+                           final Result result,
+                           final AstrobeeException exception) {
+        final int completed = m_completed.incrementAndGet();
+        if (exception != null) {
+            setThrowable(exception);
+        } else if (result == null) {
+            setThrowable(new AstrobeeException("Step " + m_steps.indexOf(pending) +
+                    " completed without a result"));
+        } else if (!result.hasSucceeded()) {
+            setResult(result);
+        } else if (completed == m_steps.size()) {
+            setResult(lastResult());
+        }
+    }
+
+    // Every step is done by the time this is called
+    private Result lastResult() {
+        try {
+            return m_steps.get(m_steps.size() - 1).getResult();
+        } catch (AstrobeeException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.internal;
+
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.PendingResult;
+import gov.nasa.arc.astrobee.Result;
+
+/**
+ * The {@link PendingResult} returned by
+ * {@link PendingResult#thenCompose(Continuation)}. It tracks the status of
+ * whichever step is currently running and finishes with the last one.
+ */
+final class ComposedPendingResult extends AbstractPendingResult
+        implements PendingResult.CompletionListener, PendingResult.StatusListener {
+    private final Continuation m_continuation;
+
+    ComposedPendingResult(final PendingResult first, final Continuation continuation) {
+        super(first.getStatus());
+        m_continuation = continuation;
+        first.addStatusListener(this);
+    }
+
+    @Override
+    public void onStatusChanged(final PendingResult pending, final Status status) {
+        // Completion of a step is not completion of the chain
+        if (status != Status.COMPLETED)
+            setStatus(status);
+    }
+
+    @Override
+    public void onComplete(final PendingResult pending,
+                           final Result result,
+                           final AstrobeeException exception) {
+        if (exception != null) {
+            setThrowable(exception);
+            return;
+        }
+
+        if (result == null || !result.hasSucceeded()) {
+            setResult(result);
+            return;
+        }
+
+        final PendingResult next;
+        try {
+            next = m_continuation.then(result);
+        } catch (AstrobeeException e) {
+            setThrowable(e);
+            return;
+        } catch (RuntimeException e) {
+            setThrowable(e);
+            return;
+        }
+
+        if (next == null) {
+            setResult(result);
+            return;
+        }
+
+        onStatusChanged(next, next.getStatus());
+        next.addStatusListener(this);
+        next.whenComplete(new CompletionListener() {
+            @Override
+            public void onComplete(PendingResult p, Result r, AstrobeeException e) {
+                if (e != null)
+                    setThrowable(e);
+                else
+                    setResult(r);
+            }
+        });
+    }
+}
@@ -25,8 +25,8 @@ import gov.nasa.arc.astrobee.types.Quaternion;
 import gov.nasa.arc.astrobee.types.Vec3d;
 
 public abstract class RobotImpl extends BaseRobotImpl implements Robot {
-    private static final String REFERENCE_FRAME = "ISS";
-    private static final Vec3d TOLERANCE = new Vec3d(0, 0, 0);
+    static final String REFERENCE_FRAME = "ISS";
+    static final Vec3d TOLERANCE = new Vec3d(0, 0, 0);
 
     @Override
     public PendingResult simpleMove6DOF(Point xyz, Quaternion rot) {
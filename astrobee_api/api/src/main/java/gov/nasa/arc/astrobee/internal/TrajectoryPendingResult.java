@@ -0,0 +1,207 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.internal;
+
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.PendingResult;
+import gov.nasa.arc.astrobee.Result;
+import gov.nasa.arc.astrobee.Robot;
+import gov.nasa.arc.astrobee.Trajectory;
+import gov.nasa.arc.astrobee.TrajectoryResult;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a {@link Trajectory} with one {@code simpleMove6DOF} per pose. The
+ * next move is sent from the completion of the previous one, on the ack
+ * thread, so there is no extra hop through the caller between poses.
+ */
+public final class TrajectoryPendingResult extends AbstractPendingResult
+        implements TrajectoryResult, PendingResult.CompletionListener, Trajectory.Listener {
+    private final Robot m_robot;
+    private final Trajectory m_trajectory;
+    private final ScheduledExecutorService m_scheduler;
+    private final List<ProgressListener> m_progressListeners = new CopyOnWriteArrayList<>();
+
+    private long m_startNanos;
+
+    // Guarded by this: the next pose to send, and whether a move is in
+    // flight or waiting for its time
+    private int m_next = 0;
+    private boolean m_busy = false;
+    private Result m_last = null;
+
+    private volatile int m_completed = 0;
+
+    public TrajectoryPendingResult(final Robot robot,
+                                   final Trajectory trajectory,
+                                   final ScheduledExecutorService scheduler) {
+        super(Status.QUEUED);
+        m_robot = robot;
+        m_trajectory = trajectory;
+        m_scheduler = scheduler;
+    }
+
+    /**
+     * Start following the trajectory. Call once.
+     */
+    public TrajectoryPendingResult start() {
+        m_startNanos = System.nanoTime();
+        m_trajectory.addListener(this);
+        advance();
+        return this;
+    }
+
+    @Override
+    public Trajectory getTrajectory() {
+        return m_trajectory;
+    }
+
+    @Override
+    public int getCompletedWaypoints() {
+        return m_completed;
+    }
+
+    @Override
+    public TrajectoryResult addProgressListener(final ProgressListener listener) {
+        if (listener == null)
+            throw new NullPointerException("listener may not be null");
+        m_progressListeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public void onTrajectoryChanged(final Trajectory trajectory) {
+        advance();
+    }
+
+    @Override
+    public void onComplete(final PendingResult pending,
+                           final Result result,
+                           final AstrobeeException exception) {
+        if (exception != null) {
+            stop();
+            setThrowable(exception);
+            return;
+        }
+        if (result == null) {
+            stop();
+            setThrowable(new AstrobeeException("Move to pose " + m_completed +
+                    " completed without a result"));
+            return;
+        }
+        if (!result.hasSucceeded()) {
+            stop();
+            setResult(result);
+            return;
+        }
+
+        final int completed;
+        synchronized (this) {
+            m_last = result;
+            m_busy = false;
+            completed = ++m_completed;
+        }
+        for (ProgressListener l : m_progressListeners) {
+            try {
+                l.onProgress(this, completed);
+            } catch (RuntimeException e) {
+                onListenerException(e);
+            }
+        }
+        advance();
+    }
+
+    /**
+     * Send the next pose if nothing is in flight, or finish if there are no
+     * more. Called whenever either of those might have changed.
+     */
+    private void advance() {
+        final int index;
+        final Result last;
+        synchronized (this) {
+            if (m_busy || isFinished())
+                return;
+            // Read finished first: once it is set, the size can't change
+            final boolean finished = m_trajectory.isFinished();
+            if (m_next < m_trajectory.size()) {
+                index = m_next++;
+                last = null;
+                m_busy = true;
+            } else if (finished) {
+                index = -1;
+                last = m_last;
+            } else {
+                // Wait for more poses
+                return;
+            }
+        }
+
+        if (index < 0) {
+            stop();
+            // Only a trajectory finished without any poses has no last move
+            if (last == null)
+                setThrowable(new AstrobeeException("Trajectory has no poses"));
+            else
+                setResult(last);
+            return;
+        }
+
+        final long delay = m_startNanos +
+                (long) (m_trajectory.getTime(index) * 1e9) - System.nanoTime();
+        if (delay <= 0) {
+            send(index);
+            return;
+        }
+        try {
+            m_scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    send(index);
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            stop();
+            setThrowable(e);
+        }
+    }
+
+    private void send(final int index) {
+        if (isFinished())
+            return;
+        final PendingResult move;
+        try {
+            move = m_robot.simpleMove6DOF(
+                    m_trajectory.getPoint(index), m_trajectory.getQuaternion(index));
+        } catch (RuntimeException e) {
+            stop();
+            setThrowable(e);
+            return;
+        }
+        setStatus(Status.EXECUTING);
+        move.whenComplete(this);
+    }
+
+    private void stop() {
+        m_trajectory.removeListener(this);
+    }
+}
@@ -21,6 +21,14 @@ package gov.nasa.arc.astrobee.types;
 public class Mat33f {
     protected float m_vec[];
 
+    /**
+     * For subclasses that store their values some other way. They must
+     * override {@link #toArray()} and {@link #copyTo(float[])}.
+     */
+    protected Mat33f() {
+        m_vec = null;
+    }
+
     public Mat33f(final float vec[]) {
        if (vec == null)
            throw new NullPointerException("vec may not be null");
@@ -32,4 +40,12 @@ public class Mat33f {
     public float[] toArray() {
         return m_vec.clone();
     }
+
+    /**
+     * Copy all nine values into {@code out}, rather than allocating a new
+     * array like {@link #toArray()}.
+     */
+    public void copyTo(final float[] out) {
+        System.arraycopy(m_vec, 0, out, 0, 9);
+    }
 }
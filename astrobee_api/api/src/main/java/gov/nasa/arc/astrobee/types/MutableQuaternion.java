@@ -0,0 +1,163 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.types;
+
+/**
+ * A quaternion that is changed in place, kept in double precision. Every
+ * operation returns {@code this} so they can be chained. Not thread-safe.
+ */
+public final class MutableQuaternion implements ReadableQuaternion {
+    // Below this angle slerp falls back to a normalized lerp
+    private static final double SLERP_THRESHOLD = 0.9995;
+
+    private double m_x, m_y, m_z, m_w = 1;
+
+    /**
+     * The identity rotation, (0, 0, 0, 1).
+     */
+    public MutableQuaternion() {
+    }
+
+    public MutableQuaternion(final double x, final double y, final double z, final double w) {
+        set(x, y, z, w);
+    }
+
+    public MutableQuaternion(final ReadableQuaternion q) {
+        set(q);
+    }
+
+    @Override
+    public double x() {
+        return m_x;
+    }
+
+    @Override
+    public double y() {
+        return m_y;
+    }
+
+    @Override
+    public double z() {
+        return m_z;
+    }
+
+    @Override
+    public double w() {
+        return m_w;
+    }
+
+    public MutableQuaternion set(final double x, final double y, final double z, final double w) {
+        m_x = x;
+        m_y = y;
+        m_z = z;
+        m_w = w;
+        return this;
+    }
+
+    public MutableQuaternion set(final ReadableQuaternion q) {
+        return set(q.x(), q.y(), q.z(), q.w());
+    }
+
+    public MutableQuaternion setIdentity() {
+        return set(0, 0, 0, 1);
+    }
+
+    /**
+     * Set this to the rotation of {@code angle} radians around the unit
+     * vector {@code axis}.
+     */
+    public MutableQuaternion setAxisAngle(final ReadableVec3 axis, final double angle) {
+        final double s = Math.sin(angle / 2);
+        return set(axis.x() * s, axis.y() * s, axis.z() * s, Math.cos(angle / 2));
+    }
+
+    /**
+     * Set this to {@code this * q}, i.e. rotate by {@code q} first.
+     */
+    public MutableQuaternion multiply(final ReadableQuaternion q) {
+        final double qx = q.x(), qy = q.y(), qz = q.z(), qw = q.w();
+        return set(m_w * qx + m_x * qw + m_y * qz - m_z * qy,
+                   m_w * qy - m_x * qz + m_y * qw + m_z * qx,
+                   m_w * qz + m_x * qy - m_y * qx + m_z * qw,
+                   m_w * qw - m_x * qx - m_y * qy - m_z * qz);
+    }
+
+    public MutableQuaternion conjugate() {
+        return set(-m_x, -m_y, -m_z, m_w);
+    }
+
+    public double dot(final ReadableQuaternion q) {
+        return m_x * q.x() + m_y * q.y() + m_z * q.z() + m_w * q.w();
+    }
+
+    /**
+     * Scale to unit length. A zero quaternion becomes the identity.
+     */
+    public MutableQuaternion normalize() {
+        final double len = Math.sqrt(m_x * m_x + m_y * m_y + m_z * m_z + m_w * m_w);
+        if (len == 0)
+            return setIdentity();
+        return set(m_x / len, m_y / len, m_z / len, m_w / len);
+    }
+
+    /**
+     * Set this to the spherical interpolation between the unit quaternions
+     * {@code a} and {@code b}, taking the shorter way around. Either may be
+     * this quaternion.
+     *
+     * @param t 0 for {@code a}, 1 for {@code b}.
+     */
+    public MutableQuaternion slerp(final ReadableQuaternion a,
+                                   final ReadableQuaternion b,
+                                   final double t) {
+        final double ax = a.x(), ay = a.y(), az = a.z(), aw = a.w();
+        double bx = b.x(), by = b.y(), bz = b.z(), bw = b.w();
+
+        double cos = ax * bx + ay * by + az * bz + aw * bw;
+        if (cos < 0) {
+            cos = -cos;
+            bx = -bx;
+            by = -by;
+            bz = -bz;
+            bw = -bw;
+        }
+
+        final double wa, wb;
+        if (cos > SLERP_THRESHOLD) {
+            wa = 1 - t;
+            wb = t;
+        } else {
+            final double theta = Math.acos(cos);
+            final double sin = Math.sin(theta);
+            wa = Math.sin((1 - t) * theta) / sin;
+            wb = Math.sin(t * theta) / sin;
+        }
+
+        set(wa * ax + wb * bx, wa * ay + wb * by, wa * az + wb * bz, wa * aw + wb * bw);
+        return cos > SLERP_THRESHOLD ? normalize() : this;
+    }
+
+    public Quaternion toQuaternion() {
+        return new Quaternion((float) m_x, (float) m_y, (float) m_z, (float) m_w);
+    }
+
+    @Override
+    public String toString() {
+        return "MutableQuaternion{x=" + m_x + "; y=" + m_y + "; z=" + m_z + "; w=" + m_w + "}";
+    }
+}
@@ -0,0 +1,153 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.types;
+
+/**
+ * A vector or point that is changed in place, for math in loops that
+ * shouldn't allocate a {@link Point} per step. Every operation returns
+ * {@code this} so they can be chained. Not thread-safe.
+ */
+public final class MutableVec3d implements ReadableVec3 {
+    private double m_x, m_y, m_z;
+
+    public MutableVec3d() {
+    }
+
+    public MutableVec3d(final double x, final double y, final double z) {
+        set(x, y, z);
+    }
+
+    public MutableVec3d(final ReadableVec3 v) {
+        set(v);
+    }
+
+    @Override
+    public double x() {
+        return m_x;
+    }
+
+    @Override
+    public double y() {
+        return m_y;
+    }
+
+    @Override
+    public double z() {
+        return m_z;
+    }
+
+    public MutableVec3d set(final double x, final double y, final double z) {
+        m_x = x;
+        m_y = y;
+        m_z = z;
+        return this;
+    }
+
+    public MutableVec3d set(final ReadableVec3 v) {
+        return set(v.x(), v.y(), v.z());
+    }
+
+    public MutableVec3d add(final double x, final double y, final double z) {
+        return set(m_x + x, m_y + y, m_z + z);
+    }
+
+    public MutableVec3d add(final ReadableVec3 v) {
+        return add(v.x(), v.y(), v.z());
+    }
+
+    public MutableVec3d sub(final ReadableVec3 v) {
+        return add(-v.x(), -v.y(), -v.z());
+    }
+
+    public MutableVec3d scale(final double s) {
+        return set(m_x * s, m_y * s, m_z * s);
+    }
+
+    /**
+     * Set this to {@code a + (b - a) * t}.
+     */
+    public MutableVec3d lerp(final ReadableVec3 a, final ReadableVec3 b, final double t) {
+        return set(a.x() + (b.x() - a.x()) * t,
+                   a.y() + (b.y() - a.y()) * t,
+                   a.z() + (b.z() - a.z()) * t);
+    }
+
+    public MutableVec3d cross(final ReadableVec3 v) {
+        return set(m_y * v.z() - m_z * v.y(),
+                   m_z * v.x() - m_x * v.z(),
+                   m_x * v.y() - m_y * v.x());
+    }
+
+    public double dot(final ReadableVec3 v) {
+        return m_x * v.x() + m_y * v.y() + m_z * v.z();
+    }
+
+    public double length() {
+        return Math.sqrt(m_x * m_x + m_y * m_y + m_z * m_z);
+    }
+
+    /**
+     * Scale to unit length. A zero vector is left alone.
+     */
+    public MutableVec3d normalize() {
+        final double len = length();
+        return len > 0 ? scale(1 / len) : this;
+    }
+
+    /**
+     * Rotate this vector by the unit quaternion {@code q}.
+     */
+    public MutableVec3d rotate(final ReadableQuaternion q) {
+        final double qx = q.x(), qy = q.y(), qz = q.z(), qw = q.w();
+        // t = 2 * (q.xyz x v); v' = v + w * t + q.xyz x t
+        final double tx = 2 * (qy * m_z - qz * m_y);
+        final double ty = 2 * (qz * m_x - qx * m_z);
+        final double tz = 2 * (qx * m_y - qy * m_x);
+        return set(m_x + qw * tx + (qy * tz - qz * ty),
+                   m_y + qw * ty + (qz * tx - qx * tz),
+                   m_z + qw * tz + (qx * ty - qy * tx));
+    }
+
+    public double distance(final ReadableVec3 v) {
+        return distance(this, v);
+    }
+
+    public static double distance(final ReadableVec3 a, final ReadableVec3 b) {
+        return Math.sqrt(distanceSquared(a, b));
+    }
+
+    public static double distanceSquared(final ReadableVec3 a, final ReadableVec3 b) {
+        final double dx = b.x() - a.x();
+        final double dy = b.y() - a.y();
+        final double dz = b.z() - a.z();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public Point toPoint() {
+        return new Point(m_x, m_y, m_z);
+    }
+
+    public Vec3d toVec3d() {
+        return new Vec3d(m_x, m_y, m_z);
+    }
+
+    @Override
+    public String toString() {
+        return "MutableVec3d[" + m_x + ", " + m_y + ", " + m_z + "]";
+    }
+}
@@ -27,6 +27,10 @@ public class Point extends Vec3d {
         super(x, y, z);
     }
 
+    public Point(final ReadableVec3 point) {
+        super(point);
+    }
+
     public double getX() {
         return m_vec[0];
     }
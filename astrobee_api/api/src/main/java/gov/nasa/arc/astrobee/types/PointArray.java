@@ -0,0 +1,163 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable list of points stored as x, y, z triples in one
+ * {@code double[]}, so a trajectory of thousands of samples is a single
+ * allocation instead of one {@link Point} per sample. Not thread-safe.
+ */
+public final class PointArray {
+    private double[] m_xyz;
+    private int m_size = 0;
+
+    public PointArray() {
+        this(16);
+    }
+
+    public PointArray(final int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative");
+        m_xyz = new double[capacity * 3];
+    }
+
+    private PointArray(final double[] xyz, final int size) {
+        m_xyz = xyz;
+        m_size = size;
+    }
+
+    /**
+     * Use {@code xyz} as the backing array without copying it. Changes to
+     * either show up in the other until the array has to grow.
+     *
+     * @param xyz Points as x, y, z triples.
+     */
+    public static PointArray wrap(final double[] xyz) {
+        if (xyz.length % 3 != 0)
+            throw new IllegalArgumentException("array length must be a multiple of 3");
+        return new PointArray(xyz, xyz.length / 3);
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    public void clear() {
+        m_size = 0;
+    }
+
+    public double x(final int i) {
+        return m_xyz[check(i)];
+    }
+
+    public double y(final int i) {
+        return m_xyz[check(i) + 1];
+    }
+
+    public double z(final int i) {
+        return m_xyz[check(i) + 2];
+    }
+
+    /**
+     * Copy point {@code i} into {@code out}.
+     *
+     * @return {@code out}
+     */
+    public MutableVec3d get(final int i, final MutableVec3d out) {
+        final int k = check(i);
+        return out.set(m_xyz[k], m_xyz[k + 1], m_xyz[k + 2]);
+    }
+
+    public Point getPoint(final int i) {
+        final int k = check(i);
+        return new Point(m_xyz[k], m_xyz[k + 1], m_xyz[k + 2]);
+    }
+
+    public void set(final int i, final double x, final double y, final double z) {
+        final int k = check(i);
+        m_xyz[k] = x;
+        m_xyz[k + 1] = y;
+        m_xyz[k + 2] = z;
+    }
+
+    public PointArray add(final double x, final double y, final double z) {
+        final int k = m_size * 3;
+        if (k + 3 > m_xyz.length)
+            m_xyz = Arrays.copyOf(m_xyz, Math.max(k + 3, m_xyz.length * 2));
+        m_xyz[k] = x;
+        m_xyz[k + 1] = y;
+        m_xyz[k + 2] = z;
+        m_size++;
+        return this;
+    }
+
+    public PointArray add(final ReadableVec3 p) {
+        return add(p.x(), p.y(), p.z());
+    }
+
+    /**
+     * @return The distance between points {@code i} and {@code j}.
+     */
+    public double distance(final int i, final int j) {
+        final int a = check(i), b = check(j);
+        final double dx = m_xyz[b] - m_xyz[a];
+        final double dy = m_xyz[b + 1] - m_xyz[a + 1];
+        final double dz = m_xyz[b + 2] - m_xyz[a + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * @return The distance between point {@code i} and {@code p}.
+     */
+    public double distance(final int i, final ReadableVec3 p) {
+        final int a = check(i);
+        final double dx = p.x() - m_xyz[a];
+        final double dy = p.y() - m_xyz[a + 1];
+        final double dz = p.z() - m_xyz[a + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * The backing array, without copying. Only the first {@code size() * 3}
+     * entries are points.
+     */
+    public double[] array() {
+        return m_xyz;
+    }
+
+    public List<Point> toPoints() {
+        final List<Point> points = new ArrayList<>(m_size);
+        for (int i = 0; i < m_size; i++)
+            points.add(getPoint(i));
+        return points;
+    }
+
+    private int check(final int i) {
+        if (i < 0 || i >= m_size)
+            throw new IndexOutOfBoundsException("index " + i + ", size " + m_size);
+        return i * 3;
+    }
+}
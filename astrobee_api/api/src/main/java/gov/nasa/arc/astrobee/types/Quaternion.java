@@ -18,11 +18,16 @@
 
 package gov.nasa.arc.astrobee.types;
 
-import gov.nasa.arc.astrobee.types.Mat33f;
-
 import java.text.DecimalFormat;
 
-public class Quaternion extends Mat33f {
+/**
+ * An immutable quaternion. It is a {@link Mat33f} only because that is how
+ * commands carry it, as x, y, z, w followed by five zeros; just the four
+ * components are stored.
+ */
+public class Quaternion extends Mat33f implements ReadableQuaternion {
+    private final float m_x, m_y, m_z, m_w;
+
     /**
      * Define a new quaternion representing no rotation around an undefined axis:
      * (0, 0, 0, 1)
@@ -40,23 +45,65 @@ public class Quaternion extends Mat33f {
      * @param w The w component of the quaternion.
      */
     public Quaternion(float x, float y, float z, float w) {
-        super(new float[]{ x, y, z, w, 0, 0, 0, 0, 0 });
+        m_x = x;
+        m_y = y;
+        m_z = z;
+        m_w = w;
+    }
+
+    public Quaternion(final ReadableQuaternion q) {
+        this((float) q.x(), (float) q.y(), (float) q.z(), (float) q.w());
     }
 
     public float getX() {
-        return m_vec[0];
+        return m_x;
     }
 
     public float getY() {
-        return m_vec[1];
+        return m_y;
     }
 
     public float getZ() {
-        return m_vec[2];
+        return m_z;
     }
 
     public float getW() {
-        return m_vec[3];
+        return m_w;
+    }
+
+    @Override
+    public double x() {
+        return m_x;
+    }
+
+    @Override
+    public double y() {
+        return m_y;
+    }
+
+    @Override
+    public double z() {
+        return m_z;
+    }
+
+    @Override
+    public double w() {
+        return m_w;
+    }
+
+    @Override
+    public float[] toArray() {
+        return new float[]{ m_x, m_y, m_z, m_w, 0, 0, 0, 0, 0 };
+    }
+
+    @Override
+    public void copyTo(final float[] out) {
+        out[0] = m_x;
+        out[1] = m_y;
+        out[2] = m_z;
+        out[3] = m_w;
+        for (int i = 4; i < 9; i++)
+            out[i] = 0;
     }
 
     private static final DecimalFormat s_decimalFormatter = new DecimalFormat("#.###");
@@ -64,9 +111,9 @@ public class Quaternion extends Mat33f {
     @Override
     public String toString() {
         return "Mat33f::Quaternion{ " +
-                "x=" + s_decimalFormatter.format(m_vec[0]) + "; " +
-                "y=" + s_decimalFormatter.format(m_vec[1]) + "; " +
-                "z=" + s_decimalFormatter.format(m_vec[2]) + "; " +
-                "w=" + s_decimalFormatter.format(m_vec[3]) + "}";
+                "x=" + s_decimalFormatter.format(m_x) + "; " +
+                "y=" + s_decimalFormatter.format(m_y) + "; " +
+                "z=" + s_decimalFormatter.format(m_z) + "; " +
+                "w=" + s_decimalFormatter.format(m_w) + "}";
     }
 }
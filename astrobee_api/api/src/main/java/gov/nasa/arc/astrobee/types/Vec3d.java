@@ -20,7 +20,7 @@ package gov.nasa.arc.astrobee.types;
 
 import java.text.DecimalFormat;
 
-public class Vec3d {
+public class Vec3d implements ReadableVec3 {
     protected final double m_vec[];
 
     public Vec3d() {
@@ -39,10 +39,39 @@ public class Vec3d {
         m_vec = vec.clone();
     }
 
+    public Vec3d(final ReadableVec3 vec) {
+        this(vec.x(), vec.y(), vec.z());
+    }
+
     public double[] toArray() {
         return m_vec.clone();
     }
 
+    /**
+     * Copy the components into {@code out} at {@code offset}, rather than
+     * allocating a new array like {@link #toArray()}.
+     */
+    public void copyTo(final double[] out, final int offset) {
+        out[offset] = m_vec[0];
+        out[offset + 1] = m_vec[1];
+        out[offset + 2] = m_vec[2];
+    }
+
+    @Override
+    public double x() {
+        return m_vec[0];
+    }
+
+    @Override
+    public double y() {
+        return m_vec[1];
+    }
+
+    @Override
+    public double z() {
+        return m_vec[2];
+    }
+
     private static final DecimalFormat s_decimalFormatter = new DecimalFormat("#.###");
 
     @Override
@@ -0,0 +1,87 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.benchmarks;
+
+import gov.nasa.arc.astrobee.ros.guestscience.ApkInfo;
+import gov.nasa.arc.astrobee.ros.guestscience.ApkInfoXmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an APK's command description, done whenever an APK is started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ApkInfoXmlParserBenchmark {
+    private static final int COMMANDS = 32;
+
+    private File m_file;
+
+    @Setup
+    public void setUp() throws IOException {
+        m_file = File.createTempFile("commands", ".xml");
+        final Writer out = new OutputStreamWriter(new FileOutputStream(m_file), "UTF-8");
+        try {
+            out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+            out.write("<apkInfo>\n");
+            out.write("    <fullName>gov.nasa.arc.irg.bunny.rabbit</fullName>\n");
+            out.write("    <shortName>Bunny Rabbit</shortName>\n");
+            out.write("    <primary>false</primary>\n");
+            out.write("    <commands>\n");
+            for (int i = 0; i < COMMANDS; i++) {
+                out.write("        <command name=\"Hop" + i + "\" " +
+                        "syntax=\"{&quot;action&quot;: &quot;hop&quot;, &quot;count&quot;: " + i + "}\" />\n");
+            }
+            out.write("    </commands>\n");
+            out.write("</apkInfo>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!m_file.delete())
+            m_file.deleteOnExit();
+    }
+
+    @Benchmark
+    public ApkInfo parseFile() {
+        return ApkInfoXmlParser.parseFile(m_file.getPath());
+    }
+}
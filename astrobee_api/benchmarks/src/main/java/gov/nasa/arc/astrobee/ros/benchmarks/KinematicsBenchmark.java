@@ -0,0 +1,69 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.benchmarks;
+
+import ff_msgs.EkfState;
+import gov.nasa.arc.astrobee.Kinematics;
+import gov.nasa.arc.astrobee.ros.DefaultKinematics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.message.MessageFactory;
+import org.ros.node.NodeConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning an {@link EkfState} into a {@link DefaultKinematics}, which
+ * happens for every EKF message a reader asks about.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class KinematicsBenchmark {
+    private EkfState m_ekf;
+
+    @Setup
+    public void setUp() {
+        final MessageFactory factory = NodeConfiguration.newPrivate().getTopicMessageFactory();
+        m_ekf = factory.newFromType(EkfState._TYPE);
+        m_ekf.getPose().getPosition().setX(1.5);
+        m_ekf.getPose().getPosition().setY(-0.25);
+        m_ekf.getPose().getPosition().setZ(4.75);
+        m_ekf.getPose().getOrientation().setZ(0.7071);
+        m_ekf.getPose().getOrientation().setW(0.7071);
+        m_ekf.getVelocity().setX(0.05);
+        m_ekf.getOmega().setZ(0.01);
+        m_ekf.setConfidence(EkfState.CONFIDENCE_GOOD);
+    }
+
+    @Benchmark
+    public Kinematics fromEkfState() {
+        return new DefaultKinematics(m_ekf);
+    }
+}
@@ -0,0 +1,90 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.benchmarks;
+
+import ff_msgs.AckCompletedStatus;
+import ff_msgs.AckStamped;
+import ff_msgs.AckStatus;
+import ff_msgs.CommandStamped;
+import org.ros.message.MessageListener;
+import org.ros.namespace.GraphName;
+import org.ros.node.AbstractNodeMain;
+import org.ros.node.ConnectedNode;
+import org.ros.node.topic.Publisher;
+import org.ros.node.topic.Subscriber;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for the executive: every command it hears is acked as executing
+ * and then completed, straight away.
+ */
+public class LoopbackExecutive extends AbstractNodeMain implements MessageListener<CommandStamped> {
+    private volatile Publisher<AckStamped> m_ackPublisher = null;
+
+    @Override
+    public GraphName getDefaultNodeName() {
+        return GraphName.of("loopback_executive");
+    }
+
+    @Override
+    public void onStart(final ConnectedNode connectedNode) {
+        final Publisher<AckStamped> publisher = connectedNode.newPublisher("mgt/ack", AckStamped._TYPE);
+        final Subscriber<CommandStamped> subscriber =
+                connectedNode.newSubscriber("command", CommandStamped._TYPE);
+        subscriber.addMessageListener(this);
+        m_ackPublisher = publisher;
+    }
+
+    @Override
+    public void onNewMessage(final CommandStamped cmd) {
+        final Publisher<AckStamped> publisher = m_ackPublisher;
+        publisher.publish(ack(publisher, cmd, AckStatus.EXECUTING, AckCompletedStatus.NOT));
+        publisher.publish(ack(publisher, cmd, AckStatus.COMPLETED, AckCompletedStatus.OK));
+    }
+
+    /**
+     * Wait until somebody is listening for acks, so none are lost.
+     *
+     * @return {@code false} if nobody subscribed in time.
+     */
+    public boolean awaitSubscriber(final long timeout, final TimeUnit units)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + units.toNanos(timeout);
+        while (System.nanoTime() < deadline) {
+            final Publisher<AckStamped> publisher = m_ackPublisher;
+            if (publisher != null && publisher.getNumberOfSubscribers() > 0)
+                return true;
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static AckStamped ack(final Publisher<AckStamped> publisher,
+                                  final CommandStamped cmd,
+                                  final byte status,
+                                  final byte completed) {
+        final AckStamped ack = publisher.newMessage();
+        ack.getHeader().setStamp(cmd.getHeader().getStamp());
+        ack.setCmdId(cmd.getCmdId());
+        ack.getStatus().setStatus(status);
+        ack.getCompletedStatus().setStatus(completed);
+        ack.setMessage("");
+        return ack;
+    }
+}
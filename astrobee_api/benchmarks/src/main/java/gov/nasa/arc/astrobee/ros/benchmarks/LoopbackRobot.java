@@ -0,0 +1,85 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.benchmarks;
+
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.Robot;
+import gov.nasa.arc.astrobee.ros.DefaultRobotFactory;
+import gov.nasa.arc.astrobee.ros.RobotConfiguration;
+import org.ros.RosCore;
+import org.ros.node.DefaultNodeMainExecutor;
+import org.ros.node.NodeConfiguration;
+import org.ros.node.NodeMainExecutor;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link Robot} connected to a {@link LoopbackExecutive} through a ROS
+ * master running in this process, so benchmarks go through real rosjava
+ * publishers and subscribers without needing the robot or the simulator.
+ */
+public final class LoopbackRobot {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final RosCore m_core;
+    private final NodeMainExecutor m_executor;
+    private final LoopbackExecutive m_executive = new LoopbackExecutive();
+    private final DefaultRobotFactory m_factory;
+    private final Robot m_robot;
+
+    public LoopbackRobot(final RobotConfiguration configuration)
+            throws AstrobeeException, InterruptedException, TimeoutException {
+        m_core = RosCore.newPrivate();
+        m_core.start();
+        if (!m_core.awaitStart(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            throw new TimeoutException("ROS master did not start");
+        final URI master = m_core.getUri();
+
+        m_executor = DefaultNodeMainExecutor.newDefault();
+        m_executor.execute(m_executive, NodeConfiguration.newPrivate(master));
+
+        m_factory = new DefaultRobotFactory(configuration
+                .setMasterUri(master)
+                .setHostname("127.0.0.1")
+                .setDiagnosticsPeriod(0, TimeUnit.SECONDS));
+        m_robot = m_factory.getRobot(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        if (!m_executive.awaitSubscriber(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            throw new TimeoutException("Robot never subscribed to acks");
+    }
+
+    public LoopbackRobot() throws AstrobeeException, InterruptedException, TimeoutException {
+        this(new RobotConfiguration());
+    }
+
+    public Robot getRobot() {
+        return m_robot;
+    }
+
+    public DefaultRobotFactory getFactory() {
+        return m_factory;
+    }
+
+    public void shutdown() {
+        m_factory.shutdown();
+        m_executor.shutdown();
+        m_core.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.benchmarks;
+
+import gov.nasa.arc.astrobee.PendingResult;
+import gov.nasa.arc.astrobee.Result;
+import gov.nasa.arc.astrobee.Robot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commands sent through {@code RobotNodeMain.publish} to a
+ * {@link LoopbackExecutive} and acked back, including ack matching and
+ * completion. Mostly measures rosjava's loopback TCP, which is the point:
+ * it is the floor for any command a guest science APK sends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PublishBenchmark {
+    @Param({"16"})
+    public int depth;
+
+    private LoopbackRobot m_loopback;
+    private Robot m_robot;
+    private PendingResult[] m_inFlight;
+
+    @Setup
+    public void setUp() throws Exception {
+        m_loopback = new LoopbackRobot();
+        m_robot = m_loopback.getRobot();
+        m_inFlight = new PendingResult[depth];
+
+        // Make sure the whole loop works before we start timing it
+        final Result result = m_robot.noOp().getResult(30, TimeUnit.SECONDS);
+        if (result == null || !result.hasSucceeded())
+            throw new IllegalStateException("Loopback executive did not ack");
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_loopback.shutdown();
+    }
+
+    /**
+     * One command at a time: publish, wait for the completed ack.
+     */
+    @Benchmark
+    public Result roundTrip() throws Exception {
+        return m_robot.noOp().getResult();
+    }
+
+    /**
+     * {@link #depth} commands in flight at once, then wait for all of them.
+     */
+    @Benchmark
+    public Result pipelined() throws Exception {
+        for (int i = 0; i < m_inFlight.length; i++)
+            m_inFlight[i] = m_robot.noOp();
+        Result last = null;
+        for (int i = 0; i < m_inFlight.length; i++) {
+            last = m_inFlight[i].getResult();
+            m_inFlight[i] = null;
+        }
+        return last;
+    }
+}
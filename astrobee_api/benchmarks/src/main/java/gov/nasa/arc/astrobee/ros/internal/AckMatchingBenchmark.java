@@ -0,0 +1,119 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import ff_msgs.AckCompletedStatus;
+import ff_msgs.AckStamped;
+import ff_msgs.AckStatus;
+import ff_msgs.CommandStamped;
+import gov.nasa.arc.astrobee.ros.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.message.MessageFactory;
+import org.ros.node.NodeConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the ack thread does for each command: register it, match an
+ * executing ack, then match and complete it. Runs against a table already
+ * holding {@link #inFlight} other commands.
+ *
+ * Lives in the internal package to reach the package-private classes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class AckMatchingBenchmark {
+    // Distinct commands cycled through, so ids aren't always hot in cache
+    private static final int COMMANDS = 1024;
+
+    @Param({"0", "64"})
+    public int inFlight;
+
+    private final PendingTable m_table = new PendingTable();
+    private final NodeMetrics m_metrics = new NodeMetrics(new MetricsRegistry());
+
+    private CommandStamped[] m_commands;
+    private AckStamped[] m_executing;
+    private AckStamped[] m_completed;
+    private int m_next = 0;
+
+    @Setup
+    public void setUp() {
+        final MessageFactory factory = NodeConfiguration.newPrivate().getTopicMessageFactory();
+        final CommandTemplates templates = new CommandTemplates(factory);
+
+        m_commands = new CommandStamped[COMMANDS];
+        m_executing = new AckStamped[COMMANDS];
+        m_completed = new AckStamped[COMMANDS];
+        for (int i = 0; i < COMMANDS; i++) {
+            final CommandStamped cmd = factory.newFromType(CommandStamped._TYPE);
+            cmd.setCmdName("noOp");
+            cmd.setCmdId(templates.nextId());
+            m_commands[i] = cmd;
+            m_executing[i] = ack(factory, cmd.getCmdId(), AckStatus.EXECUTING, AckCompletedStatus.NOT);
+            m_completed[i] = ack(factory, cmd.getCmdId(), AckStatus.COMPLETED, AckCompletedStatus.OK);
+        }
+
+        for (int i = 0; i < inFlight; i++) {
+            final CommandStamped cmd = factory.newFromType(CommandStamped._TYPE);
+            cmd.setCmdId(templates.nextId());
+            m_table.put(cmd.getCmdId(), new DefaultPendingResult(cmd, m_metrics));
+        }
+    }
+
+    @Benchmark
+    public DefaultPendingResult matchAndComplete() {
+        final int i = m_next;
+        m_next = (i + 1) & (COMMANDS - 1);
+
+        final CommandStamped cmd = m_commands[i];
+        final DefaultPendingResult pr = new DefaultPendingResult(cmd, m_metrics);
+        m_table.put(cmd.getCmdId(), pr);
+        pr.sent();
+
+        m_table.get(m_executing[i].getCmdId()).update(m_executing[i]);
+        m_table.remove(m_completed[i].getCmdId()).update(m_completed[i]);
+        return pr;
+    }
+
+    private static AckStamped ack(final MessageFactory factory,
+                                  final String id,
+                                  final byte status,
+                                  final byte completed) {
+        final AckStamped ack = factory.newFromType(AckStamped._TYPE);
+        ack.setCmdId(id);
+        ack.getStatus().setStatus(status);
+        ack.getCompletedStatus().setStatus(completed);
+        ack.setMessage("");
+        return ack;
+    }
+}
@@ -0,0 +1,84 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import ff_msgs.CommandStamped;
+import gov.nasa.arc.astrobee.types.Point;
+import gov.nasa.arc.astrobee.types.Quaternion;
+import gov.nasa.arc.astrobee.types.Vec3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.node.NodeConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DefaultCommandBuilder#build()} for the commands the API sends most.
+ * Built commands are released again, like {@link RobotNodeMain} does once
+ * they complete, so this measures the steady state with warm templates.
+ *
+ * Lives in the internal package to reach the package-private classes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class CommandBuilderBenchmark {
+    private CommandTemplates m_templates;
+
+    private final Point m_xyz = new Point(1.5, -0.25, 4.75);
+    private final Vec3d m_tolerance = new Vec3d(0, 0, 0);
+    private final Quaternion m_rot = new Quaternion(0, 0, 0.7071f, 0.7071f);
+
+    @Setup
+    public void setUp() {
+        m_templates = new CommandTemplates(NodeConfiguration.newPrivate().getTopicMessageFactory());
+    }
+
+    @Benchmark
+    public CommandStamped noOp() {
+        final CommandStamped cmd = ((CommandHolder) new DefaultCommandBuilder(m_templates)
+                .setName("noOp")
+                .build()).getCommand();
+        m_templates.release(cmd);
+        return cmd;
+    }
+
+    @Benchmark
+    public CommandStamped simpleMove6DOF() {
+        final CommandStamped cmd = ((CommandHolder) new DefaultCommandBuilder(m_templates)
+                .setName("simpleMove6DOF")
+                .addArgument("referenceFrame", "world")
+                .addArgument("xyz", m_xyz)
+                .addArgument("xyzTolerance", m_tolerance)
+                .addArgument("rot", m_rot)
+                .build()).getCommand();
+        m_templates.release(cmd);
+        return cmd;
+    }
+}
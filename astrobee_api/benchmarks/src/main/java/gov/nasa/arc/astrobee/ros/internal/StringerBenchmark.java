@@ -0,0 +1,86 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import ff_msgs.AckCompletedStatus;
+import ff_msgs.AckStamped;
+import ff_msgs.AckStatus;
+import ff_msgs.CommandStamped;
+import gov.nasa.arc.astrobee.ros.internal.util.Stringer;
+import gov.nasa.arc.astrobee.types.Point;
+import gov.nasa.arc.astrobee.types.Quaternion;
+import gov.nasa.arc.astrobee.types.Vec3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.message.MessageFactory;
+import org.ros.node.NodeConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Stringer} on the messages {@link RobotNodeMain} logs for every
+ * command and ack.
+ *
+ * Lives in the internal package to reach the package-private classes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class StringerBenchmark {
+    private CommandStamped m_command;
+    private AckStamped m_ack;
+
+    @Setup
+    public void setUp() {
+        final MessageFactory factory = NodeConfiguration.newPrivate().getTopicMessageFactory();
+        m_command = ((CommandHolder) new DefaultCommandBuilder(new CommandTemplates(factory))
+                .setName("simpleMove6DOF")
+                .addArgument("referenceFrame", "world")
+                .addArgument("xyz", new Point(1.5, -0.25, 4.75))
+                .addArgument("xyzTolerance", new Vec3d(0, 0, 0))
+                .addArgument("rot", new Quaternion(0, 0, 0.7071f, 0.7071f))
+                .build()).getCommand();
+
+        m_ack = factory.newFromType(AckStamped._TYPE);
+        m_ack.setCmdId(m_command.getCmdId());
+        m_ack.getStatus().setStatus(AckStatus.COMPLETED);
+        m_ack.getCompletedStatus().setStatus(AckCompletedStatus.OK);
+        m_ack.setMessage("");
+    }
+
+    @Benchmark
+    public String command() {
+        return Stringer.toString(m_command);
+    }
+
+    @Benchmark
+    public String ack() {
+        return Stringer.toString(m_ack);
+    }
+}
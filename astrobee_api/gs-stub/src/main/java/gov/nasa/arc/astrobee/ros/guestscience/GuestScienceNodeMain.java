@@ -281,7 +281,8 @@ public class GuestScienceNodeMain extends AbstractNodeMain implements MessageLis
         apks.add(apk);
         mConfig.setApks(apks);
 
-        logger.debug("Publishing " + Stringer.toString(mConfig));
+        if (logger.isDebugEnabled())
+            logger.debug("Publishing " + Stringer.toString(mConfig));
         m_gsConfigPublisher.publish(mConfig);
 
     }
@@ -20,6 +20,7 @@ package gov.nasa.arc.astrobee.ros;
 
 import ff_msgs.EkfState;
 import gov.nasa.arc.astrobee.Kinematics;
+import gov.nasa.arc.astrobee.KinematicsSnapshot;
 import gov.nasa.arc.astrobee.types.Point;
 import gov.nasa.arc.astrobee.types.Quaternion;
 import gov.nasa.arc.astrobee.types.Vec3d;
@@ -75,6 +76,36 @@ public class DefaultKinematics implements Kinematics {
         }
     }
 
+    public DefaultKinematics(final KinematicsSnapshot snapshot) {
+        m_position = new Point(
+                snapshot.getPositionX(),
+                snapshot.getPositionY(),
+                snapshot.getPositionZ()
+        );
+        m_orientation = new Quaternion(
+                (float) snapshot.getOrientationX(),
+                (float) snapshot.getOrientationY(),
+                (float) snapshot.getOrientationZ(),
+                (float) snapshot.getOrientationW()
+        );
+        m_linearVelocity = new Vec3d(
+                snapshot.getLinearVelocityX(),
+                snapshot.getLinearVelocityY(),
+                snapshot.getLinearVelocityZ()
+        );
+        m_angularVelocity = new Vec3d(
+                snapshot.getAngularVelocityX(),
+                snapshot.getAngularVelocityY(),
+                snapshot.getAngularVelocityZ()
+        );
+        m_linearAcceleration = new Vec3d(
+                snapshot.getLinearAccelerationX(),
+                snapshot.getLinearAccelerationY(),
+                snapshot.getLinearAccelerationZ()
+        );
+        m_confidence = snapshot.getConfidence();
+    }
+
     public DefaultKinematics() {
         m_position = new Point();
         m_orientation = new Quaternion();
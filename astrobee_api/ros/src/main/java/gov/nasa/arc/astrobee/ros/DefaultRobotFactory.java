@@ -27,7 +27,11 @@ import org.apache.commons.logging.LogFactory;
 import org.ros.node.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
@@ -39,22 +43,71 @@ public class DefaultRobotFactory implements RobotFactory {
 
     private final RobotConfiguration m_robotConfiguration;
 
-    private RobotNodeMain m_nodeMain = new RobotNodeMain();
+    // The local robot, in the root namespace
+    private final Connection m_connection;
 
-    private final Lock m_lock = new ReentrantLock();
-    private final Condition m_changed = m_lock.newCondition();
-    private boolean m_running = false;
-    private Throwable m_error = null;
+    // Other robots by name, each in its own namespace. Guarded by itself,
+    // as is m_shutdown.
+    private final Map<String, Connection> m_remotes = new HashMap<>();
+    private boolean m_shutdown = false;
 
-    private CountDownLatch m_shutdownLatch = null;
+    /**
+     * One ROS node and everything needed to start it, wait for it and
+     * restart it when it fails.
+     */
+    private final class Connection extends DefaultNodeListener {
+        private final RobotNodeMain m_nodeMain;
+        private final NodeConfiguration m_nodeConf;
+        private final DefaultRobot m_robot;
+
+        private final long m_reconnectDelayNanos;
+        private final long m_reconnectMaxDelayNanos;
+
+        private final Lock m_lock = new ReentrantLock();
+        private final Condition m_changed = m_lock.newCondition();
+        // All guarded by m_lock
+        private boolean m_running = false;
+        private Throwable m_error = null;
+        private boolean m_closed = false;
+        private boolean m_reconnectPending = false;
+        private long m_nextDelayNanos;
+
+        private volatile CountDownLatch m_shutdownLatch = null;
+        private volatile ConnectedNode m_connectedNode = null;
+
+        Connection(final RobotConfiguration configuration, final String namespace) {
+            m_nodeMain = new RobotNodeMain(configuration);
+            m_nodeConf = configuration.build(namespace);
+            m_robot = new DefaultRobot(m_nodeMain);
+            m_reconnectDelayNanos = configuration.getReconnectDelay(TimeUnit.NANOSECONDS);
+            m_reconnectMaxDelayNanos = configuration.getReconnectMaxDelay(TimeUnit.NANOSECONDS);
+            m_nextDelayNanos = m_reconnectDelayNanos;
+        }
+
+        RobotNodeMain getNodeMain() {
+            return m_nodeMain;
+        }
+
+        void start() {
+            final ArrayList<NodeListener> listeners = new ArrayList<>();
+            listeners.add(this);
+            try {
+                NodeExecutorHolder.getExecutor().execute(m_nodeMain, m_nodeConf, listeners);
+            } catch (RuntimeException e) {
+                logger.error("Unable to start node", e);
+                failed(e);
+                scheduleReconnect();
+            }
+        }
 
-    private final class ReadyListener extends DefaultNodeListener {
         @Override
         public void onStart(ConnectedNode connectedNode) {
+            m_connectedNode = connectedNode;
             m_lock.lock();
             try {
                 m_running = true;
                 m_error = null;
+                m_nextDelayNanos = m_reconnectDelayNanos;
                 m_changed.signalAll();
             } finally {
                 m_lock.unlock();
@@ -64,6 +117,11 @@ public class DefaultRobotFactory implements RobotFactory {
         @Override
         public void onShutdownComplete(Node node) {
             logger.debug("Node shutdown complete");
+            shutdownComplete();
+        }
+
+        private void shutdownComplete() {
+            m_connectedNode = null;
             m_lock.lock();
             try {
                 m_running = false;
@@ -72,24 +130,223 @@ public class DefaultRobotFactory implements RobotFactory {
                 m_lock.unlock();
             }
 
-            if (m_shutdownLatch != null)
-                m_shutdownLatch.countDown();
+            final CountDownLatch latch = m_shutdownLatch;
+            if (latch != null)
+                latch.countDown();
+
+            scheduleReconnect();
         }
 
         @Override
         public void onError(final Node node, Throwable throwable) {
             logger.error("Node error", throwable);
+            failed(throwable);
+            shutdownNode();
+        }
+
+        private void failed(final Throwable throwable) {
             m_lock.lock();
             try {
                 m_running = false;
                 m_error = throwable;
+                m_reconnectPending = !m_closed && m_reconnectDelayNanos > 0;
                 m_changed.signalAll();
             } finally {
                 m_lock.unlock();
             }
+        }
+
+        // Restart the node after a backoff, if it failed and we're still open
+        private void scheduleReconnect() {
+            final long delay;
+            m_lock.lock();
+            try {
+                if (!m_reconnectPending || m_closed)
+                    return;
+                m_reconnectPending = false;
+                delay = m_nextDelayNanos;
+                m_nextDelayNanos = Math.min(m_nextDelayNanos * 2, m_reconnectMaxDelayNanos);
+            } finally {
+                m_lock.unlock();
+            }
+
+            logger.info("Reconnecting in " + TimeUnit.NANOSECONDS.toMillis(delay) + " ms");
+            NodeExecutorHolder.getLocalExecutor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    m_lock.lock();
+                    try {
+                        if (m_closed)
+                            return;
+                    } finally {
+                        m_lock.unlock();
+                    }
+                    start();
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+
+        void shutdownNode() {
+            logger.debug("Attempting to shutdown node");
+            final CountDownLatch latch = new CountDownLatch(1);
+            m_shutdownLatch = latch;
+            NodeExecutorHolder.getExecutor().getScheduledExecutorService().submit(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            NodeExecutorHolder.getExecutor().shutdownNodeMain(m_nodeMain);
+                        }
+                    }
+            );
+            NodeExecutorHolder.getLocalExecutor().submit(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                if (!latch.await(5, TimeUnit.SECONDS)) {
+                                    logger.warn("Node did not shut down in a timely manner, forcing shut down.");
+                                    forceShutdown(latch);
+                                }
+                            } catch (InterruptedException e) {
+                                logger.debug("Interrupted exception.");
+                            }
+                        }
+                    }
+            );
+        }
+
+        /**
+         * Shut the node down from this thread, bypassing the ROS executor
+         * that didn't get to it. The executor is shared by every robot, so
+         * it is only shut down when no other connection is using it.
+         */
+        private void forceShutdown(final CountDownLatch latch) {
+            final ConnectedNode node = m_connectedNode;
+            if (node != null) {
+                try {
+                    node.shutdown();
+                } catch (RuntimeException e) {
+                    logger.warn("Forced node shut down failed", e);
+                }
+            }
+            if (!hasOtherConnections(this))
+                NodeExecutorHolder.shutdownExecutor(1, TimeUnit.SECONDS);
+
+            // Give up on the node if it still hasn't said it's done
+            if (latch.getCount() > 0)
+                shutdownComplete();
+        }
+
+        boolean isClosed() {
+            m_lock.lock();
+            try {
+                return m_closed;
+            } finally {
+                m_lock.unlock();
+            }
+        }
 
+        void close() {
+            m_lock.lock();
+            try {
+                m_closed = true;
+                m_reconnectPending = false;
+                m_changed.signalAll();
+            } finally {
+                m_lock.unlock();
+            }
             shutdownNode();
         }
+
+        boolean isDone() {
+            m_lock.lock();
+            try {
+                return m_running || m_closed || (m_error != null && m_reconnectDelayNanos == 0);
+            } finally {
+                m_lock.unlock();
+            }
+        }
+
+        /**
+         * Wait for the node to be up.
+         *
+         * @param timeoutNanos How long to wait, or a negative value to wait
+         *                     forever.
+         */
+        Robot await(long timeoutNanos)
+                throws AstrobeeException, InterruptedException, TimeoutException {
+            m_lock.lock();
+            try {
+                while (!m_running) {
+                    if (m_closed)
+                        throw new AstrobeeException("Robot factory has been shut down");
+                    // Without reconnection an error is final
+                    if (m_error != null && m_reconnectDelayNanos == 0)
+                        throw new AstrobeeException(m_error);
+                    if (timeoutNanos < 0) {
+                        m_changed.await();
+                    } else {
+                        if (timeoutNanos == 0)
+                            throw new TimeoutException("Timed out waiting for Robot");
+                        timeoutNanos = m_changed.awaitNanos(timeoutNanos);
+                        if (timeoutNanos < 0)
+                            timeoutNanos = 0;
+                    }
+                }
+                return m_robot;
+            } finally {
+                m_lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * {@link Future} view of {@link Connection#await(long)}. It can't be
+     * canceled, since nothing is running on the caller's behalf.
+     */
+    private static final class RobotFuture implements Future<Robot> {
+        private final Connection m_connection;
+
+        RobotFuture(final Connection connection) {
+            m_connection = connection;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return m_connection.isDone();
+        }
+
+        @Override
+        public Robot get() throws InterruptedException, ExecutionException {
+            try {
+                return m_connection.await(-1);
+            } catch (AstrobeeException e) {
+                throw new ExecutionException(e);
+            } catch (TimeoutException e) {
+                // Can't happen without a timeout
+                throw new ExecutionException(e);
+            }
+        }
+
+        @Override
+        public Robot get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                return m_connection.await(Math.max(0, unit.toNanos(timeout)));
+            } catch (AstrobeeException e) {
+                throw new ExecutionException(e);
+            }
+        }
     }
 
     @SuppressWarnings("unused")
@@ -99,44 +356,80 @@ public class DefaultRobotFactory implements RobotFactory {
 
     public DefaultRobotFactory(final RobotConfiguration configuration) {
         m_robotConfiguration = configuration;
-        final NodeConfiguration nodeConf = configuration.build();
-
-        final ArrayList<NodeListener> listeners = new ArrayList<>();
-        listeners.add(new ReadyListener());
-        NodeExecutorHolder.getExecutor().execute(m_nodeMain, nodeConf, listeners);
+        if (configuration.getExecutorConfiguration() != null
+                && !NodeExecutorHolder.configure(configuration.getExecutorConfiguration()))
+            logger.warn("Executor is already running, thread pool settings apply after it restarts");
+        m_connection = new Connection(configuration, null);
+        m_connection.start();
     }
 
     void shutdownNode() {
-        logger.debug("Attempting to shutdown node");
-        m_shutdownLatch = new CountDownLatch(1);
-        NodeExecutorHolder.getExecutor().getScheduledExecutorService().submit(
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        NodeExecutorHolder.getExecutor().shutdownNodeMain(m_nodeMain);
-                    }
-                }
-        );
-        NodeExecutorHolder.getLocalExecutor().submit(
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            if (!m_shutdownLatch.await(5, TimeUnit.SECONDS)) {
-                                logger.warn("Node did not shut down in a timely manner, forcing shut down.");
-                                NodeExecutorHolder.shutdownExecutor(1, TimeUnit.SECONDS);
-                            }
-                        } catch (InterruptedException e) {
-                            logger.debug("Interrupted exception.");
-                        }
-                    }
-                }
-        );
+        m_connection.shutdownNode();
+    }
+
+    /**
+     * @return Whether any connection other than the given one is still open.
+     */
+    private boolean hasOtherConnections(final Connection connection) {
+        synchronized (m_remotes) {
+            if (connection != m_connection && !m_connection.isClosed())
+                return true;
+            for (Connection c : m_remotes.values()) {
+                if (c != connection && !c.isClosed())
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Find or start the connection for the named robot. The local robot is
+     * the one with no name or the name from {@link #getLocalName()}.
+     */
+    private Connection getConnection(final String name) {
+        if (name == null || name.length() == 0 || name.equals(getLocalName()))
+            return m_connection;
+
+        synchronized (m_remotes) {
+            // The closed local connection will refuse the caller
+            if (m_shutdown)
+                return m_connection;
+
+            Connection c = m_remotes.get(name);
+            if (c == null) {
+                logger.info("Connecting to robot " + name);
+                c = new Connection(m_robotConfiguration, name);
+                m_remotes.put(name, c);
+                c.start();
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Find the connection for the named robot without starting one.
+     */
+    private Connection findConnection(final String name) {
+        if (name == null || name.length() == 0 || name.equals(getLocalName()))
+            return m_connection;
+
+        synchronized (m_remotes) {
+            final Connection c = m_remotes.get(name);
+            if (c == null)
+                throw new IllegalArgumentException("Not connected to robot " + name);
+            return c;
+        }
     }
 
     @Override
     public void shutdown() {
-        shutdownNode();
+        synchronized (m_remotes) {
+            m_shutdown = true;
+            for (Connection c : m_remotes.values())
+                c.close();
+            m_remotes.clear();
+        }
+        m_connection.close();
         NodeExecutorHolder.getLocalExecutor().submit(
                 new Runnable() {
                     @Override
@@ -154,42 +447,90 @@ public class DefaultRobotFactory implements RobotFactory {
 
     @Override
     public Robot getRobot(final String name) throws AstrobeeException, InterruptedException {
-        if (name != null && name.length() > 0)
-            throw new RuntimeException("Not implemented yet, sorry.");
-
-        m_lock.lock();
         try {
-            while (!m_running && m_error == null)
-                m_changed.await();
-            if (m_error != null)
-                throw new AstrobeeException(m_error);
-            return new DefaultRobot(m_nodeMain);
-        } finally {
-            m_lock.unlock();
+            return getConnection(name).await(-1);
+        } catch (TimeoutException e) {
+            // Can't happen without a timeout
+            throw new AstrobeeException(e);
         }
     }
 
     @Override
     public Robot getRobot(long timeout, TimeUnit units) throws AstrobeeException, InterruptedException, TimeoutException {
-        return getRobot(null);
+        return getRobot(null, timeout, units);
     }
 
     @Override
     public Robot getRobot(String name, long timeout, TimeUnit units) throws AstrobeeException, InterruptedException, TimeoutException {
-        if (name != null && name.length() > 0)
-            throw new RuntimeException("Not implemented yet, sorry.");
+        return getConnection(name).await(Math.max(0, units.toNanos(timeout)));
+    }
 
-        m_lock.lock();
-        try {
-            while (!m_running && m_error == null)
-                if (!m_changed.await(timeout, units))
-                    throw new TimeoutException("Timed out waiting for Robot");
-            if (m_error != null)
-                throw new AstrobeeException(m_error);
-            return new DefaultRobot(m_nodeMain);
-        } finally {
-            m_lock.unlock();
-        }
+    @Override
+    public Future<Robot> getRobotAsync() {
+        return new RobotFuture(m_connection);
+    }
+
+    /**
+     * Same as {@link #getRobotAsync()}, for the named robot.
+     *
+     * @param name The name of the robot or {@code null} for "this" robot.
+     * @return A {@link Future} for that {@link Robot}.
+     */
+    public Future<Robot> getRobotAsync(final String name) {
+        return new RobotFuture(getConnection(name));
+    }
+
+    /**
+     * @return Counters for the command throttling configured through
+     * {@link RobotConfiguration}, for "this" robot.
+     */
+    public ThrottleStatistics getThrottleStatistics() {
+        return getThrottleStatistics(null);
+    }
+
+    /**
+     * Same as {@link #getThrottleStatistics()}, for the named robot.
+     *
+     * @param name The name of the robot or {@code null} for "this" robot.
+     * @throws IllegalArgumentException if that robot was never asked for.
+     */
+    public ThrottleStatistics getThrottleStatistics(final String name) {
+        return findConnection(name).getNodeMain().getThrottleStatistics();
+    }
+
+    /**
+     * @return State of the queue holding commands until the executive
+     * subscribes, for "this" robot.
+     */
+    public QueueStatistics getQueueStatistics() {
+        return getQueueStatistics(null);
+    }
+
+    /**
+     * Same as {@link #getQueueStatistics()}, for the named robot.
+     *
+     * @param name The name of the robot or {@code null} for "this" robot.
+     * @throws IllegalArgumentException if that robot was never asked for.
+     */
+    public QueueStatistics getQueueStatistics(final String name) {
+        return findConnection(name).getNodeMain().getQueueStatistics();
+    }
+
+    /**
+     * @return Command, ack and EKF metrics for this robot's connection.
+     */
+    public MetricsRegistry getMetrics() {
+        return getMetrics(null);
+    }
+
+    /**
+     * Same as {@link #getMetrics()}, for the named robot.
+     *
+     * @param name The name of the robot or {@code null} for "this" robot.
+     * @throws IllegalArgumentException if that robot was never asked for.
+     */
+    public MetricsRegistry getMetrics(final String name) {
+        return findConnection(name).getNodeMain().getMetrics();
     }
 
     @Override
@@ -0,0 +1,139 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+/**
+ * Sizing, naming and priorities of the threads behind the ROS node(s), set
+ * through {@link RobotConfiguration#setExecutorConfiguration(ExecutorConfiguration)}.
+ *
+ * The executor is shared by every robot in the process, so the pool
+ * settings only take effect when it is (re)created, i.e. for the first
+ * factory or after {@link NodeExecutorHolder#shutdownExecutor}.
+ */
+public class ExecutorConfiguration {
+    private String m_threadNamePrefix = "astrobee";
+    // rosjava runs a blocking loop per topic connection on this pool, so it
+    // can't have an upper bound; this is only how many threads stay warm.
+    private int m_callbackCoreThreads = 0;
+    // Same as rosjava's default
+    private int m_scheduledThreads = 11;
+    private int m_localThreads = 1;
+    private int m_poolPriority = Thread.NORM_PRIORITY;
+    private int m_ackPriority = Thread.NORM_PRIORITY;
+    private int m_ekfPriority = Thread.NORM_PRIORITY;
+
+    public ExecutorConfiguration setThreadNamePrefix(final String prefix) {
+        if (prefix == null || prefix.length() == 0)
+            throw new IllegalArgumentException("prefix must not be empty");
+        m_threadNamePrefix = prefix;
+        return this;
+    }
+
+    public String getThreadNamePrefix() {
+        return m_threadNamePrefix;
+    }
+
+    /**
+     * How many of the threads rosjava uses for message loops and other
+     * callbacks are kept alive while idle. The pool still grows as needed.
+     */
+    public ExecutorConfiguration setCallbackCoreThreads(int threads) {
+        if (threads < 0)
+            throw new IllegalArgumentException("threads must not be negative");
+        m_callbackCoreThreads = threads;
+        return this;
+    }
+
+    public int getCallbackCoreThreads() {
+        return m_callbackCoreThreads;
+    }
+
+    /**
+     * How many threads run rosjava's timed tasks (and our own, such as
+     * expiring unacked commands).
+     */
+    public ExecutorConfiguration setScheduledThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        m_scheduledThreads = threads;
+        return this;
+    }
+
+    public int getScheduledThreads() {
+        return m_scheduledThreads;
+    }
+
+    /**
+     * How many threads run node start up, shut down and reconnection.
+     */
+    public ExecutorConfiguration setLocalThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        m_localThreads = threads;
+        return this;
+    }
+
+    public int getLocalThreads() {
+        return m_localThreads;
+    }
+
+    /**
+     * Priority of every pool thread, see {@link Thread#setPriority(int)}.
+     */
+    public ExecutorConfiguration setPoolPriority(int priority) {
+        m_poolPriority = checkPriority(priority);
+        return this;
+    }
+
+    public int getPoolPriority() {
+        return m_poolPriority;
+    }
+
+    /**
+     * Priority of the thread delivering command acks. Raise it to keep
+     * {@link gov.nasa.arc.astrobee.PendingResult} latency down when the app
+     * is busy.
+     */
+    public ExecutorConfiguration setAckPriority(int priority) {
+        m_ackPriority = checkPriority(priority);
+        return this;
+    }
+
+    public int getAckPriority() {
+        return m_ackPriority;
+    }
+
+    /**
+     * Priority of the thread delivering EKF updates.
+     */
+    public ExecutorConfiguration setEkfPriority(int priority) {
+        m_ekfPriority = checkPriority(priority);
+        return this;
+    }
+
+    public int getEkfPriority() {
+        return m_ekfPriority;
+    }
+
+    private static int checkPriority(final int priority) {
+        if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY)
+            throw new IllegalArgumentException("priority must be between "
+                    + Thread.MIN_PRIORITY + " and " + Thread.MAX_PRIORITY);
+        return priority;
+    }
+}
@@ -0,0 +1,51 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load on one of the thread pools in {@link NodeExecutorHolder}. Latency is
+ * the time a task spent waiting for a thread after it was due.
+ */
+public interface ExecutorStatistics {
+
+    String getName();
+
+    /**
+     * @return Threads currently in the pool.
+     */
+    int getPoolSize();
+
+    /**
+     * @return Threads currently running a task.
+     */
+    int getActiveCount();
+
+    /**
+     * @return Tasks waiting for a thread, including scheduled tasks that
+     * aren't due yet.
+     */
+    int getQueueDepth();
+
+    long getCompletedTaskCount();
+
+    long getMeanLatency(TimeUnit units);
+
+    long getMaxLatency(TimeUnit units);
+}
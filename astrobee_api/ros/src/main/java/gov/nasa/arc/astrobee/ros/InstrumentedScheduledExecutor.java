@@ -0,0 +1,66 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ScheduledThreadPoolExecutor} that records how late each task
+ * starts. Immediate tasks are scheduled with no delay, so for them this is
+ * simply the time spent in the queue.
+ */
+final class InstrumentedScheduledExecutor extends ScheduledThreadPoolExecutor
+        implements ExecutorStatistics {
+    private final String m_name;
+    private final LatencyRecorder m_latency = new LatencyRecorder();
+
+    InstrumentedScheduledExecutor(final String name, int threads, final ThreadFactory factory) {
+        super(threads, factory);
+        m_name = name;
+    }
+
+    @Override
+    protected void beforeExecute(final Thread t, final Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof Delayed)
+            m_latency.record(Math.max(0, -((Delayed) r).getDelay(TimeUnit.NANOSECONDS)));
+    }
+
+    @Override
+    public String getName() {
+        return m_name;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    @Override
+    public long getMeanLatency(final TimeUnit units) {
+        return m_latency.getMean(units);
+    }
+
+    @Override
+    public long getMaxLatency(final TimeUnit units) {
+        return m_latency.getMax(units);
+    }
+}
@@ -0,0 +1,74 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An unbounded, cached pool like {@link java.util.concurrent.Executors#newCachedThreadPool()},
+ * recording how long each task waits to start. rosjava parks a long running
+ * loop on this pool per topic connection, so tasks are few and the wrapper
+ * per task is cheap.
+ */
+final class InstrumentedThreadPool extends ThreadPoolExecutor implements ExecutorStatistics {
+    private final String m_name;
+    private final LatencyRecorder m_latency = new LatencyRecorder();
+
+    InstrumentedThreadPool(final String name, int coreThreads, final ThreadFactory factory) {
+        super(coreThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), factory);
+        m_name = name;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        final long queued = System.nanoTime();
+        super.execute(new Runnable() {
+            @Override
+            public void run() {
+                m_latency.record(System.nanoTime() - queued);
+                command.run();
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return m_name;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    @Override
+    public long getMeanLatency(final TimeUnit units) {
+        return m_latency.getMean(units);
+    }
+
+    @Override
+    public long getMaxLatency(final TimeUnit units) {
+        return m_latency.getMax(units);
+    }
+}
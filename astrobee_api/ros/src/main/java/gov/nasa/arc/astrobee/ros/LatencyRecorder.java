@@ -0,0 +1,47 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running count, total and maximum of task latencies.
+ */
+final class LatencyRecorder {
+    private final AtomicLong m_count = new AtomicLong(0);
+    private final AtomicLong m_totalNanos = new AtomicLong(0);
+    private final AtomicLong m_maxNanos = new AtomicLong(0);
+
+    void record(final long nanos) {
+        m_count.incrementAndGet();
+        m_totalNanos.addAndGet(nanos);
+        long max = m_maxNanos.get();
+        while (nanos > max && !m_maxNanos.compareAndSet(max, nanos))
+            max = m_maxNanos.get();
+    }
+
+    long getMean(final TimeUnit units) {
+        final long count = m_count.get();
+        return count == 0 ? 0 : units.convert(m_totalNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    long getMax(final TimeUnit units) {
+        return units.convert(m_maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+}
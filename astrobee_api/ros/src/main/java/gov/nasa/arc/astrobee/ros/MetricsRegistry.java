@@ -0,0 +1,104 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named {@link Counter}s, {@link Histogram}s and {@link Gauge}s for one
+ * robot connection. Look metrics up once and keep the reference: the lookup
+ * goes through a map, using the metric doesn't.
+ */
+public final class MetricsRegistry {
+    private final ConcurrentHashMap<String, Counter> m_counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> m_histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> m_gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @return The counter with this name, created if needed.
+     */
+    public Counter counter(final String name) {
+        Counter c = m_counters.get(name);
+        if (c == null) {
+            final Counter fresh = new Counter();
+            c = m_counters.putIfAbsent(name, fresh);
+            if (c == null)
+                c = fresh;
+        }
+        return c;
+    }
+
+    /**
+     * @return The histogram with this name, created if needed.
+     */
+    public Histogram histogram(final String name) {
+        Histogram h = m_histograms.get(name);
+        if (h == null) {
+            final Histogram fresh = new Histogram();
+            h = m_histograms.putIfAbsent(name, fresh);
+            if (h == null)
+                h = fresh;
+        }
+        return h;
+    }
+
+    /**
+     * Register a gauge, replacing any other one with the same name.
+     */
+    public void gauge(final String name, final Gauge gauge) {
+        m_gauges.put(name, gauge);
+    }
+
+    public SortedMap<String, Counter> getCounters() {
+        return Collections.unmodifiableSortedMap(new TreeMap<String, Counter>(m_counters));
+    }
+
+    public SortedMap<String, Histogram> getHistograms() {
+        return Collections.unmodifiableSortedMap(new TreeMap<String, Histogram>(m_histograms));
+    }
+
+    public SortedMap<String, Gauge> getGauges() {
+        return Collections.unmodifiableSortedMap(new TreeMap<String, Gauge>(m_gauges));
+    }
+
+    /**
+     * Every metric flattened to name/value pairs, histograms as
+     * {@code name.count}, {@code .mean}, {@code .p50}, {@code .p99} and
+     * {@code .max}.
+     */
+    public SortedMap<String, Long> snapshot() {
+        final TreeMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> e : m_counters.entrySet())
+            values.put(e.getKey(), e.getValue().get());
+        for (Map.Entry<String, Gauge> e : m_gauges.entrySet())
+            values.put(e.getKey(), e.getValue().getValue());
+        for (Map.Entry<String, Histogram> e : m_histograms.entrySet()) {
+            final Histogram h = e.getValue();
+            values.put(e.getKey() + ".count", h.getCount());
+            values.put(e.getKey() + ".mean", h.getMean());
+            values.put(e.getKey() + ".p50", h.getValueAtPercentile(50));
+            values.put(e.getKey() + ".p99", h.getValueAtPercentile(99));
+            values.put(e.getKey() + ".max", h.getMax());
+        }
+        return values;
+    }
+}
@@ -20,13 +20,16 @@ package gov.nasa.arc.astrobee.ros;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.ros.concurrent.DefaultScheduledExecutorService;
 import org.ros.node.DefaultNodeMainExecutor;
 import org.ros.node.NodeMainExecutor;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class NodeExecutorHolder {
     private static final Log logger = LogFactory.getLog(NodeExecutorHolder.class);
@@ -34,57 +37,111 @@ public final class NodeExecutorHolder {
     static final class NamedThreadFactory implements ThreadFactory {
         private final ThreadGroup m_group;
         private final String m_name;
-        private boolean m_daemon;
+        private final AtomicInteger m_count = new AtomicInteger(0);
+        private final boolean m_daemon;
+        private final int m_priority;
 
         NamedThreadFactory(final String name, boolean daemon) {
+            this(name, daemon, Thread.NORM_PRIORITY);
+        }
+
+        NamedThreadFactory(final String name, boolean daemon, int priority) {
             SecurityManager s = System.getSecurityManager();
             m_group = (s != null) ? s.getThreadGroup() :
                     Thread.currentThread().getThreadGroup();
             m_name = name;
             m_daemon = daemon;
+            m_priority = priority;
         }
 
         @Override
         public Thread newThread(final Runnable r) {
-            final Thread t = new Thread(m_group, r, m_name, 0);
+            final Thread t = new Thread(m_group, r, m_name + "-" + m_count.incrementAndGet(), 0);
             t.setDaemon(m_daemon);
-            if (t.getPriority() != Thread.NORM_PRIORITY)
-                t.setPriority(Thread.NORM_PRIORITY);
+            if (t.getPriority() != m_priority)
+                t.setPriority(m_priority);
             return t;
         }
     };
 
+    private static ExecutorConfiguration s_configuration = new ExecutorConfiguration();
     private static NodeMainExecutor s_executor = null;
-    private static ExecutorService s_local = null;
+    private static InstrumentedThreadPool s_callbacks = null;
+    private static InstrumentedScheduledExecutor s_scheduled = null;
+    private static InstrumentedScheduledExecutor s_local = null;
+
+    /**
+     * Set how the executors are built the next time they are created.
+     *
+     * @return {@code false} if they already exist and are left as they are.
+     */
+    public static synchronized boolean configure(final ExecutorConfiguration configuration) {
+        s_configuration = configuration;
+        return s_executor == null && s_local == null;
+    }
+
+    public static synchronized NodeMainExecutor getExecutor() {
+        final ExecutorConfiguration c = s_configuration;
+        final String prefix = c.getThreadNamePrefix();
 
-    public static NodeMainExecutor getExecutor() {
         if (s_local == null) {
-            s_local = Executors.newSingleThreadExecutor(new NamedThreadFactory("NodeMain Local", true));
+            s_local = new InstrumentedScheduledExecutor("NodeMain Local", c.getLocalThreads(),
+                    new NamedThreadFactory(prefix + " NodeMain Local", true, c.getPoolPriority()));
         }
 
-        if (s_executor == null)
-            s_executor = DefaultNodeMainExecutor.newDefault();
+        if (s_executor == null) {
+            s_callbacks = new InstrumentedThreadPool("ROS callbacks", c.getCallbackCoreThreads(),
+                    new NamedThreadFactory(prefix + " ROS", false, c.getPoolPriority()));
+            s_scheduled = new InstrumentedScheduledExecutor("ROS scheduled", c.getScheduledThreads(),
+                    new NamedThreadFactory(prefix + " ROS scheduled", false, c.getPoolPriority()));
+            s_executor = DefaultNodeMainExecutor.newDefault(
+                    new DefaultScheduledExecutorService(s_callbacks, s_scheduled));
+        }
         return s_executor;
     }
 
     // TODO(Katie/Ted) Remove public when we merge Robbie's branch into master
-    public static ExecutorService getLocalExecutor() {
+    public static synchronized ScheduledExecutorService getLocalExecutor() {
         return s_local;
     }
 
+    /**
+     * @return Load statistics for every executor that currently exists.
+     */
+    public static synchronized List<ExecutorStatistics> getStatistics() {
+        final List<ExecutorStatistics> stats = new ArrayList<>(3);
+        if (s_callbacks != null)
+            stats.add(s_callbacks);
+        if (s_scheduled != null)
+            stats.add(s_scheduled);
+        if (s_local != null)
+            stats.add(s_local);
+        return stats;
+    }
+
     // TODO(Katie/Ted) Remove public when we merge Robbie's branch into master
     public static void shutdownExecutor(long time, TimeUnit units) {
-        if (s_executor == null)
+        final NodeMainExecutor executor;
+        synchronized (NodeExecutorHolder.class) {
+            executor = s_executor;
+        }
+        if (executor == null)
             return;
         logger.info("Attempting to shutdown ROS executor service.");
-        s_executor.getScheduledExecutorService().shutdown();
+        executor.getScheduledExecutorService().shutdown();
         try {
             logger.info("Waiting " + time + " " + units + " for termination");
-            if (!s_executor.getScheduledExecutorService().awaitTermination(time, units)) {
+            if (!executor.getScheduledExecutorService().awaitTermination(time, units)) {
                 logger.warn("ROS did not shut down in a timely manner, forcing shut down.");
-                s_executor.getScheduledExecutorService().shutdownNow();
+                executor.getScheduledExecutorService().shutdownNow();
             }
         } catch (InterruptedException e) { }
-        s_executor = null;
+        synchronized (NodeExecutorHolder.class) {
+            if (s_executor == executor) {
+                s_executor = null;
+                s_callbacks = null;
+                s_scheduled = null;
+            }
+        }
     }
 }
@@ -0,0 +1,40 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+/**
+ * State of the queue that holds commands until the executive subscribes,
+ * see {@link RobotConfiguration#setCommandQueueCapacity(int)}.
+ */
+public interface QueueStatistics {
+
+    /**
+     * @return How many commands are waiting right now.
+     */
+    int getQueueDepth();
+
+    /**
+     * @return The most commands that have ever been waiting at once.
+     */
+    int getQueueHighWaterMark();
+
+    /**
+     * @return How many commands were dropped because the queue was full.
+     */
+    long getQueueOverflows();
+}
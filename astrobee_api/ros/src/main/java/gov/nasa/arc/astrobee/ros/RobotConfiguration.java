@@ -29,11 +29,26 @@ import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class RobotConfiguration {
+    /**
+     * What to do when a command is published while the queue of commands
+     * waiting for the executive is full.
+     */
+    public enum OverflowPolicy {
+        /** Drop the oldest queued command to make room. */
+        DROP_OLDEST,
+        /** Refuse the new command. */
+        REJECT_NEW
+    }
+
     private URI m_masterUri = null;
     private String m_host = null;
     private String m_nodeName = null;
@@ -42,6 +57,31 @@ public class RobotConfiguration {
     private int m_tcpPort = 0;
     private int m_rpcPort = 0;
 
+    // Commands that hear nothing from the executive for this long are failed
+    private long m_commandTimeoutNanos = TimeUnit.MINUTES.toNanos(15);
+
+    // EKF samples kept for Robot.getKinematicsAt(), about 4s at 62.5Hz
+    private int m_kinematicsHistorySize = 256;
+
+    // Delay before restarting a node that died, doubling up to the maximum
+    private long m_reconnectDelayNanos = TimeUnit.SECONDS.toNanos(1);
+    private long m_reconnectMaxDelayNanos = TimeUnit.SECONDS.toNanos(30);
+
+    // How often metrics go out on the diagnostics topic, zero for never
+    private long m_diagnosticsPeriodNanos = TimeUnit.SECONDS.toNanos(5);
+
+    // Null leaves the shared executor configuration alone
+    private ExecutorConfiguration m_executorConfiguration = null;
+
+    // Commands held until the executive subscribes. Safety commands don't count.
+    private int m_commandQueueCapacity = 64;
+    private OverflowPolicy m_overflowPolicy = OverflowPolicy.REJECT_NEW;
+
+    // Optional throttling, keyed by command name
+    private final Set<String> m_coalesced = new HashSet<>();
+    private final Map<String, Double> m_rateLimits = new HashMap<>();
+    private final Map<String, Integer> m_rateBursts = new HashMap<>();
+
     private final Map<String, String> m_environment;
     private final Map<GraphName, GraphName> m_remappings;
 
@@ -55,18 +95,33 @@ public class RobotConfiguration {
     }
 
     public NodeConfiguration build() {
+        return build(null);
+    }
+
+    /**
+     * Build the configuration for a robot living under its own namespace,
+     * e.g. {@code /bumble}, so several robots can be driven from one
+     * process. Every such node gets ephemeral ports, since they can't share
+     * the ones configured here.
+     *
+     * @param robotNamespace Namespace of the robot, relative to
+     *                       {@code ROS_NAMESPACE}, or {@code null} for the
+     *                       local robot.
+     */
+    public NodeConfiguration build(final String robotNamespace) {
+        final boolean remote = robotNamespace != null && robotNamespace.length() > 0;
         final NodeConfiguration config = NodeConfiguration.newPublic(getHost());
         config.setMasterUri(getMasterUri());
-        config.setParentResolver(buildParentResolver());
+        config.setParentResolver(buildParentResolver(remote ? robotNamespace : null));
         config.setRosRoot(null);
         config.setRosPackagePath(getRosPackagePath());
         if (m_nodeName != null) {
             config.setNodeName(m_nodeName);
         }
-        if (m_tcpPort > 0) {
+        if (m_tcpPort > 0 && !remote) {
             config.setTcpRosBindAddress(BindAddress.newPublic(m_tcpPort));
         }
-        if (m_rpcPort > 0) {
+        if (m_rpcPort > 0 && !remote) {
             config.setXmlRpcBindAddress(BindAddress.newPublic(m_rpcPort));
         }
         return config;
@@ -103,11 +158,14 @@ public class RobotConfiguration {
         }
     }
 
-    private NameResolver buildParentResolver() {
+    private NameResolver buildParentResolver(final String robotNamespace) {
         GraphName namespace = GraphName.root();
         if (m_environment.containsKey(org.ros.EnvironmentVariables.ROS_NAMESPACE)) {
             namespace = GraphName.of(m_environment.get(org.ros.EnvironmentVariables.ROS_NAMESPACE)).toGlobal();
         }
+        if (robotNamespace != null) {
+            namespace = namespace.join(GraphName.of(robotNamespace).toRelative());
+        }
         return new NameResolver(namespace, m_remappings);
     }
 
@@ -166,4 +224,183 @@ public class RobotConfiguration {
         m_nodeName = name;
         return this;
     }
+
+    /**
+     * How long a command may go without an ack before its
+     * {@link gov.nasa.arc.astrobee.PendingResult} is failed and forgotten.
+     * A timeout of zero keeps commands around until they complete.
+     */
+    public RobotConfiguration setCommandTimeout(long timeout, TimeUnit units) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("timeout must not be negative");
+        m_commandTimeoutNanos = units.toNanos(timeout);
+        return this;
+    }
+
+    public long getCommandTimeout(TimeUnit units) {
+        return units.convert(m_commandTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * How many EKF samples to keep for
+     * {@link gov.nasa.arc.astrobee.Robot#getKinematicsAt(long, gov.nasa.arc.astrobee.KinematicsSnapshot)}.
+     * Rounded up to a power of two.
+     */
+    public RobotConfiguration setKinematicsHistorySize(int samples) {
+        if (samples < 2 || samples > (1 << 20))
+            throw new IllegalArgumentException("samples must be between 2 and 2^20");
+        m_kinematicsHistorySize = Integer.highestOneBit(samples - 1) << 1;
+        return this;
+    }
+
+    public int getKinematicsHistorySize() {
+        return m_kinematicsHistorySize;
+    }
+
+    /**
+     * Keep at most one command of this name in flight per set of string and
+     * enum arguments (so {@code setFlashlightBrightness} for the front and
+     * back lights are tracked separately). A newer command waits for the
+     * one in flight to complete and replaces any command already waiting,
+     * which then completes as {@link gov.nasa.arc.astrobee.Result.Status#CANCELED}.
+     * Applies to the steps of a {@link gov.nasa.arc.astrobee.CommandBatch}
+     * too. Off by default for every command.
+     */
+    public RobotConfiguration setCoalescing(final String commandName, boolean enabled) {
+        if (enabled)
+            m_coalesced.add(commandName);
+        else
+            m_coalesced.remove(commandName);
+        return this;
+    }
+
+    public boolean isCoalescing(final String commandName) {
+        return m_coalesced.contains(commandName);
+    }
+
+    /**
+     * Limit how often a command may be sent, using a token bucket that
+     * refills at {@code perSecond} and holds up to {@code burst} commands.
+     * Commands over the limit complete right away as
+     * {@link gov.nasa.arc.astrobee.Result.Status#CANCELED}, including the
+     * steps of a {@link gov.nasa.arc.astrobee.CommandBatch}, which then
+     * fails. A rate of zero removes the limit.
+     */
+    public RobotConfiguration setCommandRateLimit(final String commandName, double perSecond, int burst) {
+        if (perSecond < 0 || Double.isNaN(perSecond))
+            throw new IllegalArgumentException("perSecond must not be negative");
+        if (burst < 1)
+            throw new IllegalArgumentException("burst must be at least 1");
+        if (perSecond == 0) {
+            m_rateLimits.remove(commandName);
+            m_rateBursts.remove(commandName);
+        } else {
+            m_rateLimits.put(commandName, perSecond);
+            m_rateBursts.put(commandName, burst);
+        }
+        return this;
+    }
+
+    public Set<String> getRateLimitedCommands() {
+        return Collections.unmodifiableSet(m_rateLimits.keySet());
+    }
+
+    public double getCommandRateLimit(final String commandName) {
+        final Double rate = m_rateLimits.get(commandName);
+        return rate == null ? 0 : rate;
+    }
+
+    public int getCommandRateBurst(final String commandName) {
+        final Integer burst = m_rateBursts.get(commandName);
+        return burst == null ? 0 : burst;
+    }
+
+    public Set<String> getCoalescedCommands() {
+        return Collections.unmodifiableSet(m_coalesced);
+    }
+
+    /**
+     * How many commands may wait for the executive to subscribe before the
+     * {@link OverflowPolicy} kicks in. Dropped or refused commands complete
+     * as {@link gov.nasa.arc.astrobee.Result.Status#CANCELED}. Safety
+     * commands ({@code stopAllMotion}, {@code fault} and
+     * {@code idlePropulsion}) skip ahead of the queue and are never dropped.
+     */
+    public RobotConfiguration setCommandQueueCapacity(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        m_commandQueueCapacity = capacity;
+        return this;
+    }
+
+    public int getCommandQueueCapacity() {
+        return m_commandQueueCapacity;
+    }
+
+    public RobotConfiguration setCommandQueueOverflowPolicy(final OverflowPolicy policy) {
+        if (policy == null)
+            throw new NullPointerException("policy may not be null");
+        m_overflowPolicy = policy;
+        return this;
+    }
+
+    public OverflowPolicy getCommandQueueOverflowPolicy() {
+        return m_overflowPolicy;
+    }
+
+    /**
+     * When the ROS node fails, restart it in the background after
+     * {@code delay}, doubling the delay after each failed attempt up to
+     * {@code maxDelay}. While reconnecting, callers of
+     * {@link gov.nasa.arc.astrobee.RobotFactory#getRobot()} keep waiting
+     * instead of getting an exception. A delay of zero turns reconnection off.
+     */
+    public RobotConfiguration setReconnectDelay(long delay, long maxDelay, TimeUnit units) {
+        if (delay < 0 || maxDelay < delay)
+            throw new IllegalArgumentException("delays must satisfy 0 <= delay <= maxDelay");
+        m_reconnectDelayNanos = units.toNanos(delay);
+        m_reconnectMaxDelayNanos = units.toNanos(maxDelay);
+        return this;
+    }
+
+    public long getReconnectDelay(TimeUnit units) {
+        return units.convert(m_reconnectDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getReconnectMaxDelay(TimeUnit units) {
+        return units.convert(m_reconnectMaxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * How often to publish the connection's {@link MetricsRegistry} as a
+     * {@code diagnostic_msgs/DiagnosticArray} on the node's
+     * {@code diagnostics} topic. Zero turns publishing off; the metrics are
+     * still available from {@link DefaultRobotFactory#getMetrics()}.
+     */
+    public RobotConfiguration setDiagnosticsPeriod(long period, TimeUnit units) {
+        if (period < 0)
+            throw new IllegalArgumentException("period must not be negative");
+        m_diagnosticsPeriodNanos = units.toNanos(period);
+        return this;
+    }
+
+    public long getDiagnosticsPeriod(TimeUnit units) {
+        return units.convert(m_diagnosticsPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Thread pool sizes, names and priorities, see {@link ExecutorConfiguration}.
+     */
+    public RobotConfiguration setExecutorConfiguration(final ExecutorConfiguration configuration) {
+        m_executorConfiguration = configuration;
+        return this;
+    }
+
+    /**
+     * @return The {@link ExecutorConfiguration}, or {@code null} if none was
+     * set.
+     */
+    public ExecutorConfiguration getExecutorConfiguration() {
+        return m_executorConfiguration;
+    }
 }
@@ -0,0 +1,37 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros;
+
+/**
+ * Counters kept by the optional command throttling set up through
+ * {@link RobotConfiguration#setCommandRateLimit(String, double, int)} and
+ * {@link RobotConfiguration#setCoalescing(String, boolean)}.
+ */
+public interface ThrottleStatistics {
+
+    /**
+     * @return How many commands were refused by a rate limit.
+     */
+    long getDroppedCommands();
+
+    /**
+     * @return How many commands were canceled because a newer command of the
+     * same kind replaced them before they were sent.
+     */
+    long getMergedCommands();
+}
@@ -0,0 +1,67 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+/**
+ * Names and prioritizes whichever rosjava thread ends up delivering a given
+ * subscription's messages. rosjava picks that thread from its pool, so this
+ * is done on the first callback (and again should the thread change), and
+ * undone when the node shuts down so the pool gets its thread back as it was.
+ */
+final class CallbackThread {
+    private final String m_name;
+    private final int m_priority;
+
+    private volatile Thread m_thread = null;
+    // Guarded by this
+    private String m_oldName = null;
+    private int m_oldPriority = Thread.NORM_PRIORITY;
+
+    CallbackThread(final String name, final int priority) {
+        m_name = name;
+        m_priority = priority;
+    }
+
+    /**
+     * Call at the top of every callback. Only does work the first time.
+     */
+    void enter() {
+        final Thread t = Thread.currentThread();
+        if (t != m_thread)
+            adopt(t);
+    }
+
+    synchronized void restore() {
+        final Thread t = m_thread;
+        if (t == null)
+            return;
+        t.setName(m_oldName);
+        t.setPriority(m_oldPriority);
+        m_thread = null;
+    }
+
+    private synchronized void adopt(final Thread t) {
+        restore();
+        m_oldName = t.getName();
+        m_oldPriority = t.getPriority();
+        t.setName(m_name);
+        if (t.getPriority() != m_priority)
+            t.setPriority(m_priority);
+        m_thread = t;
+    }
+}
@@ -0,0 +1,43 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out command ids that are unique within this process (a counter) and
+ * very likely unique across restarts (a random per-session prefix), without
+ * going through SecureRandom for every command like UUID.randomUUID() does.
+ */
+final class CommandIdGenerator {
+    private final String m_prefix;
+    private final AtomicLong m_next = new AtomicLong(0);
+
+    CommandIdGenerator() {
+        this(Long.toString(new Random().nextLong() & 0xFFFFFFFFFFFFL, 36));
+    }
+
+    CommandIdGenerator(final String session) {
+        m_prefix = "gs-" + session + "-";
+    }
+
+    String next() {
+        return m_prefix + Long.toString(m_next.getAndIncrement(), 36);
+    }
+}
@@ -0,0 +1,149 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import gov.nasa.arc.astrobee.ros.QueueStatistics;
+import gov.nasa.arc.astrobee.ros.RobotConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Commands waiting for the executive to subscribe. Safety commands go in a
+ * lane of their own that is always sent first; everything else keeps its
+ * order. The normal lane is bounded and handles overflow according to
+ * {@link RobotConfiguration.OverflowPolicy}. Safety commands are never
+ * refused or dropped.
+ *
+ * Not thread-safe, the owner locks around it. The statistics may be read
+ * from any thread.
+ */
+final class CommandQueue implements QueueStatistics {
+    static final Set<String> SAFETY_COMMANDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("stopAllMotion", "fault", "idlePropulsion")));
+
+    private final int m_capacity;
+    private final RobotConfiguration.OverflowPolicy m_policy;
+
+    private final ArrayDeque<DefaultPendingResult> m_safety = new ArrayDeque<>();
+    private final ArrayDeque<DefaultPendingResult> m_normal = new ArrayDeque<>();
+
+    private volatile int m_depth = 0;
+    private volatile int m_highWater = 0;
+    private volatile long m_overflows = 0;
+
+    CommandQueue(final int capacity, final RobotConfiguration.OverflowPolicy policy) {
+        m_capacity = capacity;
+        m_policy = policy;
+    }
+
+    /**
+     * Add a command.
+     *
+     * @return The command that didn't fit, either {@code pr} itself or the
+     * oldest command it pushed out, or {@code null} if nothing overflowed.
+     */
+    DefaultPendingResult offer(final DefaultPendingResult pr) {
+        DefaultPendingResult overflow = null;
+        if (SAFETY_COMMANDS.contains(pr.getCommand().getCmdName())) {
+            m_safety.add(pr);
+        } else if (m_normal.size() < m_capacity) {
+            m_normal.add(pr);
+        } else if (m_policy == RobotConfiguration.OverflowPolicy.DROP_OLDEST) {
+            overflow = m_normal.poll();
+            m_normal.add(pr);
+        } else {
+            overflow = pr;
+        }
+
+        if (overflow != null)
+            m_overflows++;
+        updateDepth();
+        return overflow;
+    }
+
+    /**
+     * Remove a specific command, if it is still queued.
+     */
+    boolean remove(final DefaultPendingResult pr) {
+        if (removeFrom(m_safety, pr) || removeFrom(m_normal, pr)) {
+            updateDepth();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move everything into {@code out}, safety commands first.
+     */
+    void drainTo(final List<DefaultPendingResult> out) {
+        out.addAll(m_safety);
+        out.addAll(m_normal);
+        m_safety.clear();
+        m_normal.clear();
+        updateDepth();
+    }
+
+    void clear() {
+        m_safety.clear();
+        m_normal.clear();
+        updateDepth();
+    }
+
+    boolean isEmpty() {
+        return m_safety.isEmpty() && m_normal.isEmpty();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return m_depth;
+    }
+
+    @Override
+    public int getQueueHighWaterMark() {
+        return m_highWater;
+    }
+
+    @Override
+    public long getQueueOverflows() {
+        return m_overflows;
+    }
+
+    private void updateDepth() {
+        final int depth = m_safety.size() + m_normal.size();
+        m_depth = depth;
+        if (depth > m_highWater)
+            m_highWater = depth;
+    }
+
+    private static boolean removeFrom(final ArrayDeque<DefaultPendingResult> lane,
+                                      final DefaultPendingResult pr) {
+        for (Iterator<DefaultPendingResult> it = lane.iterator(); it.hasNext(); ) {
+            if (it.next() == pr) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+}
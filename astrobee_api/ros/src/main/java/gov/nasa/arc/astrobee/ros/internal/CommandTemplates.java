@@ -0,0 +1,130 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import ff_msgs.CommandArg;
+import ff_msgs.CommandStamped;
+import org.ros.message.MessageFactory;
+import std_msgs.Header;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-built {@link CommandStamped} messages, one small pool per command name
+ * and argument signature, so building a command only fills in values.
+ *
+ * Messages go back into the pool once the executive has acked them as
+ * completed: by then rosjava has long since serialized them. Commands that
+ * never complete are simply left to the garbage collector.
+ */
+final class CommandTemplates {
+    // Pooled messages kept per template
+    private static final int POOL_SIZE = 16;
+
+    private final MessageFactory m_factory;
+    private final CommandIdGenerator m_ids = new CommandIdGenerator();
+    private final ConcurrentHashMap<String, Template> m_templates = new ConcurrentHashMap<>();
+
+    CommandTemplates(final MessageFactory factory) {
+        m_factory = factory;
+    }
+
+    String nextId() {
+        return m_ids.next();
+    }
+
+    /**
+     * Get a message for the named command whose arguments already have the
+     * given data types, from the pool if possible.
+     */
+    CommandStamped acquire(final String name, final byte[] types, final int count) {
+        Template t = m_templates.get(name);
+        if (t == null) {
+            t = new Template(Arrays.copyOf(types, count));
+            final Template prev = m_templates.putIfAbsent(name, t);
+            if (prev != null)
+                t = prev;
+        }
+
+        if (!t.matches(types, count))
+            return create(types, count);
+
+        final CommandStamped cmd = t.pool.poll();
+        return cmd != null ? cmd : create(types, count);
+    }
+
+    /**
+     * Return a completed command to its pool. The caller must not touch it
+     * again.
+     */
+    void release(final CommandStamped cmd) {
+        final Template t = m_templates.get(cmd.getCmdName());
+        if (t == null || !t.matches(cmd.getArgs()))
+            return;
+        t.pool.offer(cmd);
+    }
+
+    private CommandStamped create(final byte[] types, final int count) {
+        final CommandStamped cmd = m_factory.newFromType(CommandStamped._TYPE);
+        cmd.setHeader((Header) m_factory.newFromType(Header._TYPE));
+        cmd.setCmdOrigin("guest_science");
+
+        final List<CommandArg> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final CommandArg arg = m_factory.newFromType(CommandArg._TYPE);
+            arg.setDataType(types[i]);
+            args.add(arg);
+        }
+        cmd.setArgs(args);
+        return cmd;
+    }
+
+    private static final class Template {
+        final byte[] types;
+        final BlockingQueue<CommandStamped> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+        Template(final byte[] types) {
+            this.types = types;
+        }
+
+        boolean matches(final byte[] other, final int count) {
+            if (count != types.length)
+                return false;
+            for (int i = 0; i < count; i++) {
+                if (other[i] != types[i])
+                    return false;
+            }
+            return true;
+        }
+
+        boolean matches(final List<CommandArg> args) {
+            if (args.size() != types.length)
+                return false;
+            for (int i = 0; i < types.length; i++) {
+                if (args.get(i).getDataType() != types[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import ff_msgs.CommandArg;
+import ff_msgs.CommandStamped;
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.PendingResult;
+import gov.nasa.arc.astrobee.Result;
+import gov.nasa.arc.astrobee.ros.RobotConfiguration;
+import gov.nasa.arc.astrobee.ros.ThrottleStatistics;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limiting and coalescing of commands on their way out of
+ * {@link RobotNodeMain}. Both are opt-in per command name, see
+ * {@link RobotConfiguration#setCommandRateLimit(String, double, int)} and
+ * {@link RobotConfiguration#setCoalescing(String, boolean)}.
+ *
+ * A coalesced command has at most one "active" command per key (name plus
+ * string arguments), which is either sitting in the pre-subscriber queue or
+ * waiting for the executive to complete it, and at most one "waiting"
+ * command behind it. The newest command always wins.
+ */
+final class CommandThrottle implements ThrottleStatistics {
+    private final RobotNodeMain m_node;
+    private final Map<String, TokenBucket> m_buckets = new HashMap<>();
+    private final Set<String> m_coalesced;
+
+    // Guarded by itself
+    private final Map<String, Slot> m_slots = new HashMap<>();
+
+    private final AtomicLong m_dropped = new AtomicLong(0);
+    private final AtomicLong m_merged = new AtomicLong(0);
+
+    CommandThrottle(final RobotNodeMain node, final RobotConfiguration configuration) {
+        m_node = node;
+        m_coalesced = new HashSet<>(configuration.getCoalescedCommands());
+        for (String name : configuration.getRateLimitedCommands()) {
+            m_buckets.put(name, new TokenBucket(
+                    configuration.getCommandRateLimit(name),
+                    configuration.getCommandRateBurst(name)));
+        }
+    }
+
+    @Override
+    public long getDroppedCommands() {
+        return m_dropped.get();
+    }
+
+    @Override
+    public long getMergedCommands() {
+        return m_merged.get();
+    }
+
+    boolean isEnabled() {
+        return !m_buckets.isEmpty() || !m_coalesced.isEmpty();
+    }
+
+    /**
+     * Decide what to do with a freshly built command.
+     *
+     * @return {@code true} if the caller should send it now. Otherwise it has
+     * either been canceled or parked until the one ahead of it completes.
+     */
+    boolean admit(final DefaultPendingResult pr) {
+        final CommandStamped cmd = pr.getCommand();
+        final String name = cmd.getCmdName();
+
+        final TokenBucket bucket = m_buckets.get(name);
+        if (bucket != null && !bucket.tryTake(System.nanoTime())) {
+            m_dropped.incrementAndGet();
+            pr.cancel("Dropped by the rate limit for " + name);
+            m_node.recycle(cmd);
+            return false;
+        }
+
+        if (!m_coalesced.contains(name))
+            return true;
+
+        final String key = key(cmd);
+        final boolean sendNow;
+        DefaultPendingResult superseded = null;
+        synchronized (m_slots) {
+            Slot slot = m_slots.get(key);
+            if (slot == null) {
+                slot = new Slot();
+                m_slots.put(key, slot);
+            }
+
+            if (slot.active == null) {
+                slot.active = pr;
+                sendNow = true;
+            } else if (slot.active.getStatus() == PendingResult.Status.QUEUED
+                    && m_node.unqueue(slot.active)) {
+                // Never made it out, take its place in the queue
+                superseded = slot.active;
+                slot.active = pr;
+                sendNow = true;
+            } else {
+                superseded = slot.waiting;
+                slot.waiting = pr;
+                sendNow = false;
+            }
+        }
+
+        if (superseded != null) {
+            m_merged.incrementAndGet();
+            superseded.cancel("Superseded by a newer " + name);
+            m_node.recycle(superseded.getCommand());
+        }
+
+        if (sendNow) {
+            pr.whenComplete(new Advance(key));
+        } else {
+            pr.setStatus(PendingResult.Status.QUEUED);
+        }
+        return sendNow;
+    }
+
+    // Moves the waiting command (if any) up once the active one is done
+    private final class Advance implements PendingResult.CompletionListener {
+        private final String m_key;
+
+        Advance(final String key) {
+            m_key = key;
+        }
+
+        @Override
+        public void onComplete(final PendingResult pending,
+                               final Result result,
+                               final AstrobeeException exception) {
+            final DefaultPendingResult next;
+            synchronized (m_slots) {
+                final Slot slot = m_slots.get(m_key);
+                if (slot == null || slot.active != pending)
+                    return;
+                next = slot.waiting;
+                slot.waiting = null;
+                slot.active = next;
+                if (next == null)
+                    m_slots.remove(m_key);
+            }
+
+            if (next == null)
+                return;
+
+            next.whenComplete(this);
+            try {
+                m_node.send(next);
+            } catch (RuntimeException e) {
+                next.fail(e);
+            }
+        }
+    }
+
+    private static String key(final CommandStamped cmd) {
+        final List<CommandArg> args = cmd.getArgs();
+        StringBuilder sb = null;
+        for (int i = 0; i < args.size(); i++) {
+            final CommandArg arg = args.get(i);
+            if (arg.getDataType() != CommandArg.DATA_TYPE_STRING)
+                continue;
+            if (sb == null)
+                sb = new StringBuilder(cmd.getCmdName());
+            sb.append('\0').append(arg.getS());
+        }
+        return sb == null ? cmd.getCmdName() : sb.toString();
+    }
+
+    private static final class Slot {
+        DefaultPendingResult active = null;
+        DefaultPendingResult waiting = null;
+    }
+
+    private static final class TokenBucket {
+        private final double m_tokensPerNano;
+        private final double m_capacity;
+        private double m_tokens;
+        private long m_last;
+
+        TokenBucket(final double perSecond, final int burst) {
+            m_tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+            m_capacity = burst;
+            m_tokens = burst;
+            m_last = System.nanoTime();
+        }
+
+        synchronized boolean tryTake(final long now) {
+            m_tokens = Math.min(m_capacity, m_tokens + (now - m_last) * m_tokensPerNano);
+            m_last = now;
+            if (m_tokens < 1)
+                return false;
+            m_tokens -= 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.AstrobeeRuntimeException;
+import gov.nasa.arc.astrobee.BatchResult;
+import gov.nasa.arc.astrobee.PendingResult;
+import gov.nasa.arc.astrobee.Result;
+import gov.nasa.arc.astrobee.internal.AbstractCommandBatch;
+import gov.nasa.arc.astrobee.internal.BatchPendingResult;
+import gov.nasa.arc.astrobee.internal.CommandBuilder;
+import gov.nasa.arc.astrobee.internal.Publishable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds every command of the batch against a single set of
+ * {@link CommandTemplates} and hands them to
+ * {@link RobotNodeMain#publishAll(List)} a group at a time.
+ *
+ * The executive only runs one motion command at a time, so each motion
+ * command is a group of its own and the commands in between are grouped
+ * together. A group is sent from the completion of the one before it, on the
+ * ack thread, like the moves of a
+ * {@link gov.nasa.arc.astrobee.internal.TrajectoryPendingResult}. Once a step
+ * fails, the steps that haven't been sent yet are canceled.
+ */
+final class DefaultCommandBatch extends AbstractCommandBatch {
+    private static final Set<String> MOTION_COMMANDS = new HashSet<>(Arrays.asList(
+            "autoReturn", "dock", "idlePropulsion", "perch", "simpleMove6DOF",
+            "undock", "unperch"));
+
+    private final RobotNodeMain m_nodeMain;
+    private final CommandTemplates m_templates;
+    private final List<DefaultPendingResult> m_steps = new ArrayList<>();
+    private boolean m_submitted = false;
+
+    // Guarded by this once submitted: the first step not sent yet, and
+    // whether a step has failed
+    private int m_next = 0;
+    private boolean m_stopped = false;
+
+    DefaultCommandBatch(final RobotNodeMain nodeMain) {
+        m_nodeMain = nodeMain;
+        m_templates = nodeMain.getCommandTemplates();
+    }
+
+    @Override
+    protected CommandBuilder makeCommandBuilder() {
+        checkOpen();
+        return new DefaultCommandBuilder(m_templates);
+    }
+
+    @Override
+    protected PendingResult publish(Publishable cmd) {
+        final DefaultPendingResult pr = new DefaultPendingResult(
+                ((CommandHolder) cmd).getCommand(), PendingResult.Status.QUEUED,
+                m_nodeMain.getNodeMetrics());
+        m_steps.add(pr);
+        return pr;
+    }
+
+    @Override
+    public int size() {
+        return m_steps.size();
+    }
+
+    @Override
+    public BatchResult submit() {
+        checkOpen();
+        m_submitted = true;
+
+        final BatchPendingResult result = new BatchPendingResult(m_steps).attach();
+        final List<DefaultPendingResult> group = nextGroup();
+        if (group.isEmpty())
+            return result;
+        try {
+            m_nodeMain.publishAll(group);
+        } catch (RuntimeException e) {
+            // Nothing was sent, failing the first group cancels the rest
+            for (DefaultPendingResult pr : group)
+                pr.fail(e);
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Take the steps to send next and follow them to completion.
+     *
+     * @return An empty list once every step has been sent or one has failed.
+     */
+    private List<DefaultPendingResult> nextGroup() {
+        final List<DefaultPendingResult> group = new ArrayList<>();
+        synchronized (this) {
+            if (m_stopped)
+                return group;
+            while (m_next < m_steps.size()) {
+                final DefaultPendingResult pr = m_steps.get(m_next);
+                final boolean motion = isMotion(pr);
+                if (motion && !group.isEmpty())
+                    break;
+                group.add(pr);
+                m_next++;
+                if (motion)
+                    break;
+                if (m_next < m_steps.size() && isMotion(m_steps.get(m_next)))
+                    break;
+            }
+        }
+        final Group listener = new Group(group.size());
+        for (DefaultPendingResult pr : group)
+            pr.whenComplete(listener);
+        return group;
+    }
+
+    private void sendNext() {
+        final List<DefaultPendingResult> group = nextGroup();
+        if (group.isEmpty())
+            return;
+        try {
+            m_nodeMain.publishAll(group);
+        } catch (RuntimeException e) {
+            for (DefaultPendingResult pr : group)
+                pr.fail(e);
+        }
+    }
+
+    /**
+     * Cancel every step that hasn't been sent. Those already sent are left
+     * to finish.
+     */
+    private void stop() {
+        final List<DefaultPendingResult> unsent;
+        synchronized (this) {
+            if (m_stopped)
+                return;
+            m_stopped = true;
+            unsent = new ArrayList<>(m_steps.subList(m_next, m_steps.size()));
+            m_next = m_steps.size();
+        }
+        for (DefaultPendingResult pr : unsent) {
+            pr.cancel("Canceled because an earlier step of the batch failed");
+            m_nodeMain.recycle(pr.getCommand());
+        }
+    }
+
+    // Sends the next group once every step of this one has succeeded
+    private final class Group implements PendingResult.CompletionListener {
+        private final AtomicInteger m_remaining;
+
+        Group(final int size) {
+            m_remaining = new AtomicInteger(size);
+        }
+
+        @Override
+        public void onComplete(final PendingResult pending,
+                               final Result result,
+                               final AstrobeeException exception) {
+            if (exception != null || result == null || !result.hasSucceeded()) {
+                stop();
+                return;
+            }
+            if (m_remaining.decrementAndGet() == 0)
+                sendNext();
+        }
+    }
+
+    private static boolean isMotion(final DefaultPendingResult pr) {
+        return MOTION_COMMANDS.contains(pr.getCommand().getCmdName());
+    }
+
+    private void checkOpen() {
+        if (m_submitted)
+            throw new AstrobeeRuntimeException("Batch has already been submitted");
+    }
+}
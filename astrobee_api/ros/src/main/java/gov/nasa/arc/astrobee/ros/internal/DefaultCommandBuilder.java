@@ -24,106 +24,88 @@ import gov.nasa.arc.astrobee.internal.CommandBuilder;
 import gov.nasa.arc.astrobee.internal.Publishable;
 import gov.nasa.arc.astrobee.types.Mat33f;
 import gov.nasa.arc.astrobee.types.Vec3d;
-import org.ros.message.MessageFactory;
-import std_msgs.Header;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
+/**
+ * Collects the name and arguments of a command as primitives, then fills in
+ * a pre-built message from {@link CommandTemplates} on {@link #build()}.
+ * Argument names are not part of the message, only their order is.
+ */
 class DefaultCommandBuilder implements CommandBuilder {
-    private final MessageFactory m_messageFactory;
-    private final CommandStamped m_cmd;
-    private final List<CommandArg> m_args = new ArrayList<>();
-
-    DefaultCommandBuilder(final MessageFactory messageFactory) {
-        m_messageFactory = messageFactory;
-        m_cmd = m_messageFactory.newFromType(CommandStamped._TYPE);
-        m_cmd.setHeader((Header) m_messageFactory.newFromType(Header._TYPE));
-        m_cmd.setCmdOrigin("guest_science");
+    private final CommandTemplates m_templates;
+    private String m_name = null;
+    private String m_subsystem = "";
+
+    // One slot per argument, in order
+    private int m_count = 0;
+    private byte[] m_types = new byte[4];
+    private long[] m_integers = new long[4];
+    private double[] m_reals = new double[4];
+    private Object[] m_objects = new Object[4];
+
+    DefaultCommandBuilder(final CommandTemplates templates) {
+        m_templates = templates;
     }
 
     @Override
     public CommandBuilder setName(final String name) {
-        m_cmd.setCmdName(name);
+        m_name = name;
         return this;
     }
 
     @Override
     public CommandBuilder setSubsystem(final String subsystem) {
-        m_cmd.setSubsysName(subsystem);
+        m_subsystem = subsystem;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, int value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_INT);
-        arg.setI(value);
-        m_args.add(arg);
+        m_integers[slot(CommandArg.DATA_TYPE_INT)] = value;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, long value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_LONGLONG);
-        arg.setLl(value);
-        m_args.add(arg);
+        m_integers[slot(CommandArg.DATA_TYPE_LONGLONG)] = value;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, float value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_FLOAT);
-        arg.setF(value);
-        m_args.add(arg);
+        m_reals[slot(CommandArg.DATA_TYPE_FLOAT)] = value;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, double value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_DOUBLE);
-        arg.setD(value);
-        m_args.add(arg);
+        m_reals[slot(CommandArg.DATA_TYPE_DOUBLE)] = value;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, boolean value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_BOOL);
-        arg.setB(value);
-        m_args.add(arg);
+        m_integers[slot(CommandArg.DATA_TYPE_BOOL)] = value ? 1 : 0;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, final Vec3d value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_VEC3d);
-        arg.setVec3d(value.toArray());
-        m_args.add(arg);
+        m_objects[slot(CommandArg.DATA_TYPE_VEC3d)] = value;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, final Mat33f value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_MAT33f);
-        arg.setMat33f(value.toArray());
-        m_args.add(arg);
+        m_objects[slot(CommandArg.DATA_TYPE_MAT33f)] = value;
         return this;
     }
 
     @Override
     public CommandBuilder addArgument(final String name, final String value) {
-        final CommandArg arg = m_messageFactory.newFromType(CommandArg._TYPE);
-        arg.setDataType(CommandArg.DATA_TYPE_STRING);
-        arg.setS(value);
-        m_args.add(arg);
+        m_objects[slot(CommandArg.DATA_TYPE_STRING)] = value;
         return this;
     }
 
@@ -135,8 +117,73 @@ class DefaultCommandBuilder implements CommandBuilder {
 
     @Override
     public Publishable build() {
-        m_cmd.setCmdId(UUID.randomUUID().toString());
-        m_cmd.setArgs(m_args);
-        return new CommandHolder(m_cmd);
+        final CommandStamped cmd = m_templates.acquire(m_name, m_types, m_count);
+        cmd.setCmdName(m_name);
+        cmd.setSubsysName(m_subsystem);
+        cmd.setCmdId(m_templates.nextId());
+
+        final List<CommandArg> args = cmd.getArgs();
+        for (int i = 0; i < m_count; i++) {
+            final CommandArg arg = args.get(i);
+            switch (m_types[i]) {
+                case CommandArg.DATA_TYPE_BOOL:
+                    arg.setB(m_integers[i] != 0);
+                    break;
+                case CommandArg.DATA_TYPE_INT:
+                    arg.setI((int) m_integers[i]);
+                    break;
+                case CommandArg.DATA_TYPE_LONGLONG:
+                    arg.setLl(m_integers[i]);
+                    break;
+                case CommandArg.DATA_TYPE_FLOAT:
+                    arg.setF((float) m_reals[i]);
+                    break;
+                case CommandArg.DATA_TYPE_DOUBLE:
+                    arg.setD(m_reals[i]);
+                    break;
+                case CommandArg.DATA_TYPE_STRING:
+                    arg.setS((String) m_objects[i]);
+                    break;
+                case CommandArg.DATA_TYPE_VEC3d:
+                    setVec3d(arg, (Vec3d) m_objects[i]);
+                    break;
+                case CommandArg.DATA_TYPE_MAT33f:
+                    setMat33f(arg, (Mat33f) m_objects[i]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown argument type " + m_types[i]);
+            }
+        }
+        return new CommandHolder(cmd);
+    }
+
+    // Reused templates already have arrays of the right size, fill those in
+    private static void setVec3d(final CommandArg arg, final Vec3d value) {
+        final double[] dst = arg.getVec3d();
+        if (dst != null && dst.length == 3)
+            value.copyTo(dst, 0);
+        else
+            arg.setVec3d(value.toArray());
+    }
+
+    private static void setMat33f(final CommandArg arg, final Mat33f value) {
+        final float[] dst = arg.getMat33f();
+        if (dst != null && dst.length == 9)
+            value.copyTo(dst);
+        else
+            arg.setMat33f(value.toArray());
+    }
+
+    // Claim the next argument slot
+    private int slot(final byte type) {
+        if (m_count == m_types.length) {
+            final int size = m_count * 2;
+            m_types = Arrays.copyOf(m_types, size);
+            m_integers = Arrays.copyOf(m_integers, size);
+            m_reals = Arrays.copyOf(m_reals, size);
+            m_objects = Arrays.copyOf(m_objects, size);
+        }
+        m_types[m_count] = type;
+        return m_count++;
     }
 }
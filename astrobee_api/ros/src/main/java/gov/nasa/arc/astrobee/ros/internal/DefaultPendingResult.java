@@ -20,92 +20,102 @@ package gov.nasa.arc.astrobee.ros.internal;
 
 import ff_msgs.AckStamped;
 import ff_msgs.CommandStamped;
-import gov.nasa.arc.astrobee.AstrobeeException;
-import gov.nasa.arc.astrobee.PendingResult;
 import gov.nasa.arc.astrobee.Result;
+import gov.nasa.arc.astrobee.internal.AbstractPendingResult;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+class DefaultPendingResult extends AbstractPendingResult {
+    private static final Log logger = LogFactory.getLog(DefaultPendingResult.class);
 
-class DefaultPendingResult implements PendingResult {
-    private Status m_status = Status.EXECUTING;
+    private final CommandStamped m_cmd;
+    private final NodeMetrics m_metrics;
 
-    // Synchronization object protecting the result and exception
-    private final Object m_sync = new Object();
-    private DefaultResult m_result = null;
-    private AstrobeeException m_exception = null;
+    // System.nanoTime() of the last publish or ack, used to expire commands
+    private volatile long m_lastActivity = System.nanoTime();
 
-    private final CountDownLatch m_latch = new CountDownLatch(1);
+    // System.nanoTime() of the last publish, and whether it has been acked.
+    // Only touched by the publishing thread and then the ack thread.
+    private volatile long m_sentAt = 0;
+    private volatile boolean m_acked = false;
 
-    private final CommandStamped m_cmd;
+    DefaultPendingResult(final CommandStamped cmd, final NodeMetrics metrics) {
+        this(cmd, Status.EXECUTING, metrics);
+    }
 
-    DefaultPendingResult(final CommandStamped cmd) {
+    DefaultPendingResult(final CommandStamped cmd, final Status initial, final NodeMetrics metrics) {
+        super(initial);
         m_cmd = cmd;
+        m_metrics = metrics;
     }
 
     CommandStamped getCommand() {
         return m_cmd;
     }
 
-    @Override
-    public synchronized boolean isFinished() {
-        return m_status == Status.COMPLETED;
+    long getLastActivity() {
+        return m_lastActivity;
     }
 
-    @Override
-    public synchronized Status getStatus() {
-        return m_status;
+    void touch() {
+        m_lastActivity = System.nanoTime();
     }
 
-    void update(final AckStamped ack) {
-        setStatus(Status.fromValue(ack.getStatus().getStatus()));
-        if (m_status == Status.COMPLETED)
-            setResult(new DefaultResult(ack));
+    /**
+     * Mark the command as handed to the publisher.
+     */
+    void sent() {
+        final long now = System.nanoTime();
+        m_lastActivity = now;
+        m_sentAt = now;
+        m_metrics.published.increment();
     }
 
-    synchronized void setStatus(Status status) {
-        m_status = status;
+    void fail(final Throwable t) {
+        if (setThrowable(t))
+            m_metrics.failed.increment();
     }
 
-    void setResult(final DefaultResult r) {
-        synchronized (m_sync) {
-            // If the count has hit zero, then someone has already set either
-            // a result or an exception, so bail.
-            if (m_latch.getCount() == 0)
-                return;
+    void cancel(final String reason) {
+        if (setResult(new DefaultResult(Result.Status.CANCELED, reason)))
+            m_metrics.canceled.increment();
+    }
 
-            // We are the first, set our result/exception.
-            m_result = r;
-            m_latch.countDown();
+    void update(final AckStamped ack) {
+        final long now = System.nanoTime();
+        m_lastActivity = now;
+        if (!m_acked && m_sentAt != 0) {
+            m_acked = true;
+            m_metrics.ackLatency.record(now - m_sentAt);
         }
-    }
 
-    void setThrowable(final Throwable t) {
-        synchronized (m_sync) {
-            if (m_latch.getCount() == 0)
-                return;
-            if (t instanceof AstrobeeException)
-                m_exception = (AstrobeeException) t;
-            else
-                m_exception = new AstrobeeException(t);
-            m_latch.countDown();
+        final Status status = Status.fromValue(ack.getStatus().getStatus());
+        if (status != Status.COMPLETED) {
+            setStatus(status);
+            return;
         }
+
+        final DefaultResult result = new DefaultResult(ack);
+        if (!setResult(result))
+            return;
+        if (m_sentAt != 0)
+            m_metrics.roundTrip.record(now - m_sentAt);
+        if (result.hasSucceeded())
+            m_metrics.succeeded.increment();
+        else if (result.getStatus() == Result.Status.CANCELED)
+            m_metrics.canceled.increment();
+        else
+            m_metrics.failed.increment();
     }
 
+    // Widened so RobotNodeMain can mark commands as queued or sent
     @Override
-    public Result getResult() throws AstrobeeException, InterruptedException {
-        m_latch.await();
-        if (m_exception != null)
-            throw m_exception;
-        return m_result;
+    protected void setStatus(final Status status) {
+        super.setStatus(status);
     }
 
     @Override
-    public Result getResult(long timeout, TimeUnit unit) throws AstrobeeException, InterruptedException, TimeoutException {
-        m_latch.await(timeout, unit);
-        if (m_exception != null)
-            throw m_exception;
-        return m_result;
+    protected void onListenerException(final RuntimeException e) {
+        logger.error("PendingResult listener threw", e);
     }
 }
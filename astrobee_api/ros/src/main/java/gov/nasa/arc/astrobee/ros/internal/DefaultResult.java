@@ -30,6 +30,11 @@ class DefaultResult implements Result {
         m_message = ack.getMessage();
     }
 
+    DefaultResult(final Status status, final String message) {
+        m_status = status;
+        m_message = message;
+    }
+
     @Override
     public String getMessage() {
         return m_message;
@@ -18,11 +18,21 @@
 
 package gov.nasa.arc.astrobee.ros.internal;
 
+import gov.nasa.arc.astrobee.CommandBatch;
 import gov.nasa.arc.astrobee.PendingResult;
 import gov.nasa.arc.astrobee.Kinematics;
+import gov.nasa.arc.astrobee.KinematicsFilter;
+import gov.nasa.arc.astrobee.KinematicsListener;
+import gov.nasa.arc.astrobee.KinematicsSnapshot;
+import gov.nasa.arc.astrobee.Subscription;
+import gov.nasa.arc.astrobee.Telemetry;
+import gov.nasa.arc.astrobee.Trajectory;
+import gov.nasa.arc.astrobee.TrajectoryResult;
 import gov.nasa.arc.astrobee.internal.CommandBuilder;
 import gov.nasa.arc.astrobee.internal.Publishable;
 import gov.nasa.arc.astrobee.internal.RobotImpl;
+import gov.nasa.arc.astrobee.internal.TrajectoryPendingResult;
+import gov.nasa.arc.astrobee.ros.DefaultKinematics;
 
 public class DefaultRobot extends RobotImpl {
     private final RobotNodeMain m_nodeMain;
@@ -33,7 +43,7 @@ public class DefaultRobot extends RobotImpl {
 
     @Override
     protected CommandBuilder makeCommandBuilder() {
-        return new DefaultCommandBuilder(m_nodeMain.getTopicMessageFactory());
+        return new DefaultCommandBuilder(m_nodeMain.getCommandTemplates());
     }
 
     @Override
@@ -42,8 +52,54 @@ public class DefaultRobot extends RobotImpl {
                 ((CommandHolder) cmd).getCommand());
     }
 
+    @Override
+    public CommandBatch batch() {
+        return new DefaultCommandBatch(m_nodeMain);
+    }
+
+    @Override
+    public TrajectoryResult followTrajectory(final Trajectory trajectory) {
+        if (trajectory == null)
+            throw new NullPointerException("trajectory may not be null");
+        return new TrajectoryPendingResult(this, trajectory,
+                m_nodeMain.getScheduledExecutorService()).start();
+    }
+
     @Override
     public Kinematics getCurrentKinematics() {
         return m_nodeMain.getKinematics();
     }
+
+    @Override
+    public KinematicsSnapshot getCurrentKinematics(final KinematicsSnapshot into) {
+        if (into == null)
+            throw new NullPointerException("into may not be null");
+        return m_nodeMain.getKinematics(into);
+    }
+
+    @Override
+    public boolean getKinematicsAt(final long stampNanos, final KinematicsSnapshot out) {
+        if (out == null)
+            throw new NullPointerException("out may not be null");
+        return m_nodeMain.getKinematicsAt(stampNanos, out);
+    }
+
+    @Override
+    public Subscription subscribeKinematics(final KinematicsFilter filter,
+                                            final KinematicsListener listener) {
+        return m_nodeMain.subscribeKinematics(filter, listener);
+    }
+
+    @Override
+    public <T> Telemetry<T> getTelemetry(final String topic, final String messageType, final Class<T> type) {
+        return m_nodeMain.getTelemetry(topic, messageType, type);
+    }
+
+    @Override
+    public Kinematics getKinematicsAt(final long stampNanos) {
+        final KinematicsSnapshot snapshot = new KinematicsSnapshot();
+        if (!m_nodeMain.getKinematicsAt(stampNanos, snapshot))
+            return null;
+        return new DefaultKinematics(snapshot);
+    }
 }
@@ -0,0 +1,307 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import ff_msgs.EkfState;
+import geometry_msgs.Point;
+import geometry_msgs.Quaternion;
+import geometry_msgs.Vector3;
+import gov.nasa.arc.astrobee.Kinematics;
+import gov.nasa.arc.astrobee.KinematicsSnapshot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The last few seconds of EKF states, so callers can ask where Astrobee was
+ * when something happened rather than where it is now.
+ *
+ * Samples live in a fixed ring of primitives (doubles stored as raw long
+ * bits) with a sequence number per slot. The single writer never allocates;
+ * readers never lock and simply give up on samples that get overwritten
+ * while they are looking at them.
+ */
+final class KinematicsHistory {
+    private static final Kinematics.Confidence[] CONFIDENCE = {
+            Kinematics.Confidence.GOOD,
+            Kinematics.Confidence.POOR,
+            Kinematics.Confidence.LOST
+    };
+
+    // Layout of one sample
+    private static final int F_STAMP = 0;
+    private static final int F_CONFIDENCE = 1;
+    private static final int F_POSITION = 2;
+    private static final int F_ORIENTATION = 5;
+    private static final int F_VELOCITY = 9;
+    private static final int F_OMEGA = 12;
+    private static final int F_ACCEL = 15;
+    private static final int FIELDS = 18;
+
+    // How often a reader restarts after losing a race with the writer
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final int m_mask;
+    private final AtomicLongArray m_data;
+    // 2n+1 while sample n is being written into the slot, 2n+2 once done
+    private final AtomicLongArray m_seqs;
+    // Number of samples ever written
+    private volatile long m_written = 0;
+
+    KinematicsHistory(final int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two >= 2");
+        m_mask = capacity - 1;
+        m_data = new AtomicLongArray(capacity * FIELDS);
+        m_seqs = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Append a sample. Only call from the single EKF thread, with
+     * non-decreasing stamps.
+     */
+    void write(final EkfState ekf) {
+        final long n = m_written;
+        final int slot = (int) (n & m_mask);
+        final int base = slot * FIELDS;
+
+        m_seqs.set(slot, 2 * n + 1);
+
+        m_data.set(base + F_STAMP, ekf.getHeader().getStamp().totalNsecs());
+        m_data.set(base + F_CONFIDENCE, ekf.getConfidence());
+
+        final Point p = ekf.getPose().getPosition();
+        putVector(base + F_POSITION, p.getX(), p.getY(), p.getZ());
+
+        final Quaternion q = ekf.getPose().getOrientation();
+        putVector(base + F_ORIENTATION, q.getX(), q.getY(), q.getZ());
+        putDouble(base + F_ORIENTATION + 3, q.getW());
+
+        Vector3 v = ekf.getVelocity();
+        putVector(base + F_VELOCITY, v.getX(), v.getY(), v.getZ());
+        v = ekf.getOmega();
+        putVector(base + F_OMEGA, v.getX(), v.getY(), v.getZ());
+        v = ekf.getAccel();
+        putVector(base + F_ACCEL, v.getX(), v.getY(), v.getZ());
+
+        m_seqs.set(slot, 2 * n + 2);
+        m_written = n + 1;
+    }
+
+    /**
+     * Fill {@code out} with the state at {@code stampNanos}, interpolated
+     * between the two samples around it: linearly for position and rates,
+     * spherically for orientation. The confidence is the worse of the two.
+     *
+     * @return {@code false} if the stamp is not covered by the history, in
+     * which case {@code out} is left in an unspecified state.
+     */
+    boolean read(final long stampNanos, final KinematicsSnapshot out) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            final long written = m_written;
+            if (written == 0)
+                return false;
+
+            // Keep clear of the oldest slot, it's the next to be overwritten
+            long lo = Math.max(0, written - m_mask);
+            long hi = written - 1;
+
+            final long first = stamp(lo);
+            final long last = stamp(hi);
+            if (first == Long.MIN_VALUE || last == Long.MIN_VALUE)
+                continue;
+            if (stampNanos < first || stampNanos > last)
+                return false;
+
+            // Find the last sample at or before the stamp
+            boolean lost = false;
+            while (lo < hi) {
+                final long mid = (lo + hi + 1) >>> 1;
+                final long s = stamp(mid);
+                if (s == Long.MIN_VALUE) {
+                    lost = true;
+                    break;
+                }
+                if (s <= stampNanos)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            if (lost)
+                continue;
+
+            if (!load(lo, out))
+                continue;
+            if (out.getTimestamp() == stampNanos || lo == written - 1)
+                return true;
+            if (interpolate(lo + 1, stampNanos, out))
+                return true;
+        }
+        return false;
+    }
+
+    // Stamp of sample n, or Long.MIN_VALUE if it is no longer (or not yet) there
+    private long stamp(final long n) {
+        final int slot = (int) (n & m_mask);
+        final long seq = m_seqs.get(slot);
+        if (seq != 2 * n + 2)
+            return Long.MIN_VALUE;
+        final long stamp = m_data.get(slot * FIELDS + F_STAMP);
+        if (m_seqs.get(slot) != seq)
+            return Long.MIN_VALUE;
+        return stamp;
+    }
+
+    private boolean load(final long n, final KinematicsSnapshot out) {
+        final int slot = (int) (n & m_mask);
+        final int base = slot * FIELDS;
+        final long seq = m_seqs.get(slot);
+        if (seq != 2 * n + 2)
+            return false;
+
+        out.setTimestamp(m_data.get(base + F_STAMP))
+                .setConfidence(CONFIDENCE[(int) m_data.get(base + F_CONFIDENCE)])
+                .setPosition(getDouble(base + F_POSITION),
+                        getDouble(base + F_POSITION + 1),
+                        getDouble(base + F_POSITION + 2))
+                .setOrientation(getDouble(base + F_ORIENTATION),
+                        getDouble(base + F_ORIENTATION + 1),
+                        getDouble(base + F_ORIENTATION + 2),
+                        getDouble(base + F_ORIENTATION + 3))
+                .setLinearVelocity(getDouble(base + F_VELOCITY),
+                        getDouble(base + F_VELOCITY + 1),
+                        getDouble(base + F_VELOCITY + 2))
+                .setAngularVelocity(getDouble(base + F_OMEGA),
+                        getDouble(base + F_OMEGA + 1),
+                        getDouble(base + F_OMEGA + 2))
+                .setLinearAcceleration(getDouble(base + F_ACCEL),
+                        getDouble(base + F_ACCEL + 1),
+                        getDouble(base + F_ACCEL + 2));
+
+        return m_seqs.get(slot) == seq;
+    }
+
+    // Blend sample n into out, which holds sample n - 1
+    private boolean interpolate(final long n, final long stampNanos, final KinematicsSnapshot out) {
+        final int slot = (int) (n & m_mask);
+        final int base = slot * FIELDS;
+        final long seq = m_seqs.get(slot);
+        if (seq != 2 * n + 2)
+            return false;
+
+        final long t1 = m_data.get(base + F_STAMP);
+        final int c1 = (int) m_data.get(base + F_CONFIDENCE);
+        final double px = getDouble(base + F_POSITION);
+        final double py = getDouble(base + F_POSITION + 1);
+        final double pz = getDouble(base + F_POSITION + 2);
+        final double qx = getDouble(base + F_ORIENTATION);
+        final double qy = getDouble(base + F_ORIENTATION + 1);
+        final double qz = getDouble(base + F_ORIENTATION + 2);
+        final double qw = getDouble(base + F_ORIENTATION + 3);
+        final double vx = getDouble(base + F_VELOCITY);
+        final double vy = getDouble(base + F_VELOCITY + 1);
+        final double vz = getDouble(base + F_VELOCITY + 2);
+        final double wx = getDouble(base + F_OMEGA);
+        final double wy = getDouble(base + F_OMEGA + 1);
+        final double wz = getDouble(base + F_OMEGA + 2);
+        final double ax = getDouble(base + F_ACCEL);
+        final double ay = getDouble(base + F_ACCEL + 1);
+        final double az = getDouble(base + F_ACCEL + 2);
+
+        if (m_seqs.get(slot) != seq)
+            return false;
+
+        final long t0 = out.getTimestamp();
+        final double u = t1 == t0 ? 0 : (double) (stampNanos - t0) / (double) (t1 - t0);
+
+        if (c1 > out.getConfidence().ordinal())
+            out.setConfidence(CONFIDENCE[c1]);
+        out.setTimestamp(stampNanos)
+                .setPosition(lerp(out.getPositionX(), px, u),
+                        lerp(out.getPositionY(), py, u),
+                        lerp(out.getPositionZ(), pz, u))
+                .setLinearVelocity(lerp(out.getLinearVelocityX(), vx, u),
+                        lerp(out.getLinearVelocityY(), vy, u),
+                        lerp(out.getLinearVelocityZ(), vz, u))
+                .setAngularVelocity(lerp(out.getAngularVelocityX(), wx, u),
+                        lerp(out.getAngularVelocityY(), wy, u),
+                        lerp(out.getAngularVelocityZ(), wz, u))
+                .setLinearAcceleration(lerp(out.getLinearAccelerationX(), ax, u),
+                        lerp(out.getLinearAccelerationY(), ay, u),
+                        lerp(out.getLinearAccelerationZ(), az, u));
+        slerp(out, qx, qy, qz, qw, u);
+        return true;
+    }
+
+    private static double lerp(final double a, final double b, final double u) {
+        return a + (b - a) * u;
+    }
+
+    // Spherical interpolation from the orientation in out towards (x, y, z, w)
+    private static void slerp(final KinematicsSnapshot out,
+                              double x, double y, double z, double w,
+                              final double u) {
+        final double x0 = out.getOrientationX();
+        final double y0 = out.getOrientationY();
+        final double z0 = out.getOrientationZ();
+        final double w0 = out.getOrientationW();
+
+        double dot = x0 * x + y0 * y + z0 * z + w0 * w;
+        // Take the short way around
+        if (dot < 0) {
+            dot = -dot;
+            x = -x;
+            y = -y;
+            z = -z;
+            w = -w;
+        }
+
+        final double s0;
+        final double s1;
+        if (dot > 0.9995) {
+            // Nearly identical, plain lerp is accurate and avoids dividing by ~0
+            s0 = 1 - u;
+            s1 = u;
+        } else {
+            final double theta = Math.acos(dot);
+            final double sin = Math.sin(theta);
+            s0 = Math.sin((1 - u) * theta) / sin;
+            s1 = Math.sin(u * theta) / sin;
+        }
+
+        final double rx = s0 * x0 + s1 * x;
+        final double ry = s0 * y0 + s1 * y;
+        final double rz = s0 * z0 + s1 * z;
+        final double rw = s0 * w0 + s1 * w;
+        final double norm = Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+        out.setOrientation(rx / norm, ry / norm, rz / norm, rw / norm);
+    }
+
+    private double getDouble(final int index) {
+        return Double.longBitsToDouble(m_data.get(index));
+    }
+
+    private void putDouble(final int index, final double value) {
+        m_data.set(index, Double.doubleToRawLongBits(value));
+    }
+
+    private void putVector(final int index, final double x, final double y, final double z) {
+        putDouble(index, x);
+        putDouble(index + 1, y);
+        putDouble(index + 2, z);
+    }
+}
@@ -0,0 +1,161 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import ff_msgs.EkfState;
+import geometry_msgs.Point;
+import geometry_msgs.Quaternion;
+import geometry_msgs.Vector3;
+import gov.nasa.arc.astrobee.Kinematics;
+import gov.nasa.arc.astrobee.KinematicsSnapshot;
+import gov.nasa.arc.astrobee.ros.DefaultKinematics;
+
+/**
+ * Latest EKF state, kept as primitives behind a sequence lock so that the
+ * EKF thread can overwrite it without allocating and readers never block it.
+ *
+ * There must only ever be one writer (the gnc/ekf subscriber). Readers retry
+ * if they overlap with a write. Every field is volatile so that the sequence
+ * checks are actually ordered against the data under the Java memory model.
+ */
+final class KinematicsStore {
+    private static final Kinematics.Confidence[] CONFIDENCE = {
+            Kinematics.Confidence.GOOD,
+            Kinematics.Confidence.POOR,
+            Kinematics.Confidence.LOST
+    };
+
+    // Odd while a write is in progress
+    private volatile int m_seq = 0;
+
+    private volatile int m_confidence = EkfState.CONFIDENCE_LOST;
+    private volatile long m_timestamp = 0;
+    private volatile double m_px, m_py, m_pz;
+    private volatile double m_qx, m_qy, m_qz, m_qw = 1;
+    private volatile double m_vx, m_vy, m_vz;
+    private volatile double m_wx, m_wy, m_wz;
+    private volatile double m_ax, m_ay, m_az;
+
+    // Immutable copy for getCurrentKinematics(), built at most once per update
+    private volatile Copy m_copy = null;
+
+    private static final class Copy {
+        final int seq;
+        final DefaultKinematics kinematics;
+
+        Copy(final int seq, final DefaultKinematics kinematics) {
+            this.seq = seq;
+            this.kinematics = kinematics;
+        }
+    }
+
+    /**
+     * Overwrite the stored state. Only call from the single EKF thread.
+     */
+    void write(final EkfState ekf) {
+        final int confidence = ekf.getConfidence();
+        if (confidence < 0 || confidence >= CONFIDENCE.length)
+            throw new IllegalArgumentException("Invalid confidence byte?");
+
+        final int seq = m_seq;
+        m_seq = seq + 1;
+
+        m_confidence = confidence;
+        m_timestamp = ekf.getHeader().getStamp().totalNsecs();
+
+        final Point p = ekf.getPose().getPosition();
+        m_px = p.getX();
+        m_py = p.getY();
+        m_pz = p.getZ();
+
+        final Quaternion q = ekf.getPose().getOrientation();
+        m_qx = q.getX();
+        m_qy = q.getY();
+        m_qz = q.getZ();
+        m_qw = q.getW();
+
+        Vector3 v = ekf.getVelocity();
+        m_vx = v.getX();
+        m_vy = v.getY();
+        m_vz = v.getZ();
+
+        v = ekf.getOmega();
+        m_wx = v.getX();
+        m_wy = v.getY();
+        m_wz = v.getZ();
+
+        v = ekf.getAccel();
+        m_ax = v.getX();
+        m_ay = v.getY();
+        m_az = v.getZ();
+
+        m_seq = seq + 2;
+    }
+
+    /**
+     * Copy the latest consistent state into {@code into}.
+     *
+     * @return {@code into}
+     */
+    KinematicsSnapshot read(final KinematicsSnapshot into) {
+        load(into);
+        return into;
+    }
+
+    /**
+     * Get an immutable copy of the latest state. The copy is shared between
+     * callers until the next update, so polling doesn't allocate either.
+     */
+    Kinematics copy() {
+        final Copy cached = m_copy;
+        if (cached != null && cached.seq == m_seq)
+            return cached.kinematics;
+
+        final KinematicsSnapshot snapshot = new KinematicsSnapshot();
+        final int seq = load(snapshot);
+        final DefaultKinematics fresh = new DefaultKinematics(snapshot);
+        // Racing readers may both build one; either is correct for its seq
+        m_copy = new Copy(seq, fresh);
+        return fresh;
+    }
+
+    // Returns the sequence number the copied state belongs to
+    private int load(final KinematicsSnapshot into) {
+        int before;
+        do {
+            before = readStable();
+            into.setConfidence(CONFIDENCE[m_confidence])
+                    .setTimestamp(m_timestamp)
+                    .setPosition(m_px, m_py, m_pz)
+                    .setOrientation(m_qx, m_qy, m_qz, m_qw)
+                    .setLinearVelocity(m_vx, m_vy, m_vz)
+                    .setAngularVelocity(m_wx, m_wy, m_wz)
+                    .setLinearAcceleration(m_ax, m_ay, m_az);
+        } while (m_seq != before);
+        return before;
+    }
+
+    private int readStable() {
+        int seq = m_seq;
+        while ((seq & 1) != 0) {
+            Thread.yield();
+            seq = m_seq;
+        }
+        return seq;
+    }
+}
@@ -0,0 +1,219 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import gov.nasa.arc.astrobee.Kinematics;
+import gov.nasa.arc.astrobee.KinematicsFilter;
+import gov.nasa.arc.astrobee.KinematicsListener;
+import gov.nasa.arc.astrobee.KinematicsSnapshot;
+import gov.nasa.arc.astrobee.Subscription;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes EKF updates to kinematics subscribers. Filtering happens on the
+ * EKF thread, which only copies a few doubles per subscriber; listeners run
+ * one at a time on a single daemon thread, which exits after 30 seconds
+ * without deliveries. Each subscriber has at most one delivery queued and
+ * newer states overwrite older ones that haven't gone out yet, so a slow
+ * listener delays the others but never makes them fall behind.
+ */
+final class KinematicsSubscriptions {
+    private static final Log logger = LogFactory.getLog(KinematicsSubscriptions.class);
+
+    // One delivery per subscriber at most, so this is a cap on subscribers
+    // with something pending at once
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final CopyOnWriteArrayList<Entry> m_entries = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor m_executor;
+
+    // Only touched on the EKF thread
+    private final KinematicsSnapshot m_scratch = new KinematicsSnapshot();
+
+    KinematicsSubscriptions(final String threadName) {
+        m_executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                new ThreadFactory() {
+                    private final AtomicInteger m_count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, threadName + "-" + m_count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        // Don't keep a thread around for nobody
+        m_executor.allowCoreThreadTimeOut(true);
+    }
+
+    Subscription add(final KinematicsFilter filter, final KinematicsListener listener) {
+        if (filter == null || listener == null)
+            throw new NullPointerException("filter and listener may not be null");
+        final Entry entry = new Entry(filter, listener);
+        m_entries.add(entry);
+        return entry;
+    }
+
+    boolean isEmpty() {
+        return m_entries.isEmpty();
+    }
+
+    /**
+     * Offer the latest state to every subscriber. Call from the EKF thread
+     * only.
+     */
+    void publish(final KinematicsStore store) {
+        if (m_entries.isEmpty())
+            return;
+        store.read(m_scratch);
+        for (Entry e : m_entries)
+            e.offer(m_scratch);
+    }
+
+    private final class Entry implements Subscription, Runnable {
+        private final KinematicsListener m_listener;
+        private final long m_minIntervalNanos;
+        private final double m_positionThreshold;
+        private final double m_orientationThreshold;
+        private final Kinematics.Confidence m_minConfidence;
+        private final boolean m_once;
+
+        private volatile boolean m_canceled = false;
+
+        // Last state let through, only touched on the EKF thread
+        private boolean m_delivered = false;
+        private final KinematicsSnapshot m_last = new KinematicsSnapshot();
+
+        // Guarded by this
+        private final KinematicsSnapshot m_pending = new KinematicsSnapshot();
+        private boolean m_hasPending = false;
+        private boolean m_scheduled = false;
+
+        // Only touched by the delivering thread
+        private final KinematicsSnapshot m_delivering = new KinematicsSnapshot();
+
+        Entry(final KinematicsFilter filter, final KinematicsListener listener) {
+            m_listener = listener;
+            m_minIntervalNanos = filter.getMinInterval(TimeUnit.NANOSECONDS);
+            m_positionThreshold = filter.getPositionThreshold();
+            m_orientationThreshold = filter.getOrientationThreshold();
+            m_minConfidence = filter.getMinConfidence();
+            m_once = filter.isOnce();
+        }
+
+        void offer(final KinematicsSnapshot k) {
+            if (m_canceled || !accepts(k))
+                return;
+            m_delivered = true;
+            m_last.set(k);
+            if (m_once) {
+                // Stop offering, but still deliver this one
+                m_canceled = true;
+                m_entries.remove(this);
+            }
+
+            synchronized (this) {
+                m_pending.set(k);
+                m_hasPending = true;
+                if (m_scheduled)
+                    return;
+                m_scheduled = true;
+            }
+            try {
+                m_executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    m_scheduled = false;
+                }
+                logger.warn("Kinematics listeners are falling behind, skipping an update");
+            }
+        }
+
+        private boolean accepts(final KinematicsSnapshot k) {
+            // Declared from best to worst
+            if (k.getConfidence().ordinal() > m_minConfidence.ordinal())
+                return false;
+            if (!m_delivered || k.getConfidence() != m_last.getConfidence())
+                return true;
+            if (k.getTimestamp() - m_last.getTimestamp() < m_minIntervalNanos)
+                return false;
+            if (m_positionThreshold == 0 && m_orientationThreshold == 0)
+                return true;
+            return moved(k) || turned(k);
+        }
+
+        private boolean moved(final KinematicsSnapshot k) {
+            final double dx = k.getPositionX() - m_last.getPositionX();
+            final double dy = k.getPositionY() - m_last.getPositionY();
+            final double dz = k.getPositionZ() - m_last.getPositionZ();
+            return dx * dx + dy * dy + dz * dz > m_positionThreshold * m_positionThreshold;
+        }
+
+        private boolean turned(final KinematicsSnapshot k) {
+            final double dot = k.getOrientationX() * m_last.getOrientationX() +
+                    k.getOrientationY() * m_last.getOrientationY() +
+                    k.getOrientationZ() * m_last.getOrientationZ() +
+                    k.getOrientationW() * m_last.getOrientationW();
+            final double angle = 2 * Math.acos(Math.min(1, Math.abs(dot)));
+            return angle > m_orientationThreshold;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                synchronized (this) {
+                    if (!m_hasPending) {
+                        m_scheduled = false;
+                        return;
+                    }
+                    m_delivering.set(m_pending);
+                    m_hasPending = false;
+                }
+                try {
+                    m_listener.onKinematics(m_delivering);
+                } catch (RuntimeException e) {
+                    logger.error("Kinematics listener threw", e);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            m_canceled = true;
+            m_entries.remove(this);
+            synchronized (this) {
+                m_hasPending = false;
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return m_canceled;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import gov.nasa.arc.astrobee.ros.Counter;
+import gov.nasa.arc.astrobee.ros.Histogram;
+import gov.nasa.arc.astrobee.ros.MetricsRegistry;
+
+/**
+ * The metrics {@link RobotNodeMain} keeps up to date, resolved once so the
+ * hot paths never look anything up by name. Latencies are in nanoseconds.
+ */
+final class NodeMetrics {
+    final MetricsRegistry registry;
+
+    final Counter published;
+    final Counter queued;
+    final Counter succeeded;
+    final Counter failed;
+    final Counter canceled;
+    final Counter expired;
+    final Counter acks;
+    final Counter unmatchedAcks;
+    final Counter ekfUpdates;
+
+    // Send to first ack, and send to completion
+    final Histogram ackLatency;
+    final Histogram roundTrip;
+    final Histogram ekfInterval;
+
+    NodeMetrics(final MetricsRegistry r) {
+        registry = r;
+        published = r.counter("commands.published");
+        queued = r.counter("commands.queued");
+        succeeded = r.counter("commands.succeeded");
+        failed = r.counter("commands.failed");
+        canceled = r.counter("commands.canceled");
+        expired = r.counter("commands.expired");
+        acks = r.counter("acks.received");
+        unmatchedAcks = r.counter("acks.unmatched");
+        ekfUpdates = r.counter("ekf.updates");
+        ackLatency = r.histogram("commands.ack_latency_ns");
+        roundTrip = r.histogram("commands.round_trip_ns");
+        ekfInterval = r.histogram("ekf.interval_ns");
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import gov.nasa.arc.astrobee.AstrobeeException;
+import gov.nasa.arc.astrobee.PendingResult;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commands that have been published but not yet completed, keyed by command
+ * id. Lookups from the ack thread and inserts from publishing threads never
+ * take a lock; entries that stop hearing acks are expired by {@link #expire}.
+ */
+final class PendingTable {
+    private final ConcurrentHashMap<String, DefaultPendingResult> m_pending =
+            new ConcurrentHashMap<>(64);
+
+    void put(final String id, final DefaultPendingResult pr) {
+        m_pending.put(id, pr);
+    }
+
+    DefaultPendingResult get(final String id) {
+        return m_pending.get(id);
+    }
+
+    DefaultPendingResult remove(final String id) {
+        return m_pending.remove(id);
+    }
+
+    int size() {
+        return m_pending.size();
+    }
+
+    /**
+     * Fail and drop every command that has not heard from the executive in
+     * {@code timeoutNanos}. Commands still waiting for a subscriber are left
+     * alone since they haven't been sent yet.
+     *
+     * @return How many commands were expired.
+     */
+    int expire(final long nowNanos, final long timeoutNanos) {
+        int expired = 0;
+        final Iterator<Map.Entry<String, DefaultPendingResult>> it =
+                m_pending.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, DefaultPendingResult> e = it.next();
+            final DefaultPendingResult pr = e.getValue();
+            if (pr.getStatus() == PendingResult.Status.QUEUED)
+                continue;
+            if (nowNanos - pr.getLastActivity() < timeoutNanos)
+                continue;
+            // Only the thread that actually removes the entry fails it
+            if (m_pending.remove(e.getKey(), pr)) {
+                pr.fail(new AstrobeeException("No ack received for command " +
+                        e.getKey() + " within " +
+                        TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms"));
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Fail and drop everything, used when the node goes away.
+     */
+    void failAll(final String reason) {
+        for (String id : m_pending.keySet()) {
+            final DefaultPendingResult pr = m_pending.remove(id);
+            if (pr != null)
+                pr.fail(new AstrobeeException(reason));
+        }
+    }
+}
@@ -22,13 +22,27 @@ import ff_msgs.CommandStamped;
 import ff_msgs.EkfState;
 import gov.nasa.arc.astrobee.AstrobeeRuntimeException;
 import gov.nasa.arc.astrobee.Kinematics;
+import gov.nasa.arc.astrobee.KinematicsFilter;
+import gov.nasa.arc.astrobee.KinematicsListener;
+import gov.nasa.arc.astrobee.KinematicsSnapshot;
 import gov.nasa.arc.astrobee.PendingResult;
-import gov.nasa.arc.astrobee.ros.DefaultKinematics;
+import gov.nasa.arc.astrobee.Subscription;
+import gov.nasa.arc.astrobee.Telemetry;
+import diagnostic_msgs.DiagnosticArray;
+import diagnostic_msgs.DiagnosticStatus;
+import diagnostic_msgs.KeyValue;
+import gov.nasa.arc.astrobee.ros.ExecutorConfiguration;
+import gov.nasa.arc.astrobee.ros.Gauge;
+import gov.nasa.arc.astrobee.ros.MetricsRegistry;
+import gov.nasa.arc.astrobee.ros.QueueStatistics;
+import gov.nasa.arc.astrobee.ros.RobotConfiguration;
+import gov.nasa.arc.astrobee.ros.ThrottleStatistics;
 import gov.nasa.arc.astrobee.ros.internal.util.Stringer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.ros.internal.node.topic.SubscriberIdentifier;
 import org.ros.message.MessageFactory;
+import org.ros.message.Time;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.AbstractNodeMain;
@@ -38,104 +52,442 @@ import org.ros.node.topic.DefaultPublisherListener;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class RobotNodeMain extends AbstractNodeMain implements MessageListener<AckStamped> {
     private final Log logger = LogFactory.getLog(RobotNodeMain.class);
 
-    private ConnectedNode m_node = null;
-    private Publisher<CommandStamped> m_cmdPublisher = null;
-    private boolean m_ready = false;
+    // How often we look for commands that never got acked
+    private static final long EXPIRY_PERIOD_MS = 1000;
 
-    private final Map<String, DefaultPendingResult> m_pending = new HashMap<>();
-    private final Queue<CommandStamped> m_queue = new LinkedBlockingDeque<>();
+    private static final String ACK_TOPIC = "mgt/ack";
+    private static final String EKF_TOPIC = "gnc/ekf";
 
-    private final Object m_kinematics_lock = new Object();
-    private DefaultKinematics m_kinematics = new DefaultKinematics();
+    private volatile ConnectedNode m_node = null;
+    private volatile CommandTemplates m_templates = null;
+    private volatile Publisher<CommandStamped> m_cmdPublisher = null;
+    private volatile boolean m_ready = false;
+
+    private final PendingTable m_pending = new PendingTable();
+    private final CommandThrottle m_throttle;
+
+    // Commands published before the executive subscribed. Guarded by itself,
+    // only touched while m_ready is false.
+    private final CommandQueue m_queue;
+
+    private final long m_commandTimeoutNanos;
+    private ScheduledFuture<?> m_expiryTask = null;
+
+    private final CallbackThread m_ackThread;
+    private final CallbackThread m_ekfThread;
+
+    private final KinematicsStore m_kinematics = new KinematicsStore();
+    private final KinematicsHistory m_history;
+    private final KinematicsSubscriptions m_subscriptions;
+
+    private final TelemetryCache m_telemetry = new TelemetryCache(ACK_TOPIC, EKF_TOPIC);
+
+    private final NodeMetrics m_metrics = new NodeMetrics(new MetricsRegistry());
+    private final long m_diagnosticsPeriodMs;
+    private ScheduledFuture<?> m_diagnosticsTask = null;
+
+    // Arrival time of the last EKF message, only touched on the EKF thread
+    private long m_lastEkfNanos = 0;
+
+    public RobotNodeMain(final RobotConfiguration configuration) {
+        m_commandTimeoutNanos = configuration.getCommandTimeout(TimeUnit.NANOSECONDS);
+        m_history = new KinematicsHistory(configuration.getKinematicsHistorySize());
+        m_throttle = new CommandThrottle(this, configuration);
+        m_queue = new CommandQueue(configuration.getCommandQueueCapacity(),
+                configuration.getCommandQueueOverflowPolicy());
+
+        ExecutorConfiguration executor = configuration.getExecutorConfiguration();
+        if (executor == null)
+            executor = new ExecutorConfiguration();
+        m_ackThread = new CallbackThread(executor.getThreadNamePrefix() + " ack", executor.getAckPriority());
+        m_ekfThread = new CallbackThread(executor.getThreadNamePrefix() + " ekf", executor.getEkfPriority());
+        m_subscriptions = new KinematicsSubscriptions(executor.getThreadNamePrefix() + " kinematics");
+
+        m_diagnosticsPeriodMs = configuration.getDiagnosticsPeriod(TimeUnit.MILLISECONDS);
+        m_metrics.registry.gauge("commands.pending", new Gauge() {
+            @Override
+            public long getValue() {
+                return m_pending.size();
+            }
+        });
+        m_metrics.registry.gauge("commands.queue_depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return m_queue.getQueueDepth();
+            }
+        });
+    }
 
     @Override
     public synchronized void onStart(final ConnectedNode connectedNode) {
         m_node = connectedNode;
+        m_templates = new CommandTemplates(connectedNode.getTopicMessageFactory());
         m_cmdPublisher = connectedNode.newPublisher("command", CommandStamped._TYPE);
         m_cmdPublisher.addListener(new DefaultPublisherListener<CommandStamped>() {
             @Override
             public void onNewSubscriber(Publisher<CommandStamped> publisher, SubscriberIdentifier subscriberIdentifier) {
-                while (!m_queue.isEmpty()) {
-                    CommandStamped cmd = m_queue.poll();
-                    publisher.publish(cmd);
-                }
-                synchronized(RobotNodeMain.this) {
-                    m_ready = true;
-                }
+                flushQueue(publisher);
             }
         });
-        Subscriber<AckStamped> subscriber = connectedNode.newSubscriber("mgt/ack", AckStamped._TYPE);
+        // The executive may have connected before the listener was added
+        if (m_cmdPublisher.getNumberOfSubscribers() > 0)
+            flushQueue(m_cmdPublisher);
+
+        Subscriber<AckStamped> subscriber = connectedNode.newSubscriber(ACK_TOPIC, AckStamped._TYPE);
         subscriber.addMessageListener(this);
 
-        Subscriber<EkfState> ekfSub = connectedNode.newSubscriber("gnc/ekf", EkfState._TYPE);
+        Subscriber<EkfState> ekfSub = connectedNode.newSubscriber(EKF_TOPIC, EkfState._TYPE);
         ekfSub.addMessageListener(new MessageListener<EkfState>() {
             @Override
             public void onNewMessage(final EkfState ekfState) {
-                synchronized(m_kinematics_lock) {
-                    m_kinematics = new DefaultKinematics(ekfState);
-                }
+                m_ekfThread.enter();
+                m_kinematics.write(ekfState);
+                m_history.write(ekfState);
+                m_subscriptions.publish(m_kinematics);
+
+                final long now = System.nanoTime();
+                if (m_lastEkfNanos != 0)
+                    m_metrics.ekfInterval.record(now - m_lastEkfNanos);
+                m_lastEkfNanos = now;
+                m_metrics.ekfUpdates.increment();
             }
         });
+
+        if (m_commandTimeoutNanos > 0) {
+            m_expiryTask = connectedNode.getScheduledExecutorService().scheduleWithFixedDelay(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            final int expired = m_pending.expire(System.nanoTime(), m_commandTimeoutNanos);
+                            m_metrics.expired.add(expired);
+                            if (expired > 0)
+                                logger.warn("Expired " + expired + " command(s) that were never acked");
+                        }
+                    }, EXPIRY_PERIOD_MS, EXPIRY_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+
+        if (m_diagnosticsPeriodMs > 0) {
+            final Publisher<DiagnosticArray> diagPublisher =
+                    connectedNode.newPublisher("diagnostics", DiagnosticArray._TYPE);
+            m_diagnosticsTask = connectedNode.getScheduledExecutorService().scheduleAtFixedRate(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            publishDiagnostics(connectedNode, diagPublisher);
+                        }
+                    }, m_diagnosticsPeriodMs, m_diagnosticsPeriodMs, TimeUnit.MILLISECONDS);
+        }
+
+        m_telemetry.start(connectedNode);
+    }
+
+    private void publishDiagnostics(final ConnectedNode node,
+                                    final Publisher<DiagnosticArray> publisher) {
+        final MessageFactory factory = node.getTopicMessageFactory();
+        final DiagnosticStatus status = factory.newFromType(DiagnosticStatus._TYPE);
+        status.setLevel(DiagnosticStatus.OK);
+        status.setName(node.getName().toString());
+        status.setMessage("Guest science API metrics");
+        for (Map.Entry<String, Long> e : m_metrics.registry.snapshot().entrySet()) {
+            final KeyValue kv = factory.newFromType(KeyValue._TYPE);
+            kv.setKey(e.getKey());
+            kv.setValue(Long.toString(e.getValue()));
+            status.getValues().add(kv);
+        }
+
+        final DiagnosticArray array = publisher.newMessage();
+        array.getHeader().setStamp(node.getCurrentTime());
+        array.getStatus().add(status);
+        publisher.publish(array);
     }
 
     @Override
-    public synchronized void onNewMessage(final AckStamped ack) {
-        if (!m_pending.containsKey(ack.getCmdId())) {
-            logger.warn("Unmatched Ack received: " + Stringer.toString(ack));
+    public void onNewMessage(final AckStamped ack) {
+        m_ackThread.enter();
+        m_metrics.acks.increment();
+
+        // Drop finished commands before updating, so completion listeners
+        // that issue the next command don't run against a stale table.
+        final DefaultPendingResult pr;
+        if (ack.getStatus().getStatus() == PendingResult.Status.COMPLETED.getValue()) {
+            pr = m_pending.remove(ack.getCmdId());
+        } else {
+            pr = m_pending.get(ack.getCmdId());
+        }
+
+        if (pr == null) {
+            m_metrics.unmatchedAcks.increment();
+            if (logger.isWarnEnabled())
+                logger.warn("Unmatched Ack received: " + Stringer.toString(ack));
             return;
         }
 
-        final DefaultPendingResult pr = m_pending.get(ack.getCmdId());
-        logger.debug("Updating status for " + Stringer.toString(pr.getCommand()));
+        if (logger.isDebugEnabled())
+            logger.debug("Updating status for " + Stringer.toString(pr.getCommand()));
         pr.update(ack);
-        if (pr.isFinished()) {
-            m_pending.remove(ack.getCmdId());
-        }
+
+        // Nobody looks at a completed command again, let the next one reuse it
+        if (pr.isFinished())
+            recycle(pr.getCommand());
     }
 
     @Override
     public synchronized void onShutdown(Node node) {
+        if (m_expiryTask != null) {
+            m_expiryTask.cancel(false);
+            m_expiryTask = null;
+        }
+        if (m_diagnosticsTask != null) {
+            m_diagnosticsTask.cancel(false);
+            m_diagnosticsTask = null;
+        }
+        m_telemetry.shutdown();
         m_node = null;
+        m_templates = null;
         m_cmdPublisher = null;
+        synchronized (m_queue) {
+            m_queue.clear();
+            m_ready = false;
+        }
+        m_pending.failAll("Node shut down before the command completed");
+        m_ackThread.restore();
+        m_ekfThread.restore();
     }
 
     public Kinematics getKinematics() {
-        synchronized(m_kinematics_lock) {
-            return m_kinematics;
-        }
+        return m_kinematics.copy();
+    }
+
+    public KinematicsSnapshot getKinematics(final KinematicsSnapshot into) {
+        return m_kinematics.read(into);
+    }
+
+    public boolean getKinematicsAt(final long stampNanos, final KinematicsSnapshot out) {
+        return m_history.read(stampNanos, out);
+    }
+
+    public <T> Telemetry<T> getTelemetry(final String topic, final String messageType, final Class<T> type) {
+        return m_telemetry.acquire(topic, messageType, type);
     }
 
-    synchronized MessageFactory getTopicMessageFactory() {
-        if (m_node == null)
+    public Subscription subscribeKinematics(final KinematicsFilter filter,
+                                            final KinematicsListener listener) {
+        return m_subscriptions.add(filter, listener);
+    }
+
+    CommandTemplates getCommandTemplates() {
+        final CommandTemplates templates = m_templates;
+        if (templates == null)
             throw new AstrobeeRuntimeException("Node is not ready or died");
-        return m_node.getTopicMessageFactory();
+        return templates;
     }
 
-    synchronized PendingResult publish(CommandStamped cmd) {
-        if (m_cmdPublisher == null)
+    ScheduledExecutorService getScheduledExecutorService() {
+        final ConnectedNode node = m_node;
+        if (node == null)
+            throw new AstrobeeRuntimeException("Node is not ready or died");
+        return node.getScheduledExecutorService();
+    }
+
+    PendingResult publish(CommandStamped cmd) {
+        final DefaultPendingResult pr = new DefaultPendingResult(cmd, m_metrics);
+        if (!m_throttle.isEnabled() || m_throttle.admit(pr))
+            send(pr);
+        return pr;
+    }
+
+    /**
+     * Register and send a single command, or queue it if the executive
+     * hasn't subscribed yet.
+     */
+    void send(final DefaultPendingResult pr) {
+        final ConnectedNode node = m_node;
+        final Publisher<CommandStamped> publisher = m_cmdPublisher;
+        if (node == null || publisher == null)
             throw new AstrobeeRuntimeException("Node not ready or dead");
 
-        cmd.getHeader().setStamp(m_node.getCurrentTime());
-        DefaultPendingResult pr = new DefaultPendingResult(cmd);
+        final CommandStamped cmd = pr.getCommand();
+        cmd.getHeader().setStamp(node.getCurrentTime());
+        pr.touch();
+
+        // Register before sending so a fast ack can't beat us to the table
+        m_pending.put(cmd.getCmdId(), pr);
 
-        if (m_ready) {
+        if (!m_ready) {
+            DefaultPendingResult overflow = null;
+            boolean queued = false;
+            synchronized (m_queue) {
+                if (!m_ready) {
+                    overflow = m_queue.offer(pr);
+                    if (overflow != pr) {
+                        pr.setStatus(PendingResult.Status.QUEUED);
+                        m_metrics.queued.increment();
+                    }
+                    queued = true;
+                }
+            }
+            if (overflow != null)
+                dropOverflow(overflow);
+            if (queued)
+                return;
+        }
+
+        if (logger.isDebugEnabled())
             logger.debug("Publishing " + Stringer.toString(cmd));
-            m_cmdPublisher.publish(cmd);
+        pr.sent();
+        pr.setStatus(PendingResult.Status.EXECUTING);
+        publisher.publish(cmd);
+    }
+
+    /**
+     * Send everything that was queued while nobody was listening, safety
+     * commands first. Commands published from status listeners while this
+     * runs are picked up too, so nothing is left behind once ready.
+     */
+    private void flushQueue(final Publisher<CommandStamped> publisher) {
+        final List<DefaultPendingResult> batch = new ArrayList<>();
+        synchronized (m_queue) {
+            if (m_ready)
+                return;
+            while (!m_queue.isEmpty()) {
+                batch.clear();
+                m_queue.drainTo(batch);
+                for (DefaultPendingResult pr : batch) {
+                    final CommandStamped cmd = pr.getCommand();
+                    if (logger.isDebugEnabled())
+                        logger.debug("Publishing queued " + Stringer.toString(cmd));
+                    pr.sent();
+                    pr.setStatus(PendingResult.Status.EXECUTING);
+                    publisher.publish(cmd);
+                }
+            }
+            m_ready = true;
+        }
+    }
+
+    private void dropOverflow(final DefaultPendingResult pr) {
+        final CommandStamped cmd = pr.getCommand();
+        logger.warn("Command queue is full, dropping " + cmd.getCmdName() + " " + cmd.getCmdId());
+        m_pending.remove(cmd.getCmdId());
+        pr.cancel("Dropped because the command queue was full");
+        recycle(cmd);
+    }
+
+    /**
+     * Take a command back out of the pre-subscriber queue.
+     *
+     * @return {@code false} if it has already been sent.
+     */
+    boolean unqueue(final DefaultPendingResult pr) {
+        synchronized (m_queue) {
+            if (m_ready || !m_queue.remove(pr))
+                return false;
+        }
+        m_pending.remove(pr.getCommand().getCmdId());
+        return true;
+    }
+
+    /**
+     * Give back a command that was never sent (or has completed) so its
+     * message can be reused.
+     */
+    void recycle(final CommandStamped cmd) {
+        final CommandTemplates templates = m_templates;
+        if (templates != null)
+            templates.release(cmd);
+    }
+
+    public ThrottleStatistics getThrottleStatistics() {
+        return m_throttle;
+    }
+
+    public QueueStatistics getQueueStatistics() {
+        return m_queue;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return m_metrics.registry;
+    }
+
+    NodeMetrics getNodeMetrics() {
+        return m_metrics;
+    }
+
+    /**
+     * Publish a batch of commands back to back. Each goes through the
+     * {@link CommandThrottle} first, just like a single command, so a step
+     * may be dropped by a rate limit, superseded or parked behind an earlier
+     * command with the same key. The rest share one timestamp and are queued
+     * together if the executive hasn't subscribed yet.
+     */
+    void publishAll(final List<DefaultPendingResult> steps) {
+        final ConnectedNode node = m_node;
+        final Publisher<CommandStamped> publisher = m_cmdPublisher;
+        if (node == null || publisher == null)
+            throw new AstrobeeRuntimeException("Node not ready or dead");
+
+        final List<DefaultPendingResult> batch;
+        if (m_throttle.isEnabled()) {
+            batch = new ArrayList<>(steps.size());
+            for (DefaultPendingResult pr : steps) {
+                if (m_throttle.admit(pr))
+                    batch.add(pr);
+            }
+            if (batch.isEmpty())
+                return;
         } else {
-            m_queue.add(cmd);
-            pr.setStatus(PendingResult.Status.QUEUED);
+            batch = steps;
         }
 
-        m_pending.put(cmd.getCmdId(), pr);
-        return pr;
+        final Time now = node.getCurrentTime();
+        for (DefaultPendingResult pr : batch) {
+            final CommandStamped cmd = pr.getCommand();
+            cmd.getHeader().setStamp(now);
+            pr.touch();
+            m_pending.put(cmd.getCmdId(), pr);
+        }
+
+        if (!m_ready) {
+            final List<DefaultPendingResult> overflows = new ArrayList<>();
+            boolean queued = false;
+            synchronized (m_queue) {
+                if (!m_ready) {
+                    for (DefaultPendingResult pr : batch) {
+                        final DefaultPendingResult overflow = m_queue.offer(pr);
+                        if (overflow != pr) {
+                            pr.setStatus(PendingResult.Status.QUEUED);
+                            m_metrics.queued.increment();
+                        }
+                        if (overflow != null)
+                            overflows.add(overflow);
+                    }
+                    queued = true;
+                }
+            }
+            for (DefaultPendingResult overflow : overflows)
+                dropOverflow(overflow);
+            if (queued)
+                return;
+        }
+
+        for (DefaultPendingResult pr : batch) {
+            final CommandStamped cmd = pr.getCommand();
+            if (logger.isDebugEnabled())
+                logger.debug("Publishing " + Stringer.toString(cmd));
+            pr.sent();
+            pr.setStatus(PendingResult.Status.EXECUTING);
+            publisher.publish(cmd);
+        }
     }
 
     @Override
@@ -0,0 +1,300 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.ros.internal;
+
+import gov.nasa.arc.astrobee.Telemetry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ros.message.MessageListener;
+import org.ros.node.ConnectedNode;
+import org.ros.node.topic.Subscriber;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Latest-value caches for telemetry topics, shared by every handle on the
+ * same topic. A topic is subscribed when first asked for (or when the node
+ * comes up, if it was asked for before) and unsubscribed once nobody has
+ * held a handle on it for {@link #IDLE_TIMEOUT_MS}.
+ *
+ * Topics are told apart by their resolved names, so "gnc/ekf" and
+ * "/gnc/ekf" are the same topic when the node is in the root namespace.
+ * Only the node can resolve names, so topics asked for before it comes up
+ * are resolved, and merged if they turn out to be the same, in
+ * {@link #start}.
+ */
+final class TelemetryCache {
+    private final Log logger = LogFactory.getLog(TelemetryCache.class);
+
+    // How long an unused topic stays subscribed, in case it's wanted again
+    private static final long IDLE_TIMEOUT_MS = 10000;
+
+    // Topics the node subscribes to itself, as given. rosjava hands out one
+    // subscriber per topic, so these must never be shut down from here.
+    private final String[] m_shared;
+
+    // Guarded by this. Topics are keyed by resolved name while the node is
+    // up, and by the name as given before it first comes up.
+    private final Map<String, Topic> m_topics = new HashMap<>();
+    private final Set<String> m_sharedResolved = new HashSet<>();
+    private ConnectedNode m_node = null;
+
+    TelemetryCache(final String... shared) {
+        m_shared = shared.clone();
+    }
+
+    synchronized void start(final ConnectedNode node) {
+        m_node = node;
+        m_sharedResolved.clear();
+        for (String name : m_shared)
+            m_sharedResolved.add(resolve(name));
+
+        final Topic[] topics = m_topics.values().toArray(new Topic[0]);
+        m_topics.clear();
+        for (Topic t : topics) {
+            t.m_name = resolve(t.m_name);
+            final Topic existing = m_topics.get(t.m_name);
+            if (existing == null) {
+                m_topics.put(t.m_name, t);
+            } else if (existing.m_messageType.equals(t.m_messageType)) {
+                existing.merge(t);
+            } else {
+                logger.error("Topic " + t.m_name + " was asked for as both " +
+                        existing.m_messageType + " and " + t.m_messageType +
+                        ", handles on " + t.m_messageType + " will get nothing");
+            }
+        }
+
+        for (Topic t : m_topics.values())
+            t.subscribe(node);
+    }
+
+    /**
+     * Forget the subscriptions of a node that has shut down. Handles stay
+     * valid and are resubscribed on the next {@link #start}.
+     */
+    synchronized void shutdown() {
+        m_node = null;
+        for (Topic t : m_topics.values().toArray(new Topic[0])) {
+            t.m_subscriber = null;
+            if (t.m_idleTask != null) {
+                t.m_idleTask.cancel(false);
+                t.m_idleTask = null;
+            }
+            if (t.m_refs == 0)
+                m_topics.remove(t.m_name);
+        }
+    }
+
+    <T> Telemetry<T> acquire(final String topic, final String messageType, final Class<T> type) {
+        if (topic == null || messageType == null || type == null)
+            throw new NullPointerException("topic, messageType and type may not be null");
+
+        final Topic t;
+        synchronized (this) {
+            final String name = m_node == null ? topic : resolve(topic);
+            Topic existing = m_topics.get(name);
+            if (existing == null) {
+                existing = new Topic(name, messageType);
+                m_topics.put(name, existing);
+            } else if (!existing.m_messageType.equals(messageType)) {
+                throw new IllegalArgumentException("Topic " + name + " is already in use as " +
+                        existing.m_messageType + ", not " + messageType);
+            }
+            t = existing;
+            t.m_refs++;
+            if (t.m_idleTask != null) {
+                t.m_idleTask.cancel(false);
+                t.m_idleTask = null;
+            }
+            if (t.m_subscriber == null && m_node != null)
+                t.subscribe(m_node);
+        }
+        return new Handle<>(topic, t, type);
+    }
+
+    // Only call with the node up
+    private String resolve(final String name) {
+        return m_node.resolveName(name).toString();
+    }
+
+    private synchronized void release(final Topic topic) {
+        final Topic t = topic.current();
+        // Topics dropped in start never got a subscription
+        if (--t.m_refs > 0 || m_topics.get(t.m_name) != t)
+            return;
+        if (m_node == null) {
+            m_topics.remove(t.m_name);
+            return;
+        }
+        t.m_idleTask = m_node.getScheduledExecutorService().schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire(t);
+            }
+        }, IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void expire(final Topic t) {
+        if (t.m_refs > 0 || m_topics.get(t.m_name) != t)
+            return;
+        t.m_idleTask = null;
+        t.unsubscribe();
+        m_topics.remove(t.m_name);
+    }
+
+    private final class Topic implements MessageListener<Object> {
+        final String m_messageType;
+
+        // Guarded by the cache
+        String m_name;
+        int m_refs = 0;
+        ScheduledFuture<?> m_idleTask = null;
+        Subscriber<Object> m_subscriber = null;
+
+        private final Object m_lock = new Object();
+        private volatile Object m_latest = null;
+        private volatile long m_received = 0;
+        // Set once the handles on this topic have moved to another one
+        private volatile Topic m_mergedInto = null;
+
+        Topic(final String name, final String messageType) {
+            m_name = name;
+            m_messageType = messageType;
+        }
+
+        /**
+         * @return The topic handles on this one now read.
+         */
+        Topic current() {
+            Topic t = this;
+            while (t.m_mergedInto != null)
+                t = t.m_mergedInto;
+            return t;
+        }
+
+        // Called by the cache, before either topic is subscribed
+        void merge(final Topic other) {
+            m_refs += other.m_refs;
+            other.m_refs = 0;
+            synchronized (m_lock) {
+                if (m_latest == null && other.m_latest != null) {
+                    m_latest = other.m_latest;
+                    m_received = other.m_received;
+                    m_lock.notifyAll();
+                }
+            }
+            synchronized (other.m_lock) {
+                other.m_mergedInto = this;
+                // Send anyone waiting on the other topic over to this one
+                other.m_lock.notifyAll();
+            }
+        }
+
+        void subscribe(final ConnectedNode node) {
+            m_subscriber = node.newSubscriber(m_name, m_messageType);
+            m_subscriber.addMessageListener(this);
+        }
+
+        void unsubscribe() {
+            if (m_subscriber == null)
+                return;
+            m_subscriber.removeMessageListener(this);
+            if (!m_sharedResolved.contains(m_name))
+                m_subscriber.shutdown();
+            m_subscriber = null;
+        }
+
+        @Override
+        public void onNewMessage(final Object message) {
+            synchronized (m_lock) {
+                m_latest = message;
+                m_received = System.nanoTime();
+                m_lock.notifyAll();
+            }
+        }
+    }
+
+    private final class Handle<T> implements Telemetry<T> {
+        private final String m_name;
+        private final Topic m_topic;
+        private final Class<T> m_type;
+        private boolean m_canceled = false;
+
+        Handle(final String name, final Topic topic, final Class<T> type) {
+            m_name = name;
+            m_topic = topic;
+            m_type = type;
+        }
+
+        @Override
+        public String getTopic() {
+            return m_name;
+        }
+
+        @Override
+        public T getLatest() {
+            return m_type.cast(m_topic.current().m_latest);
+        }
+
+        @Override
+        public long getLastReceivedNanos() {
+            return m_topic.current().m_received;
+        }
+
+        @Override
+        public T awaitLatest(final long timeout, final TimeUnit unit)
+                throws InterruptedException, TimeoutException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (true) {
+                final Topic t = m_topic.current();
+                synchronized (t.m_lock) {
+                    if (t.m_mergedInto != null)
+                        continue;
+                    if (t.m_latest != null)
+                        return m_type.cast(t.m_latest);
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                        throw new TimeoutException("Nothing received on " + m_name);
+                    TimeUnit.NANOSECONDS.timedWait(t.m_lock, remaining);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (m_canceled)
+                    return;
+                m_canceled = true;
+            }
+            release(m_topic);
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return m_canceled;
+        }
+    }
+}
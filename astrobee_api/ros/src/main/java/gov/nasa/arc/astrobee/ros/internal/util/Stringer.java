@@ -22,17 +22,55 @@ import ff_msgs.*;
 import gov.nasa.arc.astrobee.PendingResult;
 import gov.nasa.arc.astrobee.Result;
 
-import java.util.*;
-
+import java.util.List;
+
+/**
+ * Human-readable forms of the messages we log. Each message type has an
+ * {@code append} method that writes into a caller's {@link StringBuilder}
+ * and a {@code toString} that reuses a per-thread builder. Neither is cheap
+ * next to handling the message itself, so callers on hot paths should check
+ * the log level first.
+ */
 public final class Stringer {
     private Stringer() { }
 
+    // Builders bigger than this aren't kept around after use
+    private static final int MAX_CACHED_CAPACITY = 4096;
+
+    private static final ThreadLocal<StringBuilder> s_builder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private static StringBuilder builder() {
+        StringBuilder sb = s_builder.get();
+        if (sb.capacity() > MAX_CACHED_CAPACITY) {
+            sb = new StringBuilder(256);
+            s_builder.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
     public static String toString(final GuestScienceConfig config) {
+        return append(builder(), config).toString();
+    }
+
+    public static String toString(final AckStamped ack) {
+        return append(builder(), ack).toString();
+    }
+
+    public static String toString(final CommandStamped cmd) {
+        return append(builder(), cmd).toString();
+    }
+
+    public static StringBuilder append(final StringBuilder sb, final GuestScienceConfig config) {
         if (config == null) {
-            return "GuestScienceConfig{null}";
+            return sb.append("GuestScienceConfig{null}");
         }
 
-        final StringBuilder sb = new StringBuilder();
         sb.append("GuestScienceConfig{");
         for (GuestScienceApk apk : config.getApks()) {
             sb.append("Apk{");
@@ -47,18 +85,14 @@ public final class Stringer {
             }
             sb.append("}; ");
         }
-        sb.append("}");
-        return sb.toString();
+        return sb.append("}");
     }
 
-
-
-    public static String toString(final AckStamped ack) {
+    public static StringBuilder append(final StringBuilder sb, final AckStamped ack) {
         if (ack == null) {
-            return "Ack{null}";
+            return sb.append("Ack{null}");
         }
 
-        final StringBuilder sb = new StringBuilder();
         sb.append("Ack{");
         sb.append("id=").append(ack.getCmdId()).append("; ");
 
@@ -91,12 +125,10 @@ public final class Stringer {
             sb.append("message=\"").append(msg).append('"');
         }
 
-        return sb.append('}').toString();
+        return sb.append('}');
     }
 
-    public static String toString(final CommandStamped cmd) {
-        final StringBuilder sb = new StringBuilder();
-
+    public static StringBuilder append(final StringBuilder sb, final CommandStamped cmd) {
         sb.append("Command{");
 
         sb.append("id=").append(cmd.getCmdId()).append("; ");
@@ -109,17 +141,16 @@ public final class Stringer {
             sb.append("subsystem=").append(cmd.getSubsysName()).append("; ");
         }
 
-        List<CommandArg> args = cmd.getArgs();
+        final List<CommandArg> args = cmd.getArgs();
         sb.append("args=[");
-        Iterator<CommandArg> it = args.iterator();
-        while (it.hasNext()) {
-            sb.append(toString(it.next()));
-            if (it.hasNext())
+        for (int i = 0; i < args.size(); i++) {
+            if (i > 0)
                 sb.append(", ");
+            append(sb, args.get(i));
         }
         sb.append("]");
 
-        return sb.append('}').toString();
+        return sb.append('}');
     }
 
     private static final String s_dataTypes[] = {
@@ -127,12 +158,11 @@ public final class Stringer {
             "STRING(5)", "VEC3d(6)", "MAT33f(7)"
     };
 
-    private static String toString(final CommandArg arg) {
-        final StringBuilder sb = new StringBuilder();
+    private static StringBuilder append(final StringBuilder sb, final CommandArg arg) {
         sb.append("Arg{");
 
         final byte type = arg.getDataType();
-        if (type < s_dataTypes.length)
+        if (type >= 0 && type < s_dataTypes.length)
             sb.append(s_dataTypes[type]);
         else
             sb.append("UNKNOWN(").append(type).append(")");
@@ -155,19 +185,40 @@ public final class Stringer {
                 sb.append(arg.getLl());
                 break;
             case CommandArg.DATA_TYPE_MAT33f:
-                sb.append(Arrays.toString(arg.getMat33f()));
+                appendArray(sb, arg.getMat33f());
                 break;
             case CommandArg.DATA_TYPE_STRING:
                 sb.append(arg.getS());
                 break;
             case CommandArg.DATA_TYPE_VEC3d:
-                sb.append(Arrays.toString(arg.getVec3d()));
+                appendArray(sb, arg.getVec3d());
                 break;
             default:
                 sb.append("UNKNOWN");
                 break;
         }
 
-        return sb.append('}').toString();
+        return sb.append('}');
+    }
+
+    // Same format as Arrays.toString(), without the intermediate String
+    private static void appendArray(final StringBuilder sb, final float[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(values[i]);
+        }
+        sb.append(']');
+    }
+
+    private static void appendArray(final StringBuilder sb, final double[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(values[i]);
+        }
+        sb.append(']');
     }
 }
@@ -10,6 +10,8 @@ public class CmdInfo {
     public String mId;
     public String mApkName;
     public CmdType mType;
+    // Times out the command, only used for start commands
+    public ManagerTimeoutTimer mTimer;
 
     public CmdInfo() {
         resetCmd();
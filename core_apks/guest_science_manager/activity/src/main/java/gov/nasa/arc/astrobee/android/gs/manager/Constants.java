@@ -28,4 +28,27 @@ final class Constants {
     public static final String TOPIC_GUEST_SCIENCE_MANAGER_CONFIG = "gs/gs_manager/config";
     public static final String TOPIC_GUEST_SCIENCE_MANAGER_STATE = "gs/gs_manager/state";
     public static final String TOPIC_MANAGEMENT_EXEC_COMMAND = "mgt/executive/command";
+
+    // Apk name and topic of the guest science data the manager sends about itself
+    public static final String MANAGER_APK_NAME = "gov.nasa.arc.astrobee.android.gs.manager";
+    public static final String TOPIC_DATA_OVERFLOW = "data_overflow";
+    // Topic of packed data, reserved like every topic starting with a tilde, see the guest
+    // science library's ReservedTopics
+    public static final String TOPIC_PACKED_DATA = "~p";
+
+    // Each apk's data folder is in here, see MessengerService.sendGuestScienceDataBasePath
+    public static final String GUEST_SCIENCE_DATA_PATH = "/sdcard/data";
+
+    public static final long START_TIMEOUT_MS = 5000;
+
+    public static final int MAX_DATA_SIZE = 2048;
+    // Data messages each apk may have waiting to be published
+    public static final int MAX_QUEUED_DATA = 64;
+    // Apks have no data budget unless the manager is started with one, zero means no limit
+    public static final int DEFAULT_DATA_BYTES_PER_SECOND = 0;
+    public static final int DEFAULT_DATA_MESSAGES_PER_SECOND = 0;
+    // All guest science data together, zero means no limit
+    public static final int DEFAULT_DOWNLINK_BYTES_PER_SECOND = 64 * 1024;
+    public static final int DEFAULT_CHUNK_BYTES_PER_SECOND = 16 * 1024;
+    public static final int DEFAULT_MAX_QUEUED_CHUNK_BYTES = 4 * 1024 * 1024;
 }
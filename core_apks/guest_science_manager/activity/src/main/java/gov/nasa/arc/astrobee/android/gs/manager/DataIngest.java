@@ -0,0 +1,772 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.android.gs.manager;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+/**
+ * Moves publishing guest science data off the main looper and shares the downlink fairly
+ * between apks. The messenger service hands every data message to offer, which only queues
+ * it, and a single worker thread publishes the queued data to the ground.
+ *
+ * Every apk has its own bounded queue, split by topic, so a chatty apk can't delay the others
+ * or use up the manager's memory. When an apk's queue is full, either its oldest data on the
+ * same topic is dropped to make room or the new data is rejected, whichever the apk asked for
+ * when it registered.
+ *
+ * The worker publishes no faster than the Downlink allows, so whenever apks send more than it
+ * carries the data waits here and the worker decides what goes next. It schedules topics with
+ * start-time fair queuing: each apk gets a share of the downlink proportional to its weight no
+ * matter how fast it sends, and the apk's share is split evenly between its busy topics. On top
+ * of that an apk may be given a byte and a message rate budget; data over budget waits in the
+ * queue. Apks have no budget by default.
+ *
+ * The chunks of oversized data are one more topic of their apk, so they are scheduled and
+ * charged to the apk's budget like the rest of its data. They are also held to a rate shared
+ * by every apk, so a big transfer doesn't crowd out everything else, and have their own bound
+ * on the bytes each apk may have waiting instead of the queue depth. A transfer that doesn't
+ * fit is dropped whole: there is no point using the downlink for the rest of a transfer that
+ * can't be put back together.
+ *
+ * Apks may also ask for their small messages to be packed together and deflated before they
+ * are published, see DataPacker.
+ *
+ * The queues are lock free. Only the main looper offers and only the worker polls, except when
+ * dropping the oldest data, which is also safe with a ConcurrentLinkedQueue. Dropping can take
+ * the record the worker just peeked at, so the worker must cope with its poll coming back empty,
+ * and dropped records are left to the garbage collector rather than reused. The scheduling
+ * state is only touched by the worker.
+ */
+class DataIngest {
+    private static final String LOG_TAG = "GuestScienceManager";
+    private static final long STATS_PERIOD_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Topics past this many share one queue, so an apk can't make us track unlimited topics
+    private static final int MAX_TOPICS_PER_APK = 32;
+    private static final String OTHER_TOPICS = "";
+    // Dropped transfers remembered per apk, in case their last chunk never comes
+    private static final int MAX_DROPPED_TRANSFERS = 64;
+
+    // What offer did with the data
+    public enum Result {
+        QUEUED,
+        DROPPED_OLDEST,
+        REJECTED
+    }
+
+    private static final class Record {
+        String mTopic;
+        MessageType mType;
+        byte[] mData;
+        // Transfer a chunk belongs to, -1 if it isn't a chunk or the apk didn't say
+        int mTransferId = -1;
+    }
+
+    /**
+     * Data of one apk on one topic.
+     */
+    private static final class Flow {
+        final ApkQueue mApk;
+        final boolean mChunks;
+        final ConcurrentLinkedQueue<Record> mQueue = new ConcurrentLinkedQueue<>();
+        // Virtual time the last data published from this flow finished, worker only
+        double mFinish = 0;
+
+        Flow(ApkQueue apk, boolean chunks) {
+            mApk = apk;
+            mChunks = chunks;
+        }
+    }
+
+    /**
+     * Queues, budget and counters of one apk. The counters are totals since the manager
+     * started.
+     */
+    static final class ApkQueue {
+        final String mApkName;
+        final Map<String, Flow> mFlows = new ConcurrentHashMap<>();
+        final AtomicInteger mDepth = new AtomicInteger(0);
+        final AtomicInteger mMaxDepth = new AtomicInteger(0);
+        final AtomicLong mQueued = new AtomicLong(0);
+        final AtomicLong mPublished = new AtomicLong(0);
+        final AtomicLong mDropped = new AtomicLong(0);
+        final AtomicLong mRejected = new AtomicLong(0);
+        volatile boolean mReject = false;
+
+        // Chunks aren't in mFlows, so they don't count towards the depth and are never dropped
+        // to make room for other data
+        volatile Flow mChunkFlow;
+        final AtomicInteger mChunkBytes = new AtomicInteger(0);
+        // Transfers whose remaining chunks are thrown away as they come in, main looper only
+        final Set<Integer> mDroppedTransfers = new LinkedHashSet<>();
+
+        // Zero means unlimited
+        volatile int mBytesPerSecond;
+        volatile int mMessagesPerSecond;
+        volatile double mWeight = 1;
+
+        // Zero means every message is published on its own
+        volatile int mPackWindowMs = 0;
+        volatile boolean mCompress = false;
+
+        // Token buckets and the number of busy topics, worker only
+        double mByteTokens = 0;
+        double mMessageTokens = 0;
+        long mLastRefill = System.nanoTime();
+        int mBusyFlows = 0;
+        DataPacker mPacker;
+
+        ApkQueue(String apkName, int bytesPerSecond, int messagesPerSecond) {
+            mApkName = apkName;
+            mBytesPerSecond = bytesPerSecond;
+            mMessagesPerSecond = messagesPerSecond;
+            mByteTokens = byteBurst();
+            mMessageTokens = messageBurst();
+        }
+
+        String getApkName() {
+            return mApkName;
+        }
+
+        int getDepth() {
+            return mDepth.get();
+        }
+
+        int getMaxDepth() {
+            return mMaxDepth.get();
+        }
+
+        long getPublished() {
+            return mPublished.get();
+        }
+
+        long getDropped() {
+            return mDropped.get();
+        }
+
+        long getRejected() {
+            return mRejected.get();
+        }
+
+        // Up to a second's worth of budget may be saved up, but always enough for one message
+        private double byteBurst() {
+            return Math.max(mBytesPerSecond, Constants.MAX_DATA_SIZE);
+        }
+
+        private double messageBurst() {
+            return Math.max(mMessagesPerSecond, 1);
+        }
+
+        void refill(long now) {
+            double seconds = (now - mLastRefill) / 1e9;
+            mLastRefill = now;
+            mByteTokens = Math.min(byteBurst(), mByteTokens + seconds * mBytesPerSecond);
+            mMessageTokens = Math.min(messageBurst(),
+                    mMessageTokens + seconds * mMessagesPerSecond);
+        }
+
+        /**
+         * @return how long until there is budget for a message of the given size, zero if
+         * there is budget now.
+         */
+        long nanosUntilAllowed(int bytes) {
+            double wait = 0;
+            if (mBytesPerSecond > 0 && mByteTokens < bytes) {
+                wait = (bytes - mByteTokens) / mBytesPerSecond;
+            }
+            if (mMessagesPerSecond > 0 && mMessageTokens < 1) {
+                wait = Math.max(wait, (1 - mMessageTokens) / mMessagesPerSecond);
+            }
+            return (long) Math.ceil(wait * 1e9);
+        }
+
+        void consume(int bytes) {
+            if (mBytesPerSecond > 0) {
+                mByteTokens -= bytes;
+            }
+            if (mMessagesPerSecond > 0) {
+                mMessageTokens -= 1;
+            }
+        }
+    }
+
+    private final Map<String, ApkQueue> mQueues = new ConcurrentHashMap<>();
+    // Same queues and flows as mQueues, in lists the worker can go over without allocating
+    private final List<ApkQueue> mQueueList = new ArrayList<>();
+    private final List<Flow> mFlowList = new ArrayList<>();
+    private volatile int mFlowCount = 0;
+    // Records that were published and can be used for the next data
+    private final ConcurrentLinkedQueue<Record> mFreeRecords = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mIdle = new AtomicBoolean(false);
+    private final int mMaxDepth;
+
+    private volatile int mDefaultBytesPerSecond = Constants.DEFAULT_DATA_BYTES_PER_SECOND;
+    private volatile int mDefaultMessagesPerSecond = Constants.DEFAULT_DATA_MESSAGES_PER_SECOND;
+
+    private final Downlink mDownlink;
+    private volatile int mChunkBytesPerSecond = Constants.DEFAULT_CHUNK_BYTES_PER_SECOND;
+    // Chunk rate budget shared by every apk, worker only
+    private double mChunkTokens = Constants.MAX_DATA_SIZE;
+    private long mLastChunkRefill = System.nanoTime();
+
+    // The worker keeps going as long as it is this thread
+    private volatile Thread mWorker;
+    // The last worker, which the next one waits for so only one ever drains
+    private Thread mPrevious;
+
+    // Start tag of the data last published, worker only
+    private double mVirtualTime = 0;
+    // Shared by the packers of every apk, worker only
+    private Deflater mDeflater;
+    private final byte[] mDeflated = new byte[Constants.MAX_DATA_SIZE];
+
+    DataIngest(int maxDepth, Downlink downlink) {
+        mMaxDepth = maxDepth;
+        mDownlink = downlink;
+    }
+
+    /**
+     * Sets whether new data from the apk is rejected, instead of its oldest data being dropped,
+     * when its queue is full.
+     */
+    public void setRejectWhenFull(String apkName, boolean reject) {
+        getQueue(apkName).mReject = reject;
+    }
+
+    /**
+     * Sets the budget of apks that don't have their own. Only affects apks that haven't sent
+     * data yet.
+     */
+    public void setDefaultBudget(int bytesPerSecond, int messagesPerSecond) {
+        mDefaultBytesPerSecond = bytesPerSecond;
+        mDefaultMessagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * @param bytesPerSecond    How much data the apk may send, zero for no limit.
+     * @param messagesPerSecond How many messages the apk may send, zero for no limit.
+     * @param weight            The apk's share of the downlink relative to other apks when
+     *                          there is more data than can be sent.
+     */
+    public void setBudget(String apkName, int bytesPerSecond, int messagesPerSecond,
+                          double weight) {
+        if (bytesPerSecond < 0 || messagesPerSecond < 0 || !(weight > 0)) {
+            throw new IllegalArgumentException("Budget must not be negative and weight must be " +
+                    "positive.");
+        }
+        ApkQueue queue = getQueue(apkName);
+        queue.mBytesPerSecond = bytesPerSecond;
+        queue.mMessagesPerSecond = messagesPerSecond;
+        queue.mWeight = weight;
+    }
+
+    /**
+     * @param windowMs How long to hold on to the apk's data waiting for more to pack with it,
+     *                 zero to send every message on its own.
+     * @param compress Whether to deflate the apk's data when that makes it smaller.
+     */
+    public void setPacking(String apkName, int windowMs, boolean compress) {
+        if (windowMs < 0) {
+            throw new IllegalArgumentException("Packing window must not be negative.");
+        }
+        ApkQueue queue = getQueue(apkName);
+        queue.mPackWindowMs = windowMs;
+        queue.mCompress = compress;
+    }
+
+    /**
+     * @param bytesPerSecond How much chunked data every apk together may send.
+     */
+    public void setChunkBytesPerSecond(int bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Chunk byte rate must be positive.");
+        }
+        mChunkBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Queues data to be published. Only called from the main looper.
+     */
+    public Result offer(String apkName, String topic, MessageType type, byte[] data) {
+        ApkQueue queue = getQueue(apkName);
+        Flow flow = getFlow(queue, topic);
+        Result result = Result.QUEUED;
+        if (queue.mDepth.get() >= mMaxDepth) {
+            if (queue.mReject) {
+                queue.mRejected.incrementAndGet();
+                return Result.REJECTED;
+            }
+            Record oldest = flow.mQueue.poll();
+            if (oldest == null) {
+                // Nothing waiting on this topic, so make room on another one
+                for (Flow other : queue.mFlows.values()) {
+                    oldest = other.mQueue.poll();
+                    if (oldest != null) {
+                        break;
+                    }
+                }
+            }
+            if (oldest != null) {
+                // Not recycled, the worker may still be looking at it
+                queue.mDepth.decrementAndGet();
+                queue.mDropped.incrementAndGet();
+                result = Result.DROPPED_OLDEST;
+            }
+        }
+
+        Record record = mFreeRecords.poll();
+        if (record == null) {
+            record = new Record();
+        }
+        record.mTopic = topic;
+        record.mType = type;
+        record.mData = data;
+        flow.mQueue.add(record);
+        int depth = queue.mDepth.incrementAndGet();
+        queue.mQueued.incrementAndGet();
+        int max = queue.mMaxDepth.get();
+        while (depth > max && !queue.mMaxDepth.compareAndSet(max, depth)) {
+            max = queue.mMaxDepth.get();
+        }
+
+        wake();
+        return result;
+    }
+
+    /**
+     * Queues a chunk of oversized data to be published. Only called from the main looper.
+     *
+     * @param transferId The transfer the chunk belongs to, or -1 if the apk didn't say.
+     * @param index      Index of the chunk in the transfer.
+     * @param count      Number of chunks in the transfer.
+     * @return false if the chunk was dropped because the apk has too much chunked data waiting.
+     */
+    public boolean offerChunk(String apkName, String topic, byte[] data, int transferId,
+                              int index, int count) {
+        ApkQueue queue = getQueue(apkName);
+        Flow flow = getChunkFlow(queue);
+        boolean known = transferId >= 0 && count >= 1 && index >= 0 && index < count;
+        if (known && queue.mDroppedTransfers.contains(transferId)) {
+            if (index == count - 1) {
+                queue.mDroppedTransfers.remove(transferId);
+            }
+            return false;
+        }
+
+        // The first chunk is a full one, so it tells us how much room the whole transfer needs
+        long needed = known && index == 0 ? (long) data.length * count : data.length;
+        if (queue.mChunkBytes.get() + needed > Constants.DEFAULT_MAX_QUEUED_CHUNK_BYTES) {
+            if (known) {
+                dropTransfer(queue, flow, transferId, index == count - 1);
+            } else {
+                ManagerNode.INSTANCE().getLogger().error(LOG_TAG, "Apk " + apkName + " has " +
+                        "too much chunked data waiting to be sent to the ground so a chunk " +
+                        "was dropped.");
+            }
+            return false;
+        }
+
+        // Chunk records aren't reused, dropTransfer may still be looking at them
+        Record record = new Record();
+        record.mTopic = topic;
+        record.mType = MessageType.BINARY;
+        record.mData = data;
+        record.mTransferId = known ? transferId : -1;
+        queue.mChunkBytes.addAndGet(data.length);
+        flow.mQueue.add(record);
+        wake();
+        return true;
+    }
+
+    public ApkQueue[] getQueues() {
+        synchronized (mQueueList) {
+            return mQueueList.toArray(new ApkQueue[mQueueList.size()]);
+        }
+    }
+
+    public synchronized void start() {
+        if (mWorker != null) {
+            return;
+        }
+        final Thread previous = mPrevious;
+        mWorker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // The last worker may still be flushing its packers
+                if (previous != null) {
+                    try {
+                        previous.join();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                drain();
+            }
+        }, "gs-data-ingest");
+        mWorker.setDaemon(true);
+        mWorker.start();
+    }
+
+    public synchronized void stop() {
+        if (mWorker != null) {
+            LockSupport.unpark(mWorker);
+            mPrevious = mWorker;
+            mWorker = null;
+        }
+    }
+
+    private ApkQueue getQueue(String apkName) {
+        ApkQueue queue = mQueues.get(apkName);
+        if (queue != null) {
+            return queue;
+        }
+        synchronized (mQueueList) {
+            queue = mQueues.get(apkName);
+            if (queue == null) {
+                queue = new ApkQueue(apkName, mDefaultBytesPerSecond, mDefaultMessagesPerSecond);
+                mQueueList.add(queue);
+                mQueues.put(apkName, queue);
+            }
+        }
+        return queue;
+    }
+
+    private Flow getFlow(ApkQueue queue, String topic) {
+        Flow flow = queue.mFlows.get(topic);
+        if (flow != null) {
+            return flow;
+        }
+        synchronized (mQueueList) {
+            String key = queue.mFlows.size() < MAX_TOPICS_PER_APK ? topic : OTHER_TOPICS;
+            flow = queue.mFlows.get(key);
+            if (flow == null) {
+                flow = new Flow(queue, false);
+                queue.mFlows.put(key, flow);
+                mFlowList.add(flow);
+                mFlowCount = mFlowList.size();
+            }
+        }
+        return flow;
+    }
+
+    private Flow getChunkFlow(ApkQueue queue) {
+        Flow flow = queue.mChunkFlow;
+        if (flow != null) {
+            return flow;
+        }
+        synchronized (mQueueList) {
+            flow = queue.mChunkFlow;
+            if (flow == null) {
+                flow = new Flow(queue, true);
+                queue.mChunkFlow = flow;
+                mFlowList.add(flow);
+                mFlowCount = mFlowList.size();
+            }
+        }
+        return flow;
+    }
+
+    /**
+     * Throws away the queued chunks of the transfer and, unless this was its last chunk, the
+     * ones still to come.
+     */
+    private void dropTransfer(ApkQueue queue, Flow flow, int transferId, boolean last) {
+        List<Record> chunks = new ArrayList<>();
+        for (Record record : flow.mQueue) {
+            if (record.mTransferId == transferId) {
+                chunks.add(record);
+            }
+        }
+        int removed = 0;
+        for (Record record : chunks) {
+            // Only counts the ones the worker didn't take in the meantime
+            if (flow.mQueue.remove(record)) {
+                removed += record.mData.length;
+            }
+        }
+        queue.mChunkBytes.addAndGet(-removed);
+
+        if (!last) {
+            if (queue.mDroppedTransfers.size() >= MAX_DROPPED_TRANSFERS) {
+                Iterator<Integer> oldest = queue.mDroppedTransfers.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            queue.mDroppedTransfers.add(transferId);
+        }
+
+        ManagerNode.INSTANCE().getLogger().error(LOG_TAG, "Apk " + queue.mApkName + " has too " +
+                "much chunked data waiting to be sent to the ground so transfer " + transferId +
+                " was dropped.");
+    }
+
+    private void wake() {
+        if (mIdle.compareAndSet(true, false)) {
+            LockSupport.unpark(mWorker);
+        }
+    }
+
+    private void recycle(Record record) {
+        record.mTopic = null;
+        record.mData = null;
+        mFreeRecords.add(record);
+    }
+
+    private void drain() {
+        Flow[] flows = new Flow[0];
+        ApkQueue[] queues = new ApkQueue[0];
+        long[] lastLost = new long[0];
+        long nextStats = System.nanoTime() + STATS_PERIOD_NS;
+
+        while (mWorker == Thread.currentThread()) {
+            // Pick up apks and topics that showed up since the last pass
+            if (flows.length != mFlowCount) {
+                synchronized (mQueueList) {
+                    flows = mFlowList.toArray(new Flow[mFlowList.size()]);
+                    queues = mQueueList.toArray(new ApkQueue[mQueueList.size()]);
+                }
+                long[] lost = new long[queues.length];
+                System.arraycopy(lastLost, 0, lost, 0, lastLost.length);
+                lastLost = lost;
+            }
+
+            long now = System.nanoTime();
+            for (ApkQueue queue : queues) {
+                queue.refill(now);
+                queue.mBusyFlows = 0;
+            }
+            refillChunks(now);
+            for (Flow flow : flows) {
+                if (!flow.mQueue.isEmpty()) {
+                    flow.mApk.mBusyFlows++;
+                }
+            }
+
+            // Pick the data with the earliest start tag among apks that have budget for it, once
+            // the downlink is free
+            Flow next = null;
+            double nextStart = 0;
+            long wait = Long.MAX_VALUE;
+            long untilFree = mDownlink.nanosUntilFree();
+            for (Flow flow : flows) {
+                Record head = flow.mQueue.peek();
+                if (head == null) {
+                    continue;
+                }
+                long untilAllowed = Math.max(untilFree,
+                        flow.mApk.nanosUntilAllowed(head.mData.length));
+                if (flow.mChunks) {
+                    untilAllowed = Math.max(untilAllowed, nanosUntilChunkAllowed(
+                            head.mData.length));
+                }
+                if (untilAllowed > 0) {
+                    wait = Math.min(wait, untilAllowed);
+                    continue;
+                }
+                double start = Math.max(mVirtualTime, flow.mFinish);
+                if (next == null || start < nextStart) {
+                    next = flow;
+                    nextStart = start;
+                }
+            }
+
+            if (next != null) {
+                Record record = next.mQueue.poll();
+                if (record == null) {
+                    // Offer dropped it to make room since we peeked, so pick again
+                    continue;
+                }
+                ApkQueue queue = next.mApk;
+                if (next.mChunks) {
+                    queue.mChunkBytes.addAndGet(-record.mData.length);
+                    mChunkTokens -= record.mData.length;
+                } else {
+                    queue.mDepth.decrementAndGet();
+                }
+                queue.consume(record.mData.length);
+                mVirtualTime = nextStart;
+                // The apk's share is split between its busy topics
+                next.mFinish = nextStart + record.mData.length * Math.max(1, queue.mBusyFlows)
+                        / queue.mWeight;
+                try {
+                    // Chunks are as big as messages get, so there is nothing to gain packing them
+                    if (!next.mChunks && (queue.mPackWindowMs > 0 || queue.mCompress)) {
+                        pack(queue, record, now);
+                    } else {
+                        ManagerNode.INSTANCE().publishGuestScienceData(queue.mApkName,
+                                record.mTopic, record.mType, record.mData);
+                    }
+                    queue.mPublished.incrementAndGet();
+                } catch (RuntimeException e) {
+                    ManagerNode.INSTANCE().getLogger().error(LOG_TAG, "Unable to publish " +
+                            "guest science data for apk " + queue.mApkName + ".", e);
+                }
+                if (!next.mChunks) {
+                    recycle(record);
+                }
+            }
+
+            // Send packed data whose window is up
+            for (ApkQueue queue : queues) {
+                if (queue.mPacker == null || queue.mPacker.isEmpty()) {
+                    continue;
+                }
+                if (queue.mPacker.getDeadline() - now <= 0) {
+                    flush(queue);
+                } else {
+                    wait = Math.min(wait, queue.mPacker.getDeadline() - now);
+                }
+            }
+
+            if (now - nextStats >= 0) {
+                nextStats = now + STATS_PERIOD_NS;
+                reportOverflow(queues, lastLost);
+            }
+
+            if (next == null) {
+                // Offer unparks us once it sees we are idle. Check again after saying so in case
+                // data came in just before.
+                mIdle.set(true);
+                if (wait != Long.MAX_VALUE || (isEmpty(flows) && flows.length == mFlowCount)) {
+                    LockSupport.parkNanos(this, Math.max(0, Math.min(wait, nextStats - now)));
+                }
+                mIdle.set(false);
+            }
+        }
+
+        for (ApkQueue queue : queues) {
+            flush(queue);
+        }
+    }
+
+    // Up to one chunk's worth of budget may be saved up
+    private void refillChunks(long now) {
+        double seconds = (now - mLastChunkRefill) / 1e9;
+        mLastChunkRefill = now;
+        mChunkTokens = Math.min(Constants.MAX_DATA_SIZE,
+                mChunkTokens + seconds * mChunkBytesPerSecond);
+    }
+
+    private long nanosUntilChunkAllowed(int bytes) {
+        if (mChunkTokens >= bytes) {
+            return 0;
+        }
+        return (long) Math.ceil((bytes - mChunkTokens) / mChunkBytesPerSecond * 1e9);
+    }
+
+    private void pack(ApkQueue queue, Record record, long now) {
+        if (queue.mPacker == null) {
+            queue.mPacker = new DataPacker(queue.mApkName);
+        }
+        if (!queue.mPacker.add(record.mTopic, record.mType, record.mData, now,
+                queue.mPackWindowMs)) {
+            flush(queue);
+            queue.mPacker.add(record.mTopic, record.mType, record.mData, now,
+                    queue.mPackWindowMs);
+        }
+        if (queue.mPacker.getDeadline() - now <= 0) {
+            flush(queue);
+        }
+    }
+
+    private void flush(ApkQueue queue) {
+        if (queue.mPacker == null) {
+            return;
+        }
+        Deflater deflater = null;
+        if (queue.mCompress) {
+            if (mDeflater == null) {
+                mDeflater = new Deflater(Deflater.BEST_SPEED);
+            }
+            deflater = mDeflater;
+        }
+        try {
+            queue.mPacker.flush(deflater, mDeflated);
+        } catch (RuntimeException e) {
+            ManagerNode.INSTANCE().getLogger().error(LOG_TAG, "Unable to publish packed " +
+                    "guest science data for apk " + queue.mApkName + ".", e);
+        }
+    }
+
+    /**
+     * Logs and sends the ground the counters of every apk that lost data since the last
+     * report, as JSON guest science data from the manager itself.
+     */
+    private void reportOverflow(ApkQueue[] queues, long[] lastLost) {
+        StringBuilder json = null;
+        for (int i = 0; i < queues.length; i++) {
+            ApkQueue queue = queues[i];
+            long lost = queue.getDropped() + queue.getRejected();
+            if (lost == lastLost[i]) {
+                continue;
+            }
+            ManagerNode.INSTANCE().getLogger().warn(LOG_TAG, "Apk " + queue.mApkName + " sent " +
+                    "data faster than it could be sent to the ground. " + (lost - lastLost[i]) +
+                    " messages were lost in the last " +
+                    TimeUnit.NANOSECONDS.toSeconds(STATS_PERIOD_NS) + " seconds; " +
+                    queue.getDepth() + " are waiting.");
+            lastLost[i] = lost;
+
+            json = json == null ? new StringBuilder("{\"Summary\": \"Data overflow\", \"apks\": [")
+                    : json.append(", ");
+            json.append("{\"name\": \"").append(queue.mApkName)
+                    .append("\", \"published\": ").append(queue.getPublished())
+                    .append(", \"dropped\": ").append(queue.getDropped())
+                    .append(", \"rejected\": ").append(queue.getRejected())
+                    .append(", \"waiting\": ").append(queue.getDepth())
+                    .append(", \"maxWaiting\": ").append(queue.getMaxDepth())
+                    .append('}');
+        }
+        if (json == null) {
+            return;
+        }
+        json.append("]}");
+        try {
+            ManagerNode.INSTANCE().publishGuestScienceData(Constants.MANAGER_APK_NAME,
+                    Constants.TOPIC_DATA_OVERFLOW, MessageType.JSON,
+                    json.toString().getBytes(UTF_8));
+        } catch (RuntimeException e) {
+            ManagerNode.INSTANCE().getLogger().error(LOG_TAG, "Unable to report data overflow.",
+                    e);
+        }
+    }
+
+    private static boolean isEmpty(Flow[] flows) {
+        for (Flow flow : flows) {
+            if (!flow.mQueue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
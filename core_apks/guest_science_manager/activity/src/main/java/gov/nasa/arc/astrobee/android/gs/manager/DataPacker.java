@@ -0,0 +1,179 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.android.gs.manager;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Packs small data messages of one apk into a single guest science data message, and
+ * optionally deflates it, to cut the per message overhead on the downlink. Only used for apks
+ * that ask for it, and only by the data ingest worker.
+ *
+ * A packed message is binary data on the reserved topic Constants.TOPIC_PACKED_DATA made of:
+ *
+ *   byte    flags, bit 0 set if the rest is deflated
+ *
+ * then, for every original message, in the order they were sent:
+ *
+ *   varint  length of the topic, then the topic in UTF-8
+ *   byte    message type
+ *   varint  length of the data, then the data
+ *
+ * The guest science library's DataUnpacker takes them apart on the ground. A lone message that
+ * doesn't get smaller is sent as it was.
+ */
+class DataPacker {
+    static final int FLAG_DEFLATED = 1;
+
+    private static final int HEADER_SIZE = 1;
+    // Not worth deflating less than this
+    private static final int MIN_DEFLATE_SIZE = 64;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String mApkName;
+    private final byte[] mBuffer = new byte[Constants.MAX_DATA_SIZE];
+    private int mLength = HEADER_SIZE;
+    private int mCount = 0;
+    private long mDeadline = 0;
+    // Set if the only message was too big to pack
+    private boolean mOversized = false;
+
+    // The first message, sent as is if nothing else gets packed with it
+    private String mFirstTopic;
+    private MessageType mFirstType;
+    private byte[] mFirstData;
+
+    DataPacker(String apkName) {
+        mApkName = apkName;
+    }
+
+    boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    /**
+     * @return System.nanoTime() by which the packed data must be sent.
+     */
+    long getDeadline() {
+        return mDeadline;
+    }
+
+    /**
+     * @return false if the data doesn't fit, in which case the packer must be flushed and the
+     * data added again.
+     */
+    boolean add(String topic, MessageType type, byte[] data, long now, int windowMs) {
+        byte[] topicBytes = topic.getBytes(UTF_8);
+        int size = varintSize(topicBytes.length) + topicBytes.length + 1
+                + varintSize(data.length) + data.length;
+        if (mLength + size > mBuffer.length) {
+            if (mCount != 0) {
+                return false;
+            }
+            // Too big to pack even on its own, so it will be sent as it is
+            mFirstTopic = topic;
+            mFirstType = type;
+            mFirstData = data;
+            mCount = 1;
+            mDeadline = now;
+            mOversized = true;
+            return true;
+        }
+
+        if (mCount == 0) {
+            mFirstTopic = topic;
+            mFirstType = type;
+            mFirstData = data;
+            mDeadline = now + TimeUnit.MILLISECONDS.toNanos(windowMs);
+        }
+        writeVarint(topicBytes.length);
+        System.arraycopy(topicBytes, 0, mBuffer, mLength, topicBytes.length);
+        mLength += topicBytes.length;
+        mBuffer[mLength++] = (byte) type.toInt();
+        writeVarint(data.length);
+        System.arraycopy(data, 0, mBuffer, mLength, data.length);
+        mLength += data.length;
+        mCount++;
+        return true;
+    }
+
+    /**
+     * Sends whatever has been packed.
+     *
+     * @param deflater Used to compress the data if not null. Reset before use.
+     */
+    void flush(Deflater deflater, byte[] scratch) {
+        if (mCount == 0) {
+            return;
+        }
+
+        byte[] packed = null;
+        if (!mOversized && deflater != null && mLength - HEADER_SIZE >= MIN_DEFLATE_SIZE) {
+            deflater.reset();
+            deflater.setInput(mBuffer, HEADER_SIZE, mLength - HEADER_SIZE);
+            deflater.finish();
+            int deflated = deflater.deflate(scratch, 0, scratch.length);
+            // Only use it if it all fit and actually saved something
+            if (deflater.finished() && deflated + HEADER_SIZE < mLength) {
+                packed = new byte[HEADER_SIZE + deflated];
+                packed[0] = FLAG_DEFLATED;
+                System.arraycopy(scratch, 0, packed, HEADER_SIZE, deflated);
+            }
+        }
+        if (packed == null && !mOversized && mCount > 1) {
+            packed = Arrays.copyOf(mBuffer, mLength);
+        }
+
+        String topic = mFirstTopic;
+        MessageType type = mFirstType;
+        byte[] data = mFirstData;
+        mLength = HEADER_SIZE;
+        mCount = 0;
+        mOversized = false;
+        mFirstTopic = null;
+        mFirstType = null;
+        mFirstData = null;
+
+        if (packed == null) {
+            ManagerNode.INSTANCE().publishGuestScienceData(mApkName, topic, type, data);
+        } else {
+            ManagerNode.INSTANCE().publishGuestScienceData(mApkName,
+                    Constants.TOPIC_PACKED_DATA, MessageType.BINARY, packed);
+        }
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            mBuffer[mLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mBuffer[mLength++] = (byte) value;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,794 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.android.gs.manager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps guest science data on the sdcard while nobody is subscribed to the guest science data
+ * topic, e.g. because the link to the ground or the ROS master is down, and sends it once
+ * someone subscribes again.
+ *
+ * Every apk has its own append-only spool in the spool folder of its delayed data folder. A
+ * spool is a series of memory-mapped segment files of SEGMENT_SIZE bytes, each holding records
+ * of:
+ *
+ *   int     length of the rest of the record, zero marks the end of the segment
+ *   int     CRC32 of the rest of the record
+ *   byte    message type
+ *   short   length of the topic, then the topic in UTF-8
+ *   the data
+ *
+ * The index file holds the segment and offset of the next record to send. It is written to a
+ * temporary file and renamed over the old one, so it is always either the old or the new
+ * position. Data is sent at least once: after a crash, records sent since the index was last
+ * written are sent again. A torn record at the end of the last segment fails its CRC and is
+ * dropped along with anything after it.
+ *
+ * An apk's spool holds at most MAX_SEGMENTS segments. When it is full the oldest segment is
+ * dropped, unsent or not.
+ *
+ * While an apk has spooled data, its new data is spooled too so the ground gets everything in
+ * the order it was sent. The spool counts as holding data until the last record taken from it
+ * has been sent. A single spool thread does all the disk work, so offer only queues the data in
+ * memory and never blocks the thread publishing it. The same thread sends the spooled data,
+ * taking turns between apks, whenever the Downlink is free. It shares the link with live data
+ * rather than having a rate of its own, and the live data of an apk that is spooling isn't
+ * sent, so a backlog is replayed as fast as the link allows and the apk goes back to sending
+ * live once it has caught up.
+ */
+class DataSpool {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final String SPOOL_FOLDER = "spool";
+    static final int SEGMENT_SIZE = 1024 * 1024;
+    static final int MAX_SEGMENTS = 16;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final String INDEX_FILE = "index";
+    private static final String INDEX_TEMP_FILE = "index.tmp";
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+    // How many records may be sent before the index is written
+    private static final int INDEX_INTERVAL = 32;
+    // How often to check for subscribers if nobody tells us about one
+    private static final long POLL_INTERVAL_MS = 1000;
+
+    /**
+     * What the spool needs from the manager, so it can be tested on its own.
+     */
+    interface Host {
+        /**
+         * @return true if data sent now will make it off the robot.
+         */
+        boolean hasDataSubscribers();
+
+        void sendGuestScienceData(String apkName, String topic, MessageType type, byte[] data);
+
+        void warn(String msg);
+
+        void error(String msg, Throwable e);
+    }
+
+    static final class Record {
+        final String mTopic;
+        final MessageType mType;
+        final byte[] mData;
+
+        Record(String topic, MessageType type, byte[] data) {
+            mTopic = topic;
+            mType = type;
+            mData = data;
+        }
+    }
+
+    /**
+     * The spool of one apk. Data offered from other threads waits in mUnwritten until the spool
+     * thread appends it. Everything else is only used by the spool thread, except isEmpty, so
+     * the methods touching the segments are synchronized.
+     */
+    static final class ApkSpool {
+        private final String mApkName;
+        private final File mDir;
+        private final Host mHost;
+        private final int mSegmentSize;
+        private final int mMaxSegments;
+        private final CRC32 mCrc = new CRC32();
+        private final ConcurrentLinkedQueue<Record> mUnwritten = new ConcurrentLinkedQueue<>();
+        // Set once the segments are open, or if they can't be
+        private volatile boolean mOpen = false;
+        private volatile boolean mBroken = false;
+        // Whether a record has been taken by next but not sent yet
+        private boolean mInFlight = false;
+
+        private long mFirstSegment;
+        private long mWriteSegment;
+        private MappedByteBuffer mWriteBuffer;
+
+        private long mReadSegment;
+        private ByteBuffer mReadBuffer;
+        private int mUnindexed = 0;
+        private long mDroppedSegments = 0;
+
+        ApkSpool(String apkName, File dir, Host host, int segmentSize, int maxSegments) {
+            mApkName = apkName;
+            mDir = dir;
+            mHost = host;
+            mSegmentSize = segmentSize;
+            mMaxSegments = maxSegments;
+        }
+
+        String getApkName() {
+            return mApkName;
+        }
+
+        long getDroppedSegments() {
+            return mDroppedSegments;
+        }
+
+        /**
+         * @return true if everything offered to the spool has been sent. Data is appended to
+         * the segments before it leaves mUnwritten, so it is always in one or the other.
+         */
+        boolean isEmpty() {
+            return mOpen && mUnwritten.isEmpty() && isDrained();
+        }
+
+        private synchronized boolean isDrained() {
+            return !mInFlight && mReadSegment == mWriteSegment
+                    && mReadBuffer.position() == mWriteBuffer.position();
+        }
+
+        /**
+         * Appends the data offered since the last call. Spool thread only.
+         */
+        void writeUnwritten() {
+            Record record;
+            while ((record = mUnwritten.peek()) != null) {
+                try {
+                    append(record.mTopic, record.mType, record.mData);
+                } catch (IOException e) {
+                    mHost.error("Unable to spool guest science data for apk " + mApkName + ".",
+                            e);
+                }
+                mUnwritten.poll();
+            }
+        }
+
+        synchronized void append(String topic, MessageType type, byte[] data) throws IOException {
+            byte[] topicBytes = topic.getBytes(UTF_8);
+            int length = 1 + 2 + topicBytes.length + data.length;
+            if (RECORD_HEADER_SIZE + length + RECORD_HEADER_SIZE > mSegmentSize) {
+                throw new IOException("Data is too big to spool.");
+            }
+            // Always leave room for the zero length that ends the segment
+            if (mWriteBuffer.remaining() < RECORD_HEADER_SIZE + length + RECORD_HEADER_SIZE) {
+                rotate();
+            }
+
+            int start = mWriteBuffer.position();
+            mWriteBuffer.position(start + RECORD_HEADER_SIZE);
+            mWriteBuffer.put((byte) type.toInt());
+            mWriteBuffer.putShort((short) topicBytes.length);
+            mWriteBuffer.put(topicBytes);
+            mWriteBuffer.put(data);
+            int end = mWriteBuffer.position();
+
+            mCrc.reset();
+            ByteBuffer body = mWriteBuffer.duplicate();
+            body.position(start + RECORD_HEADER_SIZE);
+            body.limit(end);
+            updateCrc(body);
+            // Write the length last so a reader never sees a partial record
+            mWriteBuffer.putInt(start + 4, (int) mCrc.getValue());
+            mWriteBuffer.putInt(start, length);
+        }
+
+        /**
+         * @return the next record to send, or null if everything has been sent. The record
+         * counts as unsent until sent is called.
+         */
+        synchronized Record next() throws IOException {
+            while (true) {
+                if (mReadSegment == mWriteSegment
+                        && mReadBuffer.position() >= mWriteBuffer.position()) {
+                    if (mUnindexed > 0) {
+                        writeIndex();
+                    }
+                    return null;
+                }
+
+                int position = mReadBuffer.position();
+                int length = mSegmentSize - position < RECORD_HEADER_SIZE ? 0
+                        : mReadBuffer.getInt(position);
+                if (length <= 0) {
+                    if (mReadSegment == mWriteSegment) {
+                        return null;
+                    }
+                    nextSegment();
+                    continue;
+                }
+
+                int start = position + RECORD_HEADER_SIZE;
+                int end = mReadSegment == mWriteSegment ? mWriteBuffer.position() : mSegmentSize;
+                ByteBuffer body = null;
+                if (length >= 1 + 2 && length <= end - start) {
+                    body = mReadBuffer.duplicate();
+                    body.position(start);
+                    body.limit(start + length);
+                    mCrc.reset();
+                    updateCrc(body);
+                    body.position(start);
+                }
+                if (body == null || (int) mCrc.getValue() != mReadBuffer.getInt(position + 4)
+                        || length - 1 - 2 < (body.getShort(start + 1) & 0xFFFF)) {
+                    // Nothing after a bad record can be trusted, so skip the rest of the segment
+                    mHost.warn("Skipping corrupt data in the spool of apk " + mApkName + ".");
+                    if (mReadSegment == mWriteSegment) {
+                        mReadBuffer.position(end);
+                    } else {
+                        nextSegment();
+                    }
+                    continue;
+                }
+                mReadBuffer.position(start + length);
+
+                MessageType type = toMessageType(body.get());
+                byte[] topic = new byte[body.getShort() & 0xFFFF];
+                body.get(topic);
+                byte[] data = new byte[body.remaining()];
+                body.get(data);
+
+                if (++mUnindexed >= INDEX_INTERVAL) {
+                    writeIndex();
+                }
+                mInFlight = true;
+                return new Record(new String(topic, UTF_8), type, data);
+            }
+        }
+
+        // Done with the segment being read
+        private void nextSegment() throws IOException {
+            mReadSegment++;
+            mReadBuffer = mapReadSegment(mReadSegment);
+            writeIndex();
+            deleteSegmentsBefore(mReadSegment);
+        }
+
+        /**
+         * Called once the record from next has been sent, or given up on.
+         */
+        synchronized void sent() {
+            mInFlight = false;
+        }
+
+        synchronized void close() {
+            if (!mOpen) {
+                return;
+            }
+            try {
+                writeIndex();
+            } catch (IOException e) {
+                mHost.error("Unable to write the spool index of apk " + mApkName + ".", e);
+            }
+        }
+
+        /**
+         * Opens the segments, picking up anything spooled before the manager last stopped.
+         * Spool thread only.
+         */
+        synchronized void open() throws IOException {
+            if (!mDir.isDirectory() && !mDir.mkdirs()) {
+                throw new IOException("Unable to create spool folder " + mDir + ".");
+            }
+            List<Long> segments = listSegments();
+            if (segments.isEmpty()) {
+                mFirstSegment = 0;
+                mWriteSegment = 0;
+            } else {
+                mFirstSegment = segments.get(0);
+                mWriteSegment = segments.get(segments.size() - 1);
+            }
+            mWriteBuffer = mapSegment(mWriteSegment);
+            mWriteBuffer.position(scanValid(mWriteBuffer));
+
+            // Start where the index says, if that segment is still there
+            mReadSegment = mFirstSegment;
+            int readOffset = 0;
+            long[] index = readIndex();
+            if (index != null && index[0] >= mFirstSegment && index[0] <= mWriteSegment) {
+                mReadSegment = index[0];
+                readOffset = (int) index[1];
+            }
+            mReadBuffer = mapReadSegment(mReadSegment);
+            mReadBuffer.position(Math.min(readOffset, mReadSegment == mWriteSegment
+                    ? mWriteBuffer.position() : mSegmentSize));
+            mOpen = true;
+        }
+
+        private void rotate() throws IOException {
+            if (mWriteSegment - mFirstSegment + 1 >= mMaxSegments) {
+                // Full, so make room by dropping the oldest data
+                if (mReadSegment == mFirstSegment) {
+                    mReadSegment++;
+                    mReadBuffer = null;
+                }
+                deleteSegment(mFirstSegment);
+                mFirstSegment++;
+                mDroppedSegments++;
+                mHost.warn("Spool of apk " + mApkName + " is full so its oldest data was " +
+                        "dropped.");
+            }
+            mWriteBuffer.force();
+            mWriteSegment++;
+            mWriteBuffer = mapSegment(mWriteSegment);
+            if (mReadBuffer == null) {
+                mReadBuffer = mapReadSegment(mReadSegment);
+                writeIndex();
+            }
+        }
+
+        /**
+         * @return the buffer to read the segment with. The segment being written is read
+         * through a view of the write buffer so appends show up right away.
+         */
+        private ByteBuffer mapReadSegment(long segment) throws IOException {
+            if (segment == mWriteSegment) {
+                ByteBuffer buffer = mWriteBuffer.duplicate();
+                buffer.position(0);
+                buffer.limit(mSegmentSize);
+                return buffer;
+            }
+            return mapSegment(segment);
+        }
+
+        private MappedByteBuffer mapSegment(long segment) throws IOException {
+            RandomAccessFile file = new RandomAccessFile(segmentFile(segment), "rw");
+            try {
+                if (file.length() != mSegmentSize) {
+                    file.setLength(mSegmentSize);
+                }
+                // The mapping stays valid after the file is closed
+                return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+            } finally {
+                file.close();
+            }
+        }
+
+        /**
+         * @return the offset just past the last record with a valid CRC.
+         */
+        private int scanValid(ByteBuffer buffer) {
+            int position = 0;
+            while (position + RECORD_HEADER_SIZE <= mSegmentSize) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > mSegmentSize - position - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                ByteBuffer body = buffer.duplicate();
+                body.position(position + RECORD_HEADER_SIZE);
+                body.limit(position + RECORD_HEADER_SIZE + length);
+                mCrc.reset();
+                updateCrc(body);
+                if ((int) mCrc.getValue() != buffer.getInt(position + 4)) {
+                    break;
+                }
+                position += RECORD_HEADER_SIZE + length;
+            }
+            // Clear whatever a crash left behind, all of it, so a shorter record appended here
+            // later isn't followed by the remains of a longer one
+            byte[] zeros = new byte[4096];
+            ByteBuffer rest = buffer.duplicate();
+            rest.position(position);
+            rest.limit(mSegmentSize);
+            while (rest.hasRemaining()) {
+                rest.put(zeros, 0, Math.min(zeros.length, rest.remaining()));
+            }
+            return position;
+        }
+
+        private void updateCrc(ByteBuffer body) {
+            byte[] chunk = new byte[Math.min(body.remaining(), 4096)];
+            while (body.hasRemaining()) {
+                int n = Math.min(chunk.length, body.remaining());
+                body.get(chunk, 0, n);
+                mCrc.update(chunk, 0, n);
+            }
+        }
+
+        private long[] readIndex() {
+            File file = new File(mDir, INDEX_FILE);
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                RandomAccessFile in = new RandomAccessFile(file, "r");
+                try {
+                    long segment = in.readLong();
+                    int offset = in.readInt();
+                    int crc = in.readInt();
+                    mCrc.reset();
+                    mCrc.update(ByteBuffer.allocate(12).putLong(segment).putInt(offset).array());
+                    if ((int) mCrc.getValue() != crc) {
+                        return null;
+                    }
+                    return new long[] { segment, offset };
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private void writeIndex() throws IOException {
+            mUnindexed = 0;
+            byte[] position = ByteBuffer.allocate(12).putLong(mReadSegment)
+                    .putInt(mReadBuffer.position()).array();
+            mCrc.reset();
+            mCrc.update(position);
+
+            File temp = new File(mDir, INDEX_TEMP_FILE);
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(position);
+                out.write(ByteBuffer.allocate(4).putInt((int) mCrc.getValue()).array());
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(new File(mDir, INDEX_FILE))) {
+                throw new IOException("Unable to replace spool index " + mDir + "/" + INDEX_FILE
+                        + ".");
+            }
+        }
+
+        private List<Long> listSegments() {
+            List<Long> segments = new ArrayList<>();
+            String[] names = mDir.list();
+            if (names == null) {
+                return segments;
+            }
+            for (String name : names) {
+                if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+            Long[] sorted = segments.toArray(new Long[segments.size()]);
+            Arrays.sort(sorted);
+            return Arrays.asList(sorted);
+        }
+
+        private void deleteSegmentsBefore(long segment) {
+            while (mFirstSegment < segment) {
+                deleteSegment(mFirstSegment);
+                mFirstSegment++;
+            }
+        }
+
+        private void deleteSegment(long segment) {
+            File file = segmentFile(segment);
+            if (file.exists() && !file.delete()) {
+                mHost.warn("Unable to delete spool segment " + file + ".");
+            }
+        }
+
+        private File segmentFile(long segment) {
+            return new File(mDir, String.format("%s%010d%s", SEGMENT_PREFIX, segment,
+                    SEGMENT_SUFFIX));
+        }
+
+        private static MessageType toMessageType(byte value) {
+            for (MessageType type : MessageType.values()) {
+                if (type.toInt() == value) {
+                    return type;
+                }
+            }
+            return MessageType.BINARY;
+        }
+    }
+
+    private final File mBaseDir;
+    private final Downlink mDownlink;
+    private final Host mHost;
+    private final int mSegmentSize;
+    private final int mMaxSegments;
+    private final ConcurrentMap<String, ApkSpool> mSpools = new ConcurrentHashMap<>();
+    private final Object mWakeLock = new Object();
+    // Guarded by mWakeLock, so a wake between checking for work and waiting isn't lost
+    private boolean mWoken = false;
+    // The spool thread keeps going as long as it is this thread
+    private volatile Thread mWorker;
+    // The last spool thread, which the next one waits for
+    private Thread mPrevious;
+
+    /**
+     * @param baseDir  Folder holding the data folder of every apk.
+     * @param downlink The link spooled data is replayed on.
+     */
+    DataSpool(File baseDir, Downlink downlink, Host host) {
+        this(baseDir, downlink, host, SEGMENT_SIZE, MAX_SEGMENTS);
+    }
+
+    DataSpool(File baseDir, Downlink downlink, Host host, int segmentSize, int maxSegments) {
+        mBaseDir = baseDir;
+        mDownlink = downlink;
+        mHost = host;
+        mSegmentSize = segmentSize;
+        mMaxSegments = maxSegments;
+    }
+
+    /**
+     * Spools the data if nobody is listening or the apk already has data waiting. Only queues
+     * the data; the spool thread writes it to disk.
+     *
+     * @return true if the data was spooled, false if it should be published now.
+     */
+    public boolean offer(String apkName, String topic, MessageType type, byte[] data,
+                         boolean connected) {
+        ApkSpool spool = mSpools.get(apkName);
+        if (spool != null && spool.mBroken) {
+            // Better to try sending it than to lose it for sure
+            return false;
+        }
+        if (connected && (spool == null || spool.isEmpty())) {
+            return false;
+        }
+        if (spool == null) {
+            spool = getSpool(apkName);
+        }
+        spool.mUnwritten.add(new Record(topic, type, data));
+        wake();
+        return true;
+    }
+
+    /**
+     * @return true if the apk has data in the spool that hasn't been sent yet.
+     */
+    boolean hasBacklog(String apkName) {
+        ApkSpool spool = mSpools.get(apkName);
+        return spool != null && !spool.isEmpty();
+    }
+
+    /**
+     * Tells the spool thread there is data to write or may be someone to send it to.
+     */
+    public void wake() {
+        synchronized (mWakeLock) {
+            mWoken = true;
+            mWakeLock.notifyAll();
+        }
+    }
+
+    public synchronized void start() {
+        if (mWorker != null) {
+            return;
+        }
+        final Thread previous = mPrevious;
+        mWorker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // The last thread may still be closing the spools
+                if (!join(previous)) {
+                    return;
+                }
+                openExisting();
+                work();
+            }
+        }, "gs-data-spool");
+        mWorker.setDaemon(true);
+        mWorker.start();
+    }
+
+    public synchronized void stop() {
+        mPrevious = mWorker;
+        mWorker = null;
+        wake();
+    }
+
+    /**
+     * Waits until the spool thread that stop stopped has closed the spools.
+     */
+    void awaitStopped() throws InterruptedException {
+        Thread previous;
+        synchronized (this) {
+            previous = mPrevious;
+        }
+        if (previous != null) {
+            previous.join();
+        }
+    }
+
+    private ApkSpool getSpool(String apkName) {
+        ApkSpool spool = mSpools.get(apkName);
+        if (spool == null) {
+            ApkSpool created = new ApkSpool(apkName, spoolDir(apkName), mHost, mSegmentSize,
+                    mMaxSegments);
+            spool = mSpools.putIfAbsent(apkName, created);
+            if (spool == null) {
+                spool = created;
+            }
+        }
+        return spool;
+    }
+
+    private File spoolDir(String apkName) {
+        return new File(new File(new File(mBaseDir, apkName), "delayed"), SPOOL_FOLDER);
+    }
+
+    // Picks up data spooled before the manager last stopped
+    private void openExisting() {
+        String[] apks = mBaseDir.list();
+        if (apks == null) {
+            return;
+        }
+        for (String apkName : apks) {
+            if (hasSegments(spoolDir(apkName))) {
+                getSpool(apkName);
+            }
+        }
+    }
+
+    private static boolean hasSegments(File dir) {
+        String[] names = dir.list();
+        if (names == null) {
+            return false;
+        }
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void work() {
+        while (mWorker == Thread.currentThread()) {
+            writeUnwritten();
+
+            boolean sent = false;
+            long untilFree = 0;
+            if (mHost.hasDataSubscribers()) {
+                // Take turns so one apk's backlog doesn't hold up the others
+                for (ApkSpool spool : mSpools.values()) {
+                    untilFree = mDownlink.nanosUntilFree();
+                    if (untilFree > 0) {
+                        break;
+                    }
+                    if (spool.mOpen && replayOne(spool)) {
+                        sent = true;
+                    }
+                }
+            }
+            if (untilFree > 0 || !sent) {
+                // Offers still wake us to write their data while we wait for the link
+                long waitMs = untilFree > 0 ? Math.max(1, TimeUnit.NANOSECONDS.toMillis(
+                        untilFree)) : POLL_INTERVAL_MS;
+                synchronized (mWakeLock) {
+                    try {
+                        if (!mWoken && mWorker == Thread.currentThread()) {
+                            mWakeLock.wait(waitMs);
+                        }
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    mWoken = false;
+                }
+            }
+        }
+
+        writeUnwritten();
+        for (ApkSpool spool : mSpools.values()) {
+            spool.close();
+        }
+    }
+
+    // Opens new spools and appends the data offered since the last pass
+    private void writeUnwritten() {
+        for (ApkSpool spool : mSpools.values()) {
+            if (spool.mBroken) {
+                continue;
+            }
+            if (!spool.mOpen) {
+                try {
+                    spool.open();
+                } catch (IOException | RuntimeException e) {
+                    mHost.error("Unable to open the spool of apk " + spool.getApkName() +
+                            ", so its data won't be spooled.", e);
+                    spool.mBroken = true;
+                    sendUnwritten(spool);
+                    continue;
+                }
+            }
+            spool.writeUnwritten();
+        }
+    }
+
+    // Last resort for data that can't be spooled
+    private void sendUnwritten(ApkSpool spool) {
+        Record record;
+        while ((record = spool.mUnwritten.poll()) != null) {
+            send(spool, record);
+        }
+    }
+
+    /**
+     * @return true if a record was sent.
+     */
+    private boolean replayOne(ApkSpool spool) {
+        Record record;
+        try {
+            record = spool.next();
+        } catch (IOException | RuntimeException e) {
+            mHost.error("Unable to read the spool of apk " + spool.getApkName() + ".", e);
+            return false;
+        }
+        if (record == null) {
+            return false;
+        }
+        try {
+            send(spool, record);
+        } finally {
+            spool.sent();
+        }
+        return true;
+    }
+
+    private void send(ApkSpool spool, Record record) {
+        try {
+            mHost.sendGuestScienceData(spool.getApkName(), record.mTopic, record.mType,
+                    record.mData);
+        } catch (RuntimeException e) {
+            mHost.error("Unable to send spooled guest science data for apk " +
+                    spool.getApkName() + ".", e);
+        }
+    }
+
+    private static boolean join(Thread thread) {
+        if (thread == null) {
+            return true;
+        }
+        try {
+            thread.join();
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
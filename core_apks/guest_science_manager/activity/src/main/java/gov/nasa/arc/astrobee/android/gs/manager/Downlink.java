@@ -0,0 +1,71 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.android.gs.manager;
+
+/**
+ * The share of the downlink all guest science data goes out on. Every message published to the
+ * ground is charged to it, whoever sends it, and the senders wait until it is free again before
+ * publishing more. That keeps the data ingest worker's queues, rather than the link, holding
+ * the backlog, so its fair queuing decides who goes next, and it lets spooled data be replayed
+ * as fast as the link allows without starving live data. Thread safe.
+ */
+class Downlink {
+    // Zero means no limit
+    private int mBytesPerSecond;
+    // Time at which everything charged so far has been sent
+    private long mNextFree = System.nanoTime();
+
+    Downlink(int bytesPerSecond) {
+        setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * @param bytesPerSecond How much guest science data may be published, zero for no limit.
+     */
+    public synchronized void setBytesPerSecond(int bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Downlink byte rate must not be negative.");
+        }
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @return how long until the data charged so far has been sent, zero if the link is free.
+     */
+    public synchronized long nanosUntilFree() {
+        if (mBytesPerSecond == 0) {
+            return 0;
+        }
+        return Math.max(0, mNextFree - System.nanoTime());
+    }
+
+    /**
+     * Accounts for data that was just published.
+     */
+    public synchronized void charge(int bytes) {
+        if (mBytesPerSecond == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        // Idle time doesn't build up into a burst
+        if (mNextFree - now < 0) {
+            mNextFree = now;
+        }
+        mNextFree += (long) (bytes * 1e9 / mBytesPerSecond);
+    }
+}
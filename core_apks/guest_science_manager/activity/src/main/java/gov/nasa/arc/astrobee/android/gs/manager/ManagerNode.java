@@ -30,15 +30,19 @@ import android.util.Log;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.ros.internal.node.topic.SubscriberIdentifier;
 import org.ros.message.MessageFactory;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.AbstractNodeMain;
 import org.ros.node.ConnectedNode;
+import org.ros.node.Node;
 import org.ros.node.NodeConfiguration;
+import org.ros.node.topic.DefaultPublisherListener;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
 
+import java.io.File;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -66,12 +70,12 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
     private static final String LOG_TAG = "GuestScienceManager";
     private static final String INFO_ACTION = "gov.nasa.arc.astrobee.android.gs.INFO_INQUIRY";
 
-    private CmdInfo mCmdInfo;
+    // The command being executed for each apk, if any. Commands for different apks may be
+    // executed at the same time. Also guards the running apks in mState.
+    private final Map<String, CmdInfo> mApkCmds = new HashMap<>();
 
     private Context mContext;
 
-    private ManagerTimeoutTimer mStartTimer;
-
     private Logger mLogger;
 
     private Map<String, PendingIntent> mApkStartIntents;
@@ -94,6 +98,34 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
 
     private GuestScienceState mState;
 
+    private final Downlink mDownlink = new Downlink(Constants.DEFAULT_DOWNLINK_BYTES_PER_SECOND);
+
+    private final DataIngest mDataIngest = new DataIngest(Constants.MAX_QUEUED_DATA, mDownlink);
+
+    private final DataSpool mDataSpool = new DataSpool(new File(Constants.GUEST_SCIENCE_DATA_PATH),
+            mDownlink, new DataSpool.Host() {
+        @Override
+        public boolean hasDataSubscribers() {
+            return ManagerNode.this.hasDataSubscribers();
+        }
+
+        @Override
+        public void sendGuestScienceData(String apkName, String topic, MessageType type,
+                                         byte[] data) {
+            ManagerNode.this.sendGuestScienceData(apkName, topic, type, data);
+        }
+
+        @Override
+        public void warn(String msg) {
+            mLogger.warn(LOG_TAG, msg);
+        }
+
+        @Override
+        public void error(String msg, Throwable e) {
+            mLogger.error(LOG_TAG, msg, e);
+        }
+    });
+
     /* Lazy initialization singleton pattern */
     private ManagerNode() { }
 
@@ -132,50 +164,61 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
                 mLogger.error(LOG_TAG, msg);
             }
         } else if (cmd.getCmdName().equals(CommandConstants.CMD_NAME_STOP_GUEST_SCIENCE)) {
-            // Check to see if a start or stop guest science command is being executed. If it is,
-            // don't execute the stop command we just received.
-            if (!mCmdInfo.isCmdEmpty()) {
-                String cmdExecuting = mCmdInfo.getCmdType();
-                msg = "The guest science manager is busy trying to " + cmdExecuting + " a " +
-                        "different apk. Please wait until the command completes and then try " +
-                        "issuing the stop command again!";
-                sendAck(cmd.getCmdId(), AckCompletedStatus.EXEC_FAILED, msg);
-                mLogger.error(LOG_TAG, msg);
-                return;
-            }
-
             apkName = cmd.getArgs().get(0).getS();
-            if (!MessengerService.getSingleton().sendGuestScienceStop(apkName)) {
-                msg = "Couldn't send stop command to apk " + apkName + ". More than likely the " +
-                        "apk wasn't started.";
-                sendAck(cmd.getCmdId(), AckCompletedStatus.EXEC_FAILED, msg);
-                mLogger.error(LOG_TAG, msg);
-                return;
+            synchronized (mApkCmds) {
+                // Check to see if a start or stop command is being executed for this apk. If it
+                // is, don't execute the stop command we just received. Other apks don't matter.
+                CmdInfo cmdInfo = getCmdInfo(apkName);
+                if (!cmdInfo.isCmdEmpty()) {
+                    msg = "The guest science manager is busy trying to " + cmdInfo.getCmdType() +
+                            " apk " + apkName + ". Please wait until the command completes and " +
+                            "then try issuing the stop command again!";
+                    sendAck(cmd.getCmdId(), AckCompletedStatus.EXEC_FAILED, msg);
+                    mLogger.error(LOG_TAG, msg);
+                    return;
+                }
+
+                if (!MessengerService.getSingleton().sendGuestScienceStop(apkName)) {
+                    msg = "Couldn't send stop command to apk " + apkName + ". More than likely " +
+                            "the apk wasn't started.";
+                    sendAck(cmd.getCmdId(), AckCompletedStatus.EXEC_FAILED, msg);
+                    mLogger.error(LOG_TAG, msg);
+                    return;
+                }
+                cmdInfo.setCmd(cmd.getCmdId(), cmd.getCmdOrigin(), apkName, CmdType.STOP);
             }
-            mCmdInfo.setCmd(cmd.getCmdId(), cmd.getCmdOrigin(), apkName, CmdType.STOP);
             // TODO(Katie) Change this to happen after we receive confirmation that the messenger died
             ackGuestScienceStop(true, apkName, "");
         } else if (cmd.getCmdName().equals(CommandConstants.CMD_NAME_START_GUEST_SCIENCE)) {
-            // Check to see if a start or stop guest science command is being executed. If it is,
-            // don't execute the start command we just received.
-            if (!mCmdInfo.isCmdEmpty()) {
-                String cmdExecuting = mCmdInfo.getCmdType();
-                msg = "The guest science manager is busy trying to " + cmdExecuting + " a " +
-                        "different apk. Please wait until the command completes and then try " +
-                        "issuing the start command again!";
+            apkName = cmd.getArgs().get(0).getS();
+            if (!mApkStartIntents.containsKey(apkName)) {
+                msg = "Got command to start " + apkName + " but gs manager didn't receive a"
+                        + " valid information bundle and thus doesn't have the pending intent "
+                        + "needed to start the apk.";
                 sendAck(cmd.getCmdId(), AckCompletedStatus.EXEC_FAILED, msg);
                 mLogger.error(LOG_TAG, msg);
                 return;
             }
 
-            apkName = cmd.getArgs().get(0).getS();
-            if (mApkStartIntents.containsKey(apkName)) {
+            synchronized (mApkCmds) {
+                // Check to see if a start or stop command is being executed for this apk. If it
+                // is, don't execute the start command we just received. Other apks don't matter.
+                CmdInfo cmdInfo = getCmdInfo(apkName);
+                if (!cmdInfo.isCmdEmpty()) {
+                    msg = "The guest science manager is busy trying to " + cmdInfo.getCmdType() +
+                            " apk " + apkName + ". Please wait until the command completes and " +
+                            "then try issuing the start command again!";
+                    sendAck(cmd.getCmdId(), AckCompletedStatus.EXEC_FAILED, msg);
+                    mLogger.error(LOG_TAG, msg);
+                    return;
+                }
+
                 PendingIntent startApkIntent = mApkStartIntents.get(apkName);
                 try {
                     startApkIntent.send();
-                    mCmdInfo.setCmd(cmd.getCmdId(), cmd.getCmdOrigin(), apkName, CmdType.START);
+                    cmdInfo.setCmd(cmd.getCmdId(), cmd.getCmdOrigin(), apkName, CmdType.START);
                     // Start timeout timer
-                    mStartTimer.start();
+                    cmdInfo.mTimer.start();
                 } catch (PendingIntent.CanceledException e) {
                     msg = "Guest science manager encountered a pending intent canceled exeception "
                             + "when trying to start apk " + apkName + ".";
@@ -183,14 +226,7 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
                             AckCompletedStatus.EXEC_FAILED,
                             msg);
                     mLogger.error(LOG_TAG, msg, e);
-                    return;
                 }
-            } else {
-                msg = "Got command to start " + apkName + " but gs manager didn't receive a"
-                        + " valid information bundle and thus doesn't have the pending intent "
-                        + "needed to start the apk.";
-                sendAck(cmd.getCmdId(), AckCompletedStatus.EXEC_FAILED, msg);
-                mLogger.error(LOG_TAG, msg);
             }
         } else {
             msg = "Command " + cmd.getCmdName() + " is not a guest science command.";
@@ -199,81 +235,98 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
         }
     }
 
-    public void ackGuestScienceStart(boolean started, String apkName, String errMsg) {
-        Header hdr = mMessageFactory.newFromType(Header._TYPE);
-        if (!apkName.contentEquals(mCmdInfo.mApkName)) {
-            // If the apks don't match, don't ack the command or change the gs manager state
-            // since the apk probably started after the start timeout or the wrong apk started
-            mLogger.error(LOG_TAG, "The name of the apk started doesn't match the current command" +
-                    " apk name. Apk " + apkName + " probably didn't start within the start " +
-                    "timeout or the apk didn't send the full apk name known to the guest science " +
-                    "manager.");
-            return;
+    // Must be called with mApkCmds locked
+    private CmdInfo getCmdInfo(String apkName) {
+        CmdInfo cmdInfo = mApkCmds.get(apkName);
+        if (cmdInfo == null) {
+            cmdInfo = new CmdInfo();
+            cmdInfo.mTimer = new ManagerTimeoutTimer(apkName, Constants.START_TIMEOUT_MS);
+            mApkCmds.put(apkName, cmdInfo);
         }
+        return cmdInfo;
+    }
+
+    public void ackGuestScienceStart(boolean started, String apkName, String errMsg) {
+        synchronized (mApkCmds) {
+            CmdInfo cmdInfo = mApkCmds.get(apkName);
+            if (cmdInfo == null || cmdInfo.mType != CmdType.START) {
+                // If the apk isn't being started, don't ack the command or change the gs manager
+                // state since the apk probably started after the start timeout
+                mLogger.error(LOG_TAG, "Apk " + apkName + " isn't being started. It probably " +
+                        "didn't start within the start timeout or the apk didn't send the full " +
+                        "apk name known to the guest science manager.");
+                return;
+            }
 
-        // Stop timeout timer
-        mStartTimer.cancel();
-
-        // If the apk started successfully, update the gs manager state and ack the start command
-        if (started) {
-            if (!mApkStateLocations.containsKey(apkName)) {
-                errMsg = "Couldn't update the guest science manager state because it couldn't " +
-                        "find the index for " + apkName + ". However the apk seemed to stop " +
-                        "successfully";
-                mLogger.error(LOG_TAG, errMsg);
-                sendAck(mCmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
+            // Stop timeout timer
+            cmdInfo.mTimer.cancel();
+
+            // If the apk started successfully, update the gs manager state and ack the start
+            // command
+            if (started) {
+                if (!mApkStateLocations.containsKey(apkName)) {
+                    errMsg = "Couldn't update the guest science manager state because it " +
+                            "couldn't find the index for " + apkName + ". However the apk " +
+                            "seemed to start successfully";
+                    mLogger.error(LOG_TAG, errMsg);
+                    sendAck(cmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
+                } else {
+                    publishRunning(apkName, true);
+                    sendAck(cmdInfo.mId);
+                }
             } else {
-                int index = mApkStateLocations.get(apkName);
-                boolean[] runningApks = mState.getRunningApks();
-                runningApks[index] = true;
-                mState.setRunningApks(runningApks);
-                hdr.setStamp(mNodeConfig.getTimeProvider().getCurrentTime());
-                mState.setHeader(hdr);
-                mStatePublisher.publish(mState);
-                sendAck(mCmdInfo.mId);
+                // The apk didn't start successfully so don't update the state and fail the
+                // command ack
+                sendAck(cmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
             }
-        } else {
-            // The apk didn't start successfully so don't update the state and fail the command ack
-            sendAck(mCmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
+            cmdInfo.resetCmd();
         }
-        mCmdInfo.resetCmd();
     }
 
     public void ackGuestScienceStop(boolean stopped, String apkName, String errMsg) {
-        Header hdr = mMessageFactory.newFromType(Header._TYPE);
-        if (!apkName.contentEquals(mCmdInfo.mApkName)) {
-            // If the apks don't match, don't ack the command or change the gs manager state
-            // since the apk probably stopped after the stop timeout or the wrong apk stopped
-            mLogger.error(LOG_TAG, "The name of the apk started doesn't match the current command" +
-                    " apk name. Apk " + apkName + " probably didn't stop within the stop " +
-                    "timeout or the apk didn't send the full apk name known to the guest science " +
-                    "manager.");
-            return;
-        }
+        synchronized (mApkCmds) {
+            CmdInfo cmdInfo = mApkCmds.get(apkName);
+            if (cmdInfo == null || cmdInfo.mType != CmdType.STOP) {
+                // If the apk isn't being stopped, don't ack the command or change the gs manager
+                // state since the apk probably stopped after the stop timeout
+                mLogger.error(LOG_TAG, "Apk " + apkName + " isn't being stopped. It probably " +
+                        "didn't stop within the stop timeout or the apk didn't send the full " +
+                        "apk name known to the guest science manager.");
+                return;
+            }
 
-        // If the apk stopped successfully, update the gs manager state and ack the stop command
-        if (stopped) {
-            if (!mApkStateLocations.containsKey(apkName)) {
-                errMsg = "Couldn't update the guest science manager state because it couldn't " +
-                        "find the index for " + apkName + ". However the apk seemed to stop " +
-                        "successfully.";
-                mLogger.error(LOG_TAG, errMsg);
-                sendAck(mCmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
+            // If the apk stopped successfully, update the gs manager state and ack the stop
+            // command
+            if (stopped) {
+                if (!mApkStateLocations.containsKey(apkName)) {
+                    errMsg = "Couldn't update the guest science manager state because it " +
+                            "couldn't find the index for " + apkName + ". However the apk " +
+                            "seemed to stop successfully.";
+                    mLogger.error(LOG_TAG, errMsg);
+                    sendAck(cmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
+                } else {
+                    publishRunning(apkName, false);
+                    sendAck(cmdInfo.mId);
+                }
             } else {
-                int index = mApkStateLocations.get(apkName);
-                boolean[] runningApks = mState.getRunningApks();
-                runningApks[index] = false;
-                mState.setRunningApks(runningApks);
-                hdr.setStamp(mNodeConfig.getTimeProvider().getCurrentTime());
-                mState.setHeader(hdr);
-                mStatePublisher.publish(mState);
-                sendAck(mCmdInfo.mId);
+                // The apk didn't stop successfully so don't update the state and fail the command
+                // ack
+                sendAck(cmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
             }
-        } else {
-            // The apk didn't stop successfully so don't update the state and fail the command ack
-            sendAck(mCmdInfo.mId, AckCompletedStatus.EXEC_FAILED, errMsg);
+            cmdInfo.resetCmd();
         }
-        mCmdInfo.resetCmd();
+    }
+
+    // Must be called with mApkCmds locked since several apks may change state at once
+    private void publishRunning(String apkName, boolean running) {
+        Header hdr = mMessageFactory.newFromType(Header._TYPE);
+        int index = mApkStateLocations.get(apkName);
+        boolean[] runningApks = mState.getRunningApks();
+        runningApks[index] = running;
+        mState.setRunningApks(runningApks);
+        hdr.setStamp(mNodeConfig.getTimeProvider().getCurrentTime());
+        mState.setHeader(hdr);
+        mStatePublisher.publish(mState);
     }
 
     public void onGuestScienceData(Message msg) {
@@ -295,6 +348,12 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
                         " be no more than 32 characters not " + topic.length() + ".");
                 return;
             }
+            if (topic.equals(Constants.TOPIC_PACKED_DATA)) {
+                mLogger.error(LOG_TAG, "The topic " + topic + " of the guest science message is " +
+                        "reserved for data packed by the guest science manager so the message " +
+                        "will not be sent.");
+                return;
+            }
         }
 
         byte[] data = null;
@@ -304,14 +363,66 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
             return;
         } else {
             data = msg.getData().getByteArray("data");
-            if (data.length > 2048) {
+            if (data.length > Constants.MAX_DATA_SIZE) {
                 mLogger.error(LOG_TAG, "The data in the guest science message is too big to send " +
                         "to the ground so the message will not be sent. Length of data must be no" +
-                        " more than 2048 bytes not " + data.length + ".");
+                        " more than " + Constants.MAX_DATA_SIZE + " bytes not " + data.length +
+                        ".");
                 return;
             }
         }
 
+        if (msg.what == MessageType.CHUNK.toInt()) {
+            // Chunks of oversized data are paced so they don't hog the downlink. The ingest
+            // worker logs what it drops.
+            mDataIngest.offerChunk(apkFullName, topic, data,
+                    msg.getData().getInt("transferId", -1), msg.getData().getInt("chunkIndex", -1),
+                    msg.getData().getInt("chunkCount", -1));
+            return;
+        }
+
+        MessageType type;
+        if (msg.what == MessageType.STRING.toInt()) {
+            type = MessageType.STRING;
+        } else if (msg.what == MessageType.JSON.toInt()) {
+            type = MessageType.JSON;
+        } else if (msg.what == MessageType.BINARY.toInt()) {
+            type = MessageType.BINARY;
+        } else {
+            mLogger.error(LOG_TAG, "Message type in guest science message is unknown so the message " +
+                    "will not be sent to the ground.");
+            return;
+        }
+
+        // Publishing happens on the ingest thread so a chatty apk can't hold up the main looper
+        if (mDataIngest.offer(apkFullName, topic, type, data) == DataIngest.Result.REJECTED) {
+            MessengerService.getSingleton().sendGuestScienceDataRejected(apkFullName, topic);
+        }
+    }
+
+    public void setRejectDataWhenBusy(String apkFullName, boolean reject) {
+        mDataIngest.setRejectWhenFull(apkFullName, reject);
+    }
+
+    public void publishGuestScienceData(String apkFullName, String topic, MessageType type,
+                                        byte[] data) {
+        // Keep the data on disk if nobody would get it, or if older data is still waiting
+        if (mDataSpool.offer(apkFullName, topic, type, data, hasDataSubscribers())) {
+            return;
+        }
+        sendGuestScienceData(apkFullName, topic, type, data);
+    }
+
+    /**
+     * @return true if something is subscribed to the guest science data topic, i.e. data
+     * published now will make it off the robot.
+     */
+    public boolean hasDataSubscribers() {
+        return mDataPublisher != null && mDataPublisher.hasSubscribers();
+    }
+
+    public void sendGuestScienceData(String apkFullName, String topic, MessageType type,
+                                     byte[] data) {
         GuestScienceData dataMsg = mMessageFactory.newFromType(GuestScienceData._TYPE);
         Header hdr = mMessageFactory.newFromType(Header._TYPE);
 
@@ -320,16 +431,12 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
 
         dataMsg.setApkName(apkFullName);
 
-        if (msg.what == MessageType.STRING.toInt()) {
+        if (type == MessageType.STRING) {
             dataMsg.setDataType(GuestScienceData.STRING);
-        } else if (msg.what == MessageType.JSON.toInt()) {
+        } else if (type == MessageType.JSON) {
             dataMsg.setDataType(GuestScienceData.JSON);
-        } else if (msg.what == MessageType.BINARY.toInt()) {
-            dataMsg.setDataType(GuestScienceData.BINARY);
         } else {
-            mLogger.error(LOG_TAG, "Message type in guest science message is unknown so the message " +
-                    "will not be sent to the ground.");
-            return;
+            dataMsg.setDataType(GuestScienceData.BINARY);
         }
 
         dataMsg.setTopic(topic);
@@ -340,7 +447,35 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
             dataMsg.setData(dataBuff);
         }
         mDataPublisher.publish(dataMsg);
-   }
+        mDownlink.charge(data.length);
+    }
+
+    public void setDataPacking(String apkFullName, int windowMs, boolean compress) {
+        mDataIngest.setPacking(apkFullName, windowMs, compress);
+    }
+
+    public void setDefaultDataBudget(int bytesPerSecond, int messagesPerSecond) {
+        mDataIngest.setDefaultBudget(bytesPerSecond, messagesPerSecond);
+    }
+
+    public void setDataBudget(String apkFullName, int bytesPerSecond, int messagesPerSecond,
+                              double weight) {
+        mDataIngest.setBudget(apkFullName, bytesPerSecond, messagesPerSecond, weight);
+    }
+
+    public void setChunkBytesPerSecond(int bytesPerSecond) {
+        mDataIngest.setChunkBytesPerSecond(bytesPerSecond);
+    }
+
+    public void setDownlinkBytesPerSecond(int bytesPerSecond) {
+        mDownlink.setBytesPerSecond(bytesPerSecond);
+    }
+
+    @Override
+    public void onShutdown(Node node) {
+        mDataIngest.stop();
+        mDataSpool.stop();
+    }
 
     @Override
     public GraphName getDefaultNodeName() {
@@ -360,6 +495,13 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
 
         mDataPublisher = connectedNode.newPublisher(
                 Constants.TOPIC_GUEST_SCIENCE_DATA, GuestScienceData._TYPE);
+        mDataPublisher.addListener(new DefaultPublisherListener<GuestScienceData>() {
+            @Override
+            public void onNewSubscriber(Publisher<GuestScienceData> publisher,
+                                        SubscriberIdentifier subscriberIdentifier) {
+                mDataSpool.wake();
+            }
+        });
 
         mStatePublisher = connectedNode.newPublisher(
                 Constants.TOPIC_GUEST_SCIENCE_MANAGER_STATE,
@@ -383,6 +525,9 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
 
         mLogger = new Logger(connectedNode.getLog());
 
+        mDataIngest.start();
+        mDataSpool.start();
+
         getApkInfo();
 
         if (mContext == null) {
@@ -393,16 +538,6 @@ class ManagerNode extends AbstractNodeMain implements MessageListener<CommandSta
         // Start messenger service so there is only one instance running at all times
         Intent startMessengerIntent = new Intent(mContext, MessengerService.class);
         mContext.startService(startMessengerIntent);
-
-        mCmdInfo = new CmdInfo();
-    }
-
-    public void setStartTimer(ManagerTimeoutTimer startTimer) {
-        mStartTimer = startTimer;
-    }
-
-    public String getCurrentApkName() {
-       return mCmdInfo.mApkName;
     }
 
     public void getApkInfo() {
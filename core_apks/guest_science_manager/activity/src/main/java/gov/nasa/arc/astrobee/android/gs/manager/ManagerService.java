@@ -20,6 +20,7 @@ package gov.nasa.arc.astrobee.android.gs.manager;
 
 import android.content.Intent;
 import android.os.IBinder;
+import android.util.Log;
 
 import org.ros.android.RosService;
 import org.ros.node.NodeConfiguration;
@@ -29,12 +30,31 @@ import java.net.URI;
 
 public class ManagerService extends RosService {
 
+    private static final String LOG_TAG = "GuestScienceManager";
     private static final String NOTIFICATION_TITLE = "GS Manager";
     private static final String NOTIFICATION_TICKER = "Micromanaging your failures in space";
     private static final URI    ROS_MASTER_URI = URI.create("http://llp:11311");
     private static final String ROS_HOSTNAME = "hlp";
+    // Optional start intent extra overriding the rate oversized guest science data is sent at
+    private static final String EXTRA_CHUNK_BYTES_PER_SECOND = "chunkBytesPerSecond";
+    // Optional start intent extra overriding how much guest science data is sent altogether,
+    // zero for no limit
+    private static final String EXTRA_DOWNLINK_BYTES_PER_SECOND = "downlinkBytesPerSecond";
 
-    private ManagerTimeoutTimer mStartTimer;
+    // Optional start intent extras setting how much guest science data each apk may send. By
+    // default there is no limit. The first two apply to every apk. The budgets extra overrides
+    // them for some apks and is a semicolon separated list of
+    // apkFullName:bytesPerSecond:messagesPerSecond:weight. Zero means no limit and the weight is
+    // the apk's share of the downlink when it is busy.
+    private static final String EXTRA_DATA_BYTES_PER_SECOND = "dataBytesPerSecond";
+    private static final String EXTRA_DATA_MESSAGES_PER_SECOND = "dataMessagesPerSecond";
+    private static final String EXTRA_DATA_BUDGETS = "dataBudgets";
+
+    private int mChunkBytesPerSecond = Constants.DEFAULT_CHUNK_BYTES_PER_SECOND;
+    private int mDownlinkBytesPerSecond = Constants.DEFAULT_DOWNLINK_BYTES_PER_SECOND;
+    private int mDataBytesPerSecond = Constants.DEFAULT_DATA_BYTES_PER_SECOND;
+    private int mDataMessagesPerSecond = Constants.DEFAULT_DATA_MESSAGES_PER_SECOND;
+    private String mDataBudgets = null;
 
     @Override
     protected void init(NodeMainExecutor nodeMainExecutor) {
@@ -42,7 +62,10 @@ public class ManagerService extends RosService {
         final ManagerNode node = ManagerNode.INSTANCE();
         final NodeConfiguration config = NodeConfiguration.newPublic(ROS_HOSTNAME, ROS_MASTER_URI);
         node.setContext(this.getBaseContext());
-        node.setStartTimer(mStartTimer);
+        node.setChunkBytesPerSecond(mChunkBytesPerSecond);
+        node.setDownlinkBytesPerSecond(mDownlinkBytesPerSecond);
+        node.setDefaultDataBudget(mDataBytesPerSecond, mDataMessagesPerSecond);
+        setDataBudgets(node, mDataBudgets);
         nodeMainExecutor.execute(node, config);
     }
 
@@ -60,11 +83,41 @@ public class ManagerService extends RosService {
         putOptExtra(intent, EXTRA_NOTIFICATION_TICKER, NOTIFICATION_TICKER);
         putOptExtra(intent, EXTRA_NOTIFICATION_TITLE, NOTIFICATION_TITLE);
 
-        mStartTimer = new ManagerTimeoutTimer(5000, 2500);
+        mChunkBytesPerSecond = intent.getIntExtra(EXTRA_CHUNK_BYTES_PER_SECOND,
+                Constants.DEFAULT_CHUNK_BYTES_PER_SECOND);
+        mDownlinkBytesPerSecond = intent.getIntExtra(EXTRA_DOWNLINK_BYTES_PER_SECOND,
+                Constants.DEFAULT_DOWNLINK_BYTES_PER_SECOND);
+        mDataBytesPerSecond = intent.getIntExtra(EXTRA_DATA_BYTES_PER_SECOND,
+                Constants.DEFAULT_DATA_BYTES_PER_SECOND);
+        mDataMessagesPerSecond = intent.getIntExtra(EXTRA_DATA_MESSAGES_PER_SECOND,
+                Constants.DEFAULT_DATA_MESSAGES_PER_SECOND);
+        mDataBudgets = intent.getStringExtra(EXTRA_DATA_BUDGETS);
 
         return super.onStartCommand(intent, flags, startId);
     }
 
+    private static void setDataBudgets(ManagerNode node, String budgets) {
+        if (budgets == null) {
+            return;
+        }
+        for (String budget : budgets.split(";")) {
+            if (budget.trim().isEmpty()) {
+                continue;
+            }
+            String[] fields = budget.trim().split(":");
+            try {
+                if (fields.length != 4) {
+                    throw new IllegalArgumentException("Expected 4 fields.");
+                }
+                node.setDataBudget(fields[0], Integer.parseInt(fields[1]),
+                        Integer.parseInt(fields[2]), Double.parseDouble(fields[3]));
+            } catch (IllegalArgumentException e) {
+                Log.e(LOG_TAG, "Ignoring invalid guest science data budget " +
+                        budget + ": " + e.getMessage());
+            }
+        }
+    }
+
     private static void putOptExtra(Intent intent, String key, String value) {
         if (intent.hasExtra(key))
             return;
@@ -1,29 +1,40 @@
 package gov.nasa.arc.astrobee.android.gs.manager;
 
-import android.os.CountDownTimer;
+import android.os.Handler;
+import android.os.Looper;
 
 /**
  * Created by kmbrowne on 12/13/17.
+ *
+ * Times out the start of a single apk. Each apk has its own timer so apks can be started in
+ * parallel. The timers run on the main looper, so they can be started and canceled from any
+ * thread.
  */
 
-public class ManagerTimeoutTimer extends CountDownTimer {
-    public ManagerTimeoutTimer(long millisInFuture, long countDownInterval) {
-        super(millisInFuture, countDownInterval);
+public class ManagerTimeoutTimer implements Runnable {
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    private final String mApkName;
+    private final long mTimeoutMs;
+
+    public ManagerTimeoutTimer(String apkName, long timeoutMs) {
+        mApkName = apkName;
+        mTimeoutMs = timeoutMs;
     }
 
-    @Override
-    public void onTick(long millisUntilFinished) {
-        // Do nothing since we are waiting for a timeout
-        ManagerNode.INSTANCE().getLogger().debug("ManagerTimeoutTimer",
-                "Still waiting for the apk to start or stop. " + Float.toString(millisUntilFinished)
-                + " milliseconds left.");
+    public void start() {
+        sHandler.removeCallbacks(this);
+        sHandler.postDelayed(this, mTimeoutMs);
+    }
+
+    public void cancel() {
+        sHandler.removeCallbacks(this);
     }
 
     @Override
-    public void onFinish() {
-        String apkName = ManagerNode.INSTANCE().getCurrentApkName();
-        String errMsg = "Apk " + apkName + " didn't start or stop in the timeout. Please see the" +
+    public void run() {
+        String errMsg = "Apk " + mApkName + " didn't start in the timeout. Please see the" +
                 " guest science library documentation for more information.";
-        ManagerNode.INSTANCE().ackGuestScienceStart(false, apkName, errMsg);
+        ManagerNode.INSTANCE().ackGuestScienceStart(false, mApkName, errMsg);
     }
 }
@@ -11,8 +11,8 @@ import android.os.Messenger;
 import android.os.RemoteException;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by kmbrowne on 11/14/17.
@@ -26,7 +26,8 @@ public class MessengerService extends Service {
 
     @Override
     public void onCreate() {
-        mApkMessengers = new HashMap<>();
+        // Filled in on the main thread but read from the ROS threads handling commands
+        mApkMessengers = new ConcurrentHashMap<>();
         sSingleton = this;
         super.onCreate();
     }
@@ -68,6 +69,11 @@ public class MessengerService extends Service {
                 }
                 Messenger messenger = msg.getData().getParcelable("commandMessenger");
                 mApkMessengers.put(apkFullName, messenger);
+                ManagerNode.INSTANCE().setRejectDataWhenBusy(apkFullName,
+                        msg.getData().getBoolean("rejectDataWhenBusy", false));
+                ManagerNode.INSTANCE().setDataPacking(apkFullName,
+                        Math.max(0, msg.getData().getInt("packDataWindowMs", 0)),
+                        msg.getData().getBoolean("compressData", false));
                 if (sendGuestScienceDataBasePath(apkFullName)) {
                     ManagerNode.INSTANCE().ackGuestScienceStart(true, apkFullName, "");
                 } else {
@@ -183,6 +189,24 @@ public class MessengerService extends Service {
         return true;
     }
 
+    public boolean sendGuestScienceDataRejected(String apkName, String topic) {
+        Messenger messenger = mApkMessengers.get(apkName);
+        if (messenger == null) {
+            return false;
+        }
+        Message msg = Message.obtain(null, MessageType.NACK.toInt());
+        Bundle data_bundle = new Bundle();
+        data_bundle.putString("topic", topic);
+        msg.setData(data_bundle);
+        try {
+            messenger.send(msg);
+        } catch (RemoteException e) {
+            ManagerNode.INSTANCE().getLogger().error(LOG_TAG, e.getMessage(), e);
+            return false;
+        }
+        return true;
+    }
+
     public static MessengerService getSingleton() {
         return sSingleton;
     }
@@ -0,0 +1,251 @@
+/* Copyright (c) 2017, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ *
+ * All rights reserved.
+ *
+ * The Astrobee platform is licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package gov.nasa.arc.astrobee.android.gs.manager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Spools data to a temporary folder and replays it to a fake manager.
+ */
+public class DataSpoolTest {
+    private static final String APK = "apk";
+    private static final long TIMEOUT_MS = 5000;
+
+    /**
+     * Stands in for the manager, recording the topics of the data it is sent.
+     */
+    private static final class FakeHost implements DataSpool.Host {
+        volatile boolean mConnected = false;
+        final List<String> mSent = new ArrayList<>();
+        final List<String> mWarnings = new ArrayList<>();
+
+        @Override
+        public boolean hasDataSubscribers() {
+            return mConnected;
+        }
+
+        @Override
+        public synchronized void sendGuestScienceData(String apkName, String topic,
+                                                      MessageType type, byte[] data) {
+            mSent.add(topic);
+        }
+
+        @Override
+        public synchronized void warn(String msg) {
+            mWarnings.add(msg);
+        }
+
+        @Override
+        public void error(String msg, Throwable e) {
+            throw new AssertionError(msg, e);
+        }
+
+        synchronized List<String> getSent() {
+            return new ArrayList<>(mSent);
+        }
+
+        synchronized int getWarningCount() {
+            return mWarnings.size();
+        }
+    }
+
+    private File mBaseDir;
+    private FakeHost mHost;
+    private DataSpool mSpool;
+
+    @Before
+    public void setUp() throws Exception {
+        mBaseDir = File.createTempFile("spool", "");
+        assertTrue(mBaseDir.delete() && mBaseDir.mkdir());
+        mHost = new FakeHost();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (mSpool != null) {
+            mSpool.stop();
+            mSpool.awaitStopped();
+        }
+        delete(mBaseDir);
+    }
+
+    @Test
+    public void replaysInOrderThenGoesBackToLive() throws Exception {
+        startSpool(DataSpool.SEGMENT_SIZE, DataSpool.MAX_SEGMENTS);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(mSpool.offer(APK, "t" + i, MessageType.BINARY, new byte[100], false));
+        }
+        // Connected, but older data is still waiting, so this is spooled behind it
+        assertTrue(mSpool.offer(APK, "t5", MessageType.BINARY, new byte[100], true));
+
+        mHost.mConnected = true;
+        mSpool.wake();
+        awaitSent(6);
+        assertEquals(Arrays.asList("t0", "t1", "t2", "t3", "t4", "t5"), mHost.getSent());
+
+        awaitNoBacklog();
+        assertFalse(mSpool.offer(APK, "live", MessageType.BINARY, new byte[100], true));
+    }
+
+    @Test
+    public void dropsTornRecordAtTheEndOfTheSpool() throws Exception {
+        startSpool(DataSpool.SEGMENT_SIZE, DataSpool.MAX_SEGMENTS);
+        byte[] torn = new byte[64];
+        Arrays.fill(torn, (byte) 0x5A);
+        mSpool.offer(APK, "a", MessageType.BINARY, new byte[10], false);
+        mSpool.offer(APK, "b", MessageType.BINARY, new byte[10], false);
+        mSpool.offer(APK, "torn", MessageType.BINARY, torn, false);
+        mSpool.stop();
+        mSpool.awaitStopped();
+
+        // A crash part way through the last record leaves it failing its CRC
+        File segment = new File(spoolDir(), "segment-0000000000.dat");
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            byte[] contents = new byte[(int) file.length()];
+            file.readFully(contents);
+            int at = indexOf(contents, torn);
+            assertTrue(at > 0);
+            file.seek(at + torn.length / 2);
+            file.write(0);
+        } finally {
+            file.close();
+        }
+
+        startSpool(DataSpool.SEGMENT_SIZE, DataSpool.MAX_SEGMENTS);
+        // Appended where the torn record was
+        mSpool.offer(APK, "c", MessageType.BINARY, new byte[10], false);
+        mHost.mConnected = true;
+        mSpool.wake();
+        awaitSent(3);
+        awaitNoBacklog();
+        assertEquals(Arrays.asList("a", "b", "c"), mHost.getSent());
+    }
+
+    @Test
+    public void doesNotResendWhatTheIndexSaysWasSent() throws Exception {
+        startSpool(DataSpool.SEGMENT_SIZE, DataSpool.MAX_SEGMENTS);
+        mSpool.offer(APK, "a", MessageType.BINARY, new byte[10], false);
+        mSpool.offer(APK, "b", MessageType.BINARY, new byte[10], false);
+        mHost.mConnected = true;
+        mSpool.wake();
+        awaitSent(2);
+        awaitNoBacklog();
+        mSpool.stop();
+        mSpool.awaitStopped();
+        assertTrue(new File(spoolDir(), "index").isFile());
+
+        // Picks up the same spool, which only has c left to send
+        startSpool(DataSpool.SEGMENT_SIZE, DataSpool.MAX_SEGMENTS);
+        mSpool.offer(APK, "c", MessageType.BINARY, new byte[10], false);
+        awaitSent(3);
+        awaitNoBacklog();
+        assertEquals(Arrays.asList("a", "b", "c"), mHost.getSent());
+    }
+
+    @Test
+    public void dropsTheOldestSegmentWhenFull() throws Exception {
+        // A few records per segment and at most three segments
+        startSpool(256, 3);
+        int count = 40;
+        for (int i = 0; i < count; i++) {
+            mSpool.offer(APK, String.format("%02d", i), MessageType.BINARY, new byte[40], false);
+        }
+        // Stopping writes out everything offered, so nothing is replayed while still rotating
+        mSpool.stop();
+        mSpool.awaitStopped();
+        assertTrue(mHost.getWarningCount() > 0);
+
+        mHost.mConnected = true;
+        startSpool(256, 3);
+        awaitSent(1);
+        awaitNoBacklog();
+
+        List<String> sent = mHost.getSent();
+        assertTrue(sent.size() > 0 && sent.size() < count);
+        // What is left is the newest data, in order
+        int first = count - sent.size();
+        for (int i = 0; i < sent.size(); i++) {
+            assertEquals(String.format("%02d", first + i), sent.get(i));
+        }
+        assertTrue(spoolDir().list().length <= 3 + 1);
+    }
+
+    private void startSpool(int segmentSize, int maxSegments) {
+        mSpool = new DataSpool(mBaseDir, new Downlink(0), mHost, segmentSize, maxSegments);
+        mSpool.start();
+    }
+
+    private File spoolDir() {
+        return new File(new File(new File(mBaseDir, APK), "delayed"), DataSpool.SPOOL_FOLDER);
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (mHost.getSent().size() < count) {
+            assertTrue("Timed out waiting for spooled data.",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitNoBacklog() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (mSpool.hasBacklog(APK)) {
+            assertTrue("Timed out waiting for the spool to drain.",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            int j = 0;
+            while (j < needle.length && haystack[i + j] == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            throw new IOException("Unable to delete " + file + ".");
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ChunkReassembler - Puts data sent with StartGuestScienceService.sendLargeData back together.
+ *
+ * Data too big for one guest science data message is split into chunks, each sent as a binary
+ * message on a reserved topic made from the topic of the original data, see ReservedTopics.
+ * The data field of every chunk starts with a header:
+ *
+ *   varint  transfer id, unique per apk until the apk restarts
+ *   varint  index of the chunk, from 0
+ *   varint  number of chunks in the transfer
+ *   byte    message type of the original data (see MessageType)
+ *
+ * followed by the chunk's share of the data. Chunks are published in order but the ground
+ * must not rely on it; a transfer is complete once every index has been seen. Use one
+ * reassembler for every guest science data message and pass it the ones isChunk says are
+ * chunks.
+ * Transfers that go longer than the timeout without a new chunk are dropped, so a big transfer
+ * paced out slowly by the manager is kept for as long as its chunks keep coming.
+ *
+ * This class does not depend on Android and can be used as is by ground software. Not thread
+ * safe.
+ */
+
+public final class ChunkReassembler {
+    // Header is up to three 5 byte varints and the type byte
+    static final int MAX_HEADER_SIZE = 5 + 5 + 5 + 1;
+
+    // The most data a single chunk carries
+    static final int CHUNK_DATA_SIZE = CompactWriter.MAX_SIZE - MAX_HEADER_SIZE;
+
+    private static final long DEFAULT_TIMEOUT_MS = 60000;
+    private static final int DEFAULT_MAX_TRANSFERS = 64;
+
+    /**
+     * Data that has been fully reassembled.
+     */
+    public static final class Transfer {
+        private final String mApkName;
+        private final String mTopic;
+        private final int mId;
+        private final int mType;
+        private final byte[][] mChunks;
+        private long mLastChunkAt;
+        private int mReceived = 0;
+        private int mLength = 0;
+
+        Transfer(String apkName, String topic, int id, int type, int count, long nowMs) {
+            mApkName = apkName;
+            mTopic = topic;
+            mId = id;
+            mType = type;
+            mChunks = new byte[count][];
+            mLastChunkAt = nowMs;
+        }
+
+        public String getApkName() {
+            return mApkName;
+        }
+
+        public String getTopic() {
+            return mTopic;
+        }
+
+        public int getId() {
+            return mId;
+        }
+
+        /**
+         * @return the MessageType value the data was sent with, so JSON can be told apart from
+         * string and binary data.
+         */
+        public int getType() {
+            return mType;
+        }
+
+        /**
+         * @return the original data.
+         */
+        public byte[] getData() {
+            byte[] data = new byte[mLength];
+            int position = 0;
+            for (byte[] chunk : mChunks) {
+                System.arraycopy(chunk, 0, data, position, chunk.length);
+                position += chunk.length;
+            }
+            return data;
+        }
+
+        boolean isComplete() {
+            return mReceived == mChunks.length;
+        }
+    }
+
+    private final Map<String, Transfer> mTransfers = new LinkedHashMap<String, Transfer>();
+    private long mTimeoutMs = DEFAULT_TIMEOUT_MS;
+    private int mMaxTransfers = DEFAULT_MAX_TRANSFERS;
+
+    /**
+     * @param timeoutMs How long to wait for the next chunk of a transfer.
+     * @return this reassembler.
+     */
+    public ChunkReassembler setTimeout(long timeoutMs) {
+        mTimeoutMs = timeoutMs;
+        return this;
+    }
+
+    /**
+     * @param maxTransfers How many incomplete transfers to hold at once. When another one
+     *                     starts, the one idle the longest is dropped.
+     * @return this reassembler.
+     */
+    public ChunkReassembler setMaxTransfers(int maxTransfers) {
+        mMaxTransfers = maxTransfers;
+        return this;
+    }
+
+    /**
+     * @return true if a guest science data message with this topic and data is a chunk.
+     */
+    public static boolean isChunk(String topic, byte[] data) {
+        return topic != null && topic.startsWith(ReservedTopics.CHUNK_PREFIX)
+                && data != null && data.length >= 4;
+    }
+
+    /**
+     * Adds a chunk, given the apk name, topic and data of its guest science data message. The
+     * completed transfer has the topic the apk sent the data on.
+     *
+     * @return the completed transfer if this was its last missing chunk, or null.
+     * @throws IllegalArgumentException if the data is not a valid chunk.
+     */
+    public Transfer add(String apkName, String topic, byte[] data) {
+        return add(apkName, topic, data, System.currentTimeMillis());
+    }
+
+    Transfer add(String apkName, String topic, byte[] data, long nowMs) {
+        expire(nowMs);
+
+        if (!isChunk(topic, data)) {
+            throw new IllegalArgumentException("Data is not a chunk.");
+        }
+        topic = ReservedTopics.getOriginalTopic(topic);
+        int[] position = { 0 };
+        int id = readVarint(data, position);
+        int index = readVarint(data, position);
+        int count = readVarint(data, position);
+        if (position[0] >= data.length) {
+            throw new IllegalArgumentException("Chunk header is truncated.");
+        }
+        int type = data[position[0]++] & 0xFF;
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Chunk " + index + " of " + count + " is invalid.");
+        }
+
+        String key = apkName + '\0' + topic + '\0' + id;
+        Transfer transfer = mTransfers.get(key);
+        if (transfer == null) {
+            if (mTransfers.size() >= mMaxTransfers) {
+                Iterator<Transfer> it = mTransfers.values().iterator();
+                it.next();
+                it.remove();
+            }
+            transfer = new Transfer(apkName, topic, id, type, count, nowMs);
+            mTransfers.put(key, transfer);
+        } else if (transfer.mChunks.length != count) {
+            throw new IllegalArgumentException("Chunk count changed in the middle of transfer "
+                    + id + ".");
+        } else {
+            // Move it to the end so the map stays in order of last activity
+            mTransfers.remove(key);
+            mTransfers.put(key, transfer);
+            transfer.mLastChunkAt = nowMs;
+        }
+
+        if (transfer.mChunks[index] == null) {
+            transfer.mChunks[index] = Arrays.copyOfRange(data, position[0], data.length);
+            transfer.mLength += transfer.mChunks[index].length;
+            transfer.mReceived++;
+        }
+
+        if (!transfer.isComplete()) {
+            return null;
+        }
+        mTransfers.remove(key);
+        return transfer;
+    }
+
+    /**
+     * @return how many transfers are waiting for chunks.
+     */
+    public int getPendingCount() {
+        return mTransfers.size();
+    }
+
+    /**
+     * Builds one chunk of a transfer.
+     */
+    static byte[] makeChunk(int id, int index, int count, int type, byte[] data) {
+        int offset = index * CHUNK_DATA_SIZE;
+        int length = Math.min(CHUNK_DATA_SIZE, data.length - offset);
+        byte[] header = new byte[MAX_HEADER_SIZE];
+        int headerLength = writeVarint(header, 0, id);
+        headerLength = writeVarint(header, headerLength, index);
+        headerLength = writeVarint(header, headerLength, count);
+        header[headerLength++] = (byte) type;
+
+        byte[] chunk = new byte[headerLength + length];
+        System.arraycopy(header, 0, chunk, 0, headerLength);
+        System.arraycopy(data, offset, chunk, headerLength, length);
+        return chunk;
+    }
+
+    static int chunkCount(int length) {
+        return Math.max(1, (length + CHUNK_DATA_SIZE - 1) / CHUNK_DATA_SIZE);
+    }
+
+    private void expire(long nowMs) {
+        Iterator<Transfer> it = mTransfers.values().iterator();
+        while (it.hasNext()) {
+            // Transfers are in the order they last got a chunk, so stop at the first live one
+            if (nowMs - it.next().mLastChunkAt < mTimeoutMs) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private static int writeVarint(byte[] out, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position[0] >= data.length) {
+                throw new IllegalArgumentException("Chunk header is truncated.");
+            }
+            int b = data[position[0]++] & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in chunk header.");
+    }
+}
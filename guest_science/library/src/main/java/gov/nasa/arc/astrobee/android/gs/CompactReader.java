@@ -0,0 +1,326 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CompactReader - Decodes data written by a CompactWriter.
+ *
+ * This is the ground side of the compact encoding. Build the same CompactSchema the apk uses,
+ * then read the data field of each GuestScienceData message that isCompact says holds compact
+ * data. Such messages are sent on a reserved topic, see ReservedTopics. A reader can be
+ * reused for every message with the same schema; use peekSchemaId to pick the right reader
+ * when an apk sends more than one kind of message.
+ *
+ * Not thread safe.
+ */
+
+public final class CompactReader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final CompactSchema mSchema;
+    private final boolean[] mPresent;
+    private final long[] mBits;
+    private final Object[] mObjects;
+
+    public CompactReader(CompactSchema schema) {
+        if (schema == null) {
+            throw new NullPointerException("Schema must not be null.");
+        }
+        mSchema = schema;
+        mPresent = new boolean[schema.getFieldCount()];
+        mBits = new long[schema.getFieldCount()];
+        mObjects = new Object[schema.getFieldCount()];
+    }
+
+    /**
+     * @return true if a guest science data message with this topic and data holds data written
+     * by a CompactWriter.
+     */
+    public static boolean isCompact(String topic, byte[] data) {
+        return topic != null && topic.startsWith(ReservedTopics.COMPACT_PREFIX)
+                && data != null && data.length > 0;
+    }
+
+    /**
+     * @return the id of the schema the data was written with.
+     * @throws IllegalArgumentException if the data is malformed.
+     */
+    public static int peekSchemaId(byte[] data) {
+        return (int) new Cursor(data, 0, data.length, 0).readVarint();
+    }
+
+    public CompactSchema getSchema() {
+        return mSchema;
+    }
+
+    public void read(byte[] data) {
+        read(data, 0, data.length);
+    }
+
+    /**
+     * Decodes a message, replacing the fields of the previous one. Fields the schema does not
+     * know about are skipped.
+     *
+     * @throws IllegalArgumentException if the data is malformed or was written with another
+     *                                  schema.
+     */
+    public void read(byte[] data, int offset, int length) {
+        Arrays.fill(mPresent, false);
+        Arrays.fill(mObjects, null);
+
+        Cursor in = new Cursor(data, offset, length, offset);
+        long id = in.readVarint();
+        if (id != mSchema.getId()) {
+            throw new IllegalArgumentException("Data was written with schema " + id +
+                    ", not " + mSchema.getId() + ".");
+        }
+
+        while (in.hasRemaining()) {
+            long key = in.readVarint();
+            int wireType = (int) (key & 0x7);
+            long tag = key >>> 3;
+            int field = (int) (tag - 1);
+            if (tag < 1 || field >= mSchema.getFieldCount()
+                    || mSchema.getType(field).getWireType() != wireType) {
+                in.skip(wireType);
+                continue;
+            }
+
+            switch (mSchema.getType(field)) {
+                case BOOL:
+                    mBits[field] = in.readVarint();
+                    break;
+                case INT:
+                case LONG:
+                    mBits[field] = unzigzag(in.readVarint());
+                    break;
+                case FLOAT:
+                    mBits[field] = in.readFixed32();
+                    break;
+                case DOUBLE:
+                    mBits[field] = in.readFixed64();
+                    break;
+                case STRING:
+                    int stringLength = in.readLength();
+                    mObjects[field] = new String(data, in.position(), stringLength, UTF_8);
+                    in.advance(stringLength);
+                    break;
+                case BYTES:
+                    int bytesLength = in.readLength();
+                    mObjects[field] = Arrays.copyOfRange(data, in.position(),
+                            in.position() + bytesLength);
+                    in.advance(bytesLength);
+                    break;
+                case FLOAT_ARRAY:
+                    int arrayLength = in.readLength();
+                    if (arrayLength % 4 != 0) {
+                        throw new IllegalArgumentException("Float array of " + arrayLength +
+                                " bytes.");
+                    }
+                    float[] values = new float[arrayLength / 4];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = Float.intBitsToFloat(in.readFixed32());
+                    }
+                    mObjects[field] = values;
+                    break;
+            }
+            mPresent[field] = true;
+        }
+    }
+
+    /**
+     * @return true if the field was in the last message read.
+     */
+    public boolean has(int field) {
+        return mPresent[field];
+    }
+
+    public boolean getBool(int field) {
+        check(field, CompactSchema.FieldType.BOOL);
+        return mBits[field] != 0;
+    }
+
+    public int getInt(int field) {
+        check(field, CompactSchema.FieldType.INT);
+        return (int) mBits[field];
+    }
+
+    public long getLong(int field) {
+        check(field, CompactSchema.FieldType.LONG);
+        return mBits[field];
+    }
+
+    public float getFloat(int field) {
+        check(field, CompactSchema.FieldType.FLOAT);
+        return Float.intBitsToFloat((int) mBits[field]);
+    }
+
+    public double getDouble(int field) {
+        check(field, CompactSchema.FieldType.DOUBLE);
+        return Double.longBitsToDouble(mBits[field]);
+    }
+
+    public String getString(int field) {
+        check(field, CompactSchema.FieldType.STRING);
+        return (String) mObjects[field];
+    }
+
+    public byte[] getBytes(int field) {
+        check(field, CompactSchema.FieldType.BYTES);
+        return (byte[]) mObjects[field];
+    }
+
+    public float[] getFloats(int field) {
+        check(field, CompactSchema.FieldType.FLOAT_ARRAY);
+        return (float[]) mObjects[field];
+    }
+
+    /**
+     * @return the fields of the last message read, by name, in schema order. Handy for
+     * displaying or logging the data on the ground.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < mSchema.getFieldCount(); i++) {
+            if (!mPresent[i]) {
+                continue;
+            }
+            Object value;
+            switch (mSchema.getType(i)) {
+                case BOOL:
+                    value = getBool(i);
+                    break;
+                case INT:
+                    value = getInt(i);
+                    break;
+                case LONG:
+                    value = getLong(i);
+                    break;
+                case FLOAT:
+                    value = getFloat(i);
+                    break;
+                case DOUBLE:
+                    value = getDouble(i);
+                    break;
+                default:
+                    value = mObjects[i];
+                    break;
+            }
+            map.put(mSchema.getName(i), value);
+        }
+        return map;
+    }
+
+    private void check(int field, CompactSchema.FieldType expected) {
+        if (mSchema.getType(field) != expected) {
+            throw new IllegalArgumentException("Field " + mSchema.getName(field) + " is of type "
+                    + mSchema.getType(field) + ", not " + expected + ".");
+        }
+        if (!mPresent[field]) {
+            throw new IllegalStateException("Field " + mSchema.getName(field) +
+                    " was not in the data.");
+        }
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Cursor {
+        private final byte[] mData;
+        private final int mEnd;
+        private int mPosition;
+
+        Cursor(byte[] data, int offset, int length, int position) {
+            if (offset < 0 || length < 0 || offset + length > data.length) {
+                throw new IllegalArgumentException("Offset and length are outside the data.");
+            }
+            mData = data;
+            mEnd = offset + length;
+            mPosition = position;
+        }
+
+        boolean hasRemaining() {
+            return mPosition < mEnd;
+        }
+
+        int position() {
+            return mPosition;
+        }
+
+        void advance(int bytes) {
+            require(bytes);
+            mPosition += bytes;
+        }
+
+        int readByte() {
+            require(1);
+            return mData[mPosition++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint.");
+        }
+
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > mEnd - mPosition) {
+                throw new IllegalArgumentException("Field length " + length +
+                        " runs past the end of the data.");
+            }
+            return (int) length;
+        }
+
+        int readFixed32() {
+            require(4);
+            int value = (mData[mPosition] & 0xFF)
+                    | (mData[mPosition + 1] & 0xFF) << 8
+                    | (mData[mPosition + 2] & 0xFF) << 16
+                    | (mData[mPosition + 3] & 0xFF) << 24;
+            mPosition += 4;
+            return value;
+        }
+
+        long readFixed64() {
+            long low = readFixed32() & 0xFFFFFFFFL;
+            long high = readFixed32() & 0xFFFFFFFFL;
+            return low | (high << 32);
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case CompactSchema.WIRE_VARINT:
+                    readVarint();
+                    break;
+                case CompactSchema.WIRE_FIXED64:
+                    advance(8);
+                    break;
+                case CompactSchema.WIRE_LENGTH:
+                    advance(readLength());
+                    break;
+                case CompactSchema.WIRE_FIXED32:
+                    advance(4);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown wire type " + wireType + ".");
+            }
+        }
+
+        private void require(int bytes) {
+            if (mPosition + bytes > mEnd) {
+                throw new IllegalArgumentException("Data ends in the middle of a field.");
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CompactSchema - Describes the fields of a compact binary data message.
+ *
+ * A schema is an ordered list of named, typed fields. Each field is written on the wire as a
+ * varint tag (its position in the schema plus one) followed by its value, so the field names
+ * never leave the robot. The apk and the ground must build the same schema, with the same id,
+ * for the data to be decoded. Fields may only ever be appended to a schema; the reader skips
+ * tags it does not know, so a ground tool with an older schema can still read newer data.
+ *
+ * This class, CompactWriter and CompactReader do not depend on Android and can be used as is
+ * by ground software.
+ */
+
+public final class CompactSchema {
+    /**
+     * Type of a field. Integer types are zigzag varint encoded, so small values take one or
+     * two bytes whatever their sign. Floating point values are little endian fixed width.
+     */
+    public enum FieldType {
+        BOOL(CompactSchema.WIRE_VARINT),
+        INT(CompactSchema.WIRE_VARINT),
+        LONG(CompactSchema.WIRE_VARINT),
+        FLOAT(CompactSchema.WIRE_FIXED32),
+        DOUBLE(CompactSchema.WIRE_FIXED64),
+        STRING(CompactSchema.WIRE_LENGTH),
+        BYTES(CompactSchema.WIRE_LENGTH),
+        FLOAT_ARRAY(CompactSchema.WIRE_LENGTH);
+
+        private final int mWireType;
+
+        FieldType(final int wireType) {
+            mWireType = wireType;
+        }
+
+        int getWireType() {
+            return mWireType;
+        }
+    }
+
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_FIXED64 = 1;
+    static final int WIRE_LENGTH = 2;
+    static final int WIRE_FIXED32 = 5;
+
+    private final int mId;
+    private final List<String> mNames = new ArrayList<String>();
+    private final List<FieldType> mTypes = new ArrayList<FieldType>();
+    private final Map<String, Integer> mIndices = new HashMap<String, Integer>();
+
+    /**
+     * @param id Identifies this schema on the ground. Use a different id for every kind of
+     *           message your apk sends.
+     */
+    public CompactSchema(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Schema id must not be negative.");
+        }
+        mId = id;
+    }
+
+    /**
+     * Appends a field to the schema.
+     *
+     * @return this schema, so fields can be chained.
+     */
+    public CompactSchema add(String name, FieldType type) {
+        if (name == null || type == null) {
+            throw new NullPointerException("Field name and type must not be null.");
+        }
+        if (mIndices.containsKey(name)) {
+            throw new IllegalArgumentException("Field " + name + " is already in the schema.");
+        }
+        mIndices.put(name, mNames.size());
+        mNames.add(name);
+        mTypes.add(type);
+        return this;
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public int getFieldCount() {
+        return mNames.size();
+    }
+
+    public String getName(int field) {
+        return mNames.get(field);
+    }
+
+    public FieldType getType(int field) {
+        return mTypes.get(field);
+    }
+
+    /**
+     * Looks up a field by name. Writers should do this once and keep the index rather than
+     * looking up the name every time they send data.
+     *
+     * @return the index of the field, or -1 if there is no field with that name.
+     */
+    public int indexOf(String name) {
+        Integer index = mIndices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CompactSchema{id=").append(mId);
+        for (int i = 0; i < mNames.size(); i++) {
+            sb.append(i == 0 ? ", fields=[" : ", ")
+                    .append(mNames.get(i)).append(':').append(mTypes.get(i));
+        }
+        if (!mNames.isEmpty()) {
+            sb.append(']');
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,242 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import java.util.Arrays;
+
+/**
+ * CompactWriter - Encodes fields of a CompactSchema into a reusable buffer.
+ *
+ * Meant to be kept for the life of the apk and reused for every message: call reset, put the
+ * fields that have changed or that you want to send, then pass the writer to
+ * StartGuestScienceService.sendData. Putting a field never allocates. Fields that are not put
+ * are simply left out of the message. A put that doesn't fit in the buffer throws
+ * IllegalStateException and leaves the buffer as it was before the put.
+ *
+ * Not thread safe.
+ */
+
+public final class CompactWriter {
+    // The most data a single guest science data message can carry
+    public static final int MAX_SIZE = 2048;
+
+    private final CompactSchema mSchema;
+    private final byte[] mBuffer;
+    private int mPosition;
+    // Where the field being put starts, so a field that doesn't fit can be taken back out
+    private int mFieldStart;
+
+    public CompactWriter(CompactSchema schema) {
+        this(schema, MAX_SIZE);
+    }
+
+    public CompactWriter(CompactSchema schema, int capacity) {
+        if (schema == null) {
+            throw new NullPointerException("Schema must not be null.");
+        }
+        mSchema = schema;
+        mBuffer = new byte[capacity];
+        reset();
+    }
+
+    public CompactSchema getSchema() {
+        return mSchema;
+    }
+
+    /**
+     * Discards every field put so far.
+     *
+     * @return this writer.
+     */
+    public CompactWriter reset() {
+        mPosition = 0;
+        mFieldStart = 0;
+        writeVarint(mSchema.getId());
+        return this;
+    }
+
+    public CompactWriter putBool(int field, boolean value) {
+        writeTag(field, CompactSchema.FieldType.BOOL);
+        writeByte(value ? 1 : 0);
+        return this;
+    }
+
+    public CompactWriter putInt(int field, int value) {
+        writeTag(field, CompactSchema.FieldType.INT);
+        // Mask so a negative zigzag value isn't sign extended into a ten byte varint
+        writeVarint(zigzag(value) & 0xFFFFFFFFL);
+        return this;
+    }
+
+    public CompactWriter putLong(int field, long value) {
+        writeTag(field, CompactSchema.FieldType.LONG);
+        writeVarint(zigzag(value));
+        return this;
+    }
+
+    public CompactWriter putFloat(int field, float value) {
+        writeTag(field, CompactSchema.FieldType.FLOAT);
+        writeFixed32(Float.floatToIntBits(value));
+        return this;
+    }
+
+    public CompactWriter putDouble(int field, double value) {
+        writeTag(field, CompactSchema.FieldType.DOUBLE);
+        writeFixed64(Double.doubleToLongBits(value));
+        return this;
+    }
+
+    /**
+     * Writes the string as UTF-8, straight into the buffer.
+     */
+    public CompactWriter putString(int field, CharSequence value) {
+        writeTag(field, CompactSchema.FieldType.STRING);
+        writeVarint(utf8Length(value));
+        writeUtf8(value);
+        return this;
+    }
+
+    public CompactWriter putBytes(int field, byte[] value) {
+        return putBytes(field, value, 0, value.length);
+    }
+
+    public CompactWriter putBytes(int field, byte[] value, int offset, int length) {
+        writeTag(field, CompactSchema.FieldType.BYTES);
+        writeVarint(length);
+        ensure(length);
+        System.arraycopy(value, offset, mBuffer, mPosition, length);
+        mPosition += length;
+        return this;
+    }
+
+    public CompactWriter putFloats(int field, float[] values) {
+        return putFloats(field, values, 0, values.length);
+    }
+
+    public CompactWriter putFloats(int field, float[] values, int offset, int length) {
+        writeTag(field, CompactSchema.FieldType.FLOAT_ARRAY);
+        writeVarint(length * 4);
+        for (int i = offset; i < offset + length; i++) {
+            writeFixed32(Float.floatToIntBits(values[i]));
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of valid bytes in the buffer.
+     */
+    public int size() {
+        return mPosition;
+    }
+
+    /**
+     * @return the backing buffer. Only the first size() bytes are valid, and they are
+     * overwritten by the next reset.
+     */
+    public byte[] getBuffer() {
+        return mBuffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(mBuffer, mPosition);
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeTag(int field, CompactSchema.FieldType expected) {
+        if (field < 0 || field >= mSchema.getFieldCount()) {
+            throw new IllegalArgumentException("Field " + field + " is not in the schema.");
+        }
+        if (mSchema.getType(field) != expected) {
+            throw new IllegalArgumentException("Field " + mSchema.getName(field) + " is of type "
+                    + mSchema.getType(field) + ", not " + expected + ".");
+        }
+        mFieldStart = mPosition;
+        writeVarint(((long) (field + 1) << 3) | expected.getWireType());
+    }
+
+    private void ensure(int bytes) {
+        if (mPosition + bytes > mBuffer.length) {
+            mPosition = mFieldStart;
+            throw new IllegalStateException("Data is too big to send to ground. Must be " +
+                    mBuffer.length + " bytes or less.");
+        }
+    }
+
+    private void writeByte(int value) {
+        ensure(1);
+        mBuffer[mPosition++] = (byte) value;
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    private void writeFixed32(int value) {
+        ensure(4);
+        mBuffer[mPosition++] = (byte) value;
+        mBuffer[mPosition++] = (byte) (value >>> 8);
+        mBuffer[mPosition++] = (byte) (value >>> 16);
+        mBuffer[mPosition++] = (byte) (value >>> 24);
+    }
+
+    private void writeFixed64(long value) {
+        writeFixed32((int) value);
+        writeFixed32((int) (value >>> 32));
+    }
+
+    private static int utf8Length(CharSequence s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void writeUtf8(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xC0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                writeByte(0xF0 | (cp >> 18));
+                writeByte(0x80 | ((cp >> 12) & 0x3F));
+                writeByte(0x80 | ((cp >> 6) & 0x3F));
+                writeByte(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Same as String.getBytes does with a lone surrogate
+                writeByte('?');
+            } else {
+                writeByte(0xE0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3F));
+                writeByte(0x80 | (c & 0x3F));
+            }
+        }
+    }
+}
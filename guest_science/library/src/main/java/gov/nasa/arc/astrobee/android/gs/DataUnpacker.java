@@ -0,0 +1,153 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * DataUnpacker - Takes apart guest science data the manager packed or compressed for apks that
+ * override packDataWindowMs or compressData.
+ *
+ * A packed message is binary data on the reserved topic ReservedTopics.PACKED made of:
+ *
+ *   byte    flags, bit 0 set if the rest is deflated
+ *
+ * then, for every original message, in the order they were sent:
+ *
+ *   varint  length of the topic, then the topic in UTF-8
+ *   byte    message type (see MessageType)
+ *   varint  length of the data, then the data
+ *
+ * Only pass unpack the data of messages isPacked says were packed; the apk's other messages
+ * are sent as they were.
+ *
+ * This class does not depend on Android and can be used as is by ground software. Not thread
+ * safe.
+ */
+
+public final class DataUnpacker {
+    static final int FLAG_DEFLATED = 1;
+
+    private static final int HEADER_SIZE = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * One of the messages the apk sent.
+     */
+    public static final class Entry {
+        private final String mTopic;
+        private final int mType;
+        private final byte[] mData;
+
+        Entry(String topic, int type, byte[] data) {
+            mTopic = topic;
+            mType = type;
+            mData = data;
+        }
+
+        public String getTopic() {
+            return mTopic;
+        }
+
+        /**
+         * @return the MessageType value the data was sent with.
+         */
+        public int getType() {
+            return mType;
+        }
+
+        public byte[] getData() {
+            return mData;
+        }
+    }
+
+    private final Inflater mInflater = new Inflater();
+    private byte[] mInflated = new byte[4 * CompactWriter.MAX_SIZE];
+
+    /**
+     * @return true if a guest science data message with this topic and data was packed by the
+     * manager.
+     */
+    public static boolean isPacked(String topic, byte[] data) {
+        return ReservedTopics.PACKED.equals(topic) && data != null && data.length >= HEADER_SIZE;
+    }
+
+    /**
+     * @return the messages packed into the data.
+     * @throws IllegalArgumentException if the data is not packed or is malformed.
+     */
+    public List<Entry> unpack(byte[] data) {
+        if (data == null || data.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Data is not packed.");
+        }
+
+        byte[] body = data;
+        int position = HEADER_SIZE;
+        int end = data.length;
+        if ((data[0] & FLAG_DEFLATED) != 0) {
+            end = inflate(data);
+            body = mInflated;
+            position = 0;
+        }
+
+        List<Entry> entries = new ArrayList<Entry>();
+        int[] cursor = { position };
+        while (cursor[0] < end) {
+            int topicLength = readLength(body, cursor, end);
+            String topic = new String(body, cursor[0], topicLength, UTF_8);
+            cursor[0] += topicLength;
+            if (cursor[0] >= end) {
+                throw new IllegalArgumentException("Packed data ends in the middle of a message.");
+            }
+            int type = body[cursor[0]++] & 0xFF;
+            int dataLength = readLength(body, cursor, end);
+            entries.add(new Entry(topic, type,
+                    Arrays.copyOfRange(body, cursor[0], cursor[0] + dataLength)));
+            cursor[0] += dataLength;
+        }
+        return entries;
+    }
+
+    private int inflate(byte[] data) {
+        mInflater.reset();
+        mInflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        int length = 0;
+        try {
+            while (!mInflater.finished()) {
+                if (length == mInflated.length) {
+                    mInflated = Arrays.copyOf(mInflated, mInflated.length * 2);
+                }
+                int inflated = mInflater.inflate(mInflated, length, mInflated.length - length);
+                if (inflated == 0 && (mInflater.needsInput() || mInflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Packed data is truncated.");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Packed data is not valid deflate data.", e);
+        }
+        return length;
+    }
+
+    private static int readLength(byte[] data, int[] cursor, int end) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (cursor[0] >= end) {
+                throw new IllegalArgumentException("Packed data ends in the middle of a message.");
+            }
+            int b = data[cursor[0]++] & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0 || value > end - cursor[0]) {
+                    throw new IllegalArgumentException("Packed message length " + value +
+                            " runs past the end of the data.");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in packed data.");
+    }
+}
@@ -13,7 +13,9 @@ public enum MessageType {
     CMD(3),
     JSON(4),
     STRING(5),
-    BINARY(6);
+    BINARY(6),
+    CHUNK(7),
+    NACK(8);
 
     private final int mValue;
 
@@ -0,0 +1,66 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+/**
+ * ReservedTopics - Topics of guest science data that isn't sent as the apk handed it over.
+ *
+ * Compact data and the chunks of large data are sent as binary guest science data. They are
+ * told apart from the apk's own binary data by their topic, never by the data, since an apk's
+ * data may start with any byte. Topics starting with a tilde are reserved for this and apks
+ * can't send data on them, and the manager uses one of them for the data it packs:
+ *
+ *   ~c/<topic>  data written by a CompactWriter, see CompactReader
+ *   ~k/<topic>  a chunk of data sent with sendLargeData, see ChunkReassembler
+ *   ~p          messages the manager packed or compressed, see DataUnpacker
+ *
+ * where <topic> is the topic the apk sent the data on. Since guest science data topics can
+ * only be 32 characters long, the topic given to sendData with a CompactWriter, or to
+ * sendLargeData with data that needs chunks, can only be MAX_FRAMED_TOPIC_LENGTH characters
+ * long.
+ *
+ * This class does not depend on Android and can be used as is by ground software.
+ */
+
+public final class ReservedTopics {
+    public static final String PREFIX = "~";
+    public static final String COMPACT_PREFIX = "~c/";
+    public static final String CHUNK_PREFIX = "~k/";
+    public static final String PACKED = "~p";
+
+    public static final int MAX_TOPIC_LENGTH = 32;
+    public static final int MAX_FRAMED_TOPIC_LENGTH = MAX_TOPIC_LENGTH - 3;
+
+    private ReservedTopics() {
+    }
+
+    /**
+     * @return true if apks can't send data on the topic.
+     */
+    public static boolean isReserved(String topic) {
+        return topic != null && topic.startsWith(PREFIX);
+    }
+
+    /**
+     * @return the topic the apk sent compact data or a chunk on, or the topic itself if it is
+     * neither.
+     */
+    public static String getOriginalTopic(String topic) {
+        if (topic != null && (topic.startsWith(COMPACT_PREFIX)
+                || topic.startsWith(CHUNK_PREFIX))) {
+            // Both prefixes are the same length
+            return topic.substring(COMPACT_PREFIX.length());
+        }
+        return topic;
+    }
+
+    static String frame(String prefix, String topic) {
+        if (isReserved(topic)) {
+            throw new IllegalArgumentException("Topic " + topic + " is reserved. Topics must " +
+                    "not start with " + PREFIX + ".");
+        }
+        if (topic.length() > MAX_FRAMED_TOPIC_LENGTH) {
+            throw new IllegalArgumentException("Topic " + topic + " is too long. Must be no " +
+                    "more than " + MAX_FRAMED_TOPIC_LENGTH + " characters.");
+        }
+        return prefix + topic;
+    }
+}
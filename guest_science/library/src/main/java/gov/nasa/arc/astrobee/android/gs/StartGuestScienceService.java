@@ -13,6 +13,10 @@ import android.os.Messenger;
 import android.os.RemoteException;
 import android.util.Log;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Created by kmbrowne on 11/21/17.
  */
@@ -22,7 +26,11 @@ public abstract class StartGuestScienceService extends Service {
     private Messenger mService = null;
     private String mFullApkName = "";
     private String mDataBasePath = "";
+    private final AtomicInteger mNextTransferId = new AtomicInteger(0);
+
+    public static final int MAX_DATA_SIZE = CompactWriter.MAX_SIZE;
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
     private static final String LIB_LOG_TAG = "GuestScienceLib";
     private static final String SERVICE_PACKAGE_NAME =
             "gov.nasa.arc.astrobee.android.gs.manager";
@@ -85,6 +93,9 @@ public abstract class StartGuestScienceService extends Service {
                 }
             } else if (msg.what == MessageType.STOP.toInt()) {
                 onGuestScienceStop();
+            } else if (msg.what == MessageType.NACK.toInt()) {
+                Bundle data = msg.getData();
+                onGuestScienceDataRejected(data != null ? data.getString("topic") : "");
             } else {
                 Log.e(LIB_LOG_TAG, "Message type not recognized! This shouldn't happen. If " +
                         "it does, contact the Astrobee guest science team.");
@@ -123,6 +134,9 @@ public abstract class StartGuestScienceService extends Service {
         Bundle dataBundle = new Bundle();
         dataBundle.putString("apkFullName", mFullApkName);
         dataBundle.putParcelable("commandMessenger", mCommandMessenger);
+        dataBundle.putBoolean("rejectDataWhenBusy", rejectDataWhenBusy());
+        dataBundle.putInt("packDataWindowMs", packDataWindowMs());
+        dataBundle.putBoolean("compressData", compressData());
         msg.setData(dataBundle);
         try {
             mService.send(msg);
@@ -139,6 +153,44 @@ public abstract class StartGuestScienceService extends Service {
 
     public abstract void onGuestScienceStop();
 
+    /**
+     * Whether the guest science manager should reject new data instead of dropping the oldest
+     * data it has waiting when this apk sends data faster than it can be sent to the ground.
+     * Rejected data is reported with onGuestScienceDataRejected. Override to change it.
+     */
+    public boolean rejectDataWhenBusy() {
+        return false;
+    }
+
+    /**
+     * How long, in milliseconds, the guest science manager may hold on to data from this apk
+     * so it can pack several small messages into one guest science data message. Packed
+     * messages must be taken apart on the ground with a DataUnpacker. Zero, the default, sends
+     * every message on its own. Override to change it.
+     */
+    public int packDataWindowMs() {
+        return 0;
+    }
+
+    /**
+     * Whether the guest science manager should deflate the data from this apk when that makes
+     * it smaller. Compressed data must be taken apart on the ground with a DataUnpacker.
+     * Override to change it.
+     */
+    public boolean compressData() {
+        return false;
+    }
+
+    /**
+     * Called when the guest science manager had too much data waiting from this apk and
+     * rejected data that was sent on the given topic. Only called if rejectDataWhenBusy
+     * returns true. Slow down, or send the data again later.
+     */
+    public void onGuestScienceDataRejected(String topic) {
+        Log.w(LIB_LOG_TAG, "Guest science manager is busy and rejected data on topic " +
+                topic + ".");
+    }
+
     @Override
     public void onDestroy() {
         if (mBound) {
@@ -169,22 +221,77 @@ public abstract class StartGuestScienceService extends Service {
     }
 
     public void sendData(MessageType type, String topic, String data) {
-        byte[] byteData = data.getBytes();
+        byte[] byteData = data.getBytes(UTF_8);
         sendMsg(type, topic, byteData);
     }
 
+    /**
+     * Sends the fields put in the writer as binary data. Decode it on the ground with a
+     * CompactReader built from the same schema. The data is sent on a reserved topic, see
+     * ReservedTopics, so the topic can only be ReservedTopics.MAX_FRAMED_TOPIC_LENGTH
+     * characters long.
+     */
+    public void sendData(String topic, CompactWriter data) {
+        send(MessageType.BINARY, ReservedTopics.frame(ReservedTopics.COMPACT_PREFIX, topic),
+                Arrays.copyOf(data.getBuffer(), data.size()));
+    }
+
     public void sendData(MessageType type, String topic, byte[] data) {
         sendMsg(type, topic, data);
     }
 
+    /**
+     * Sends data of any size. Data that fits in one message is sent as is. Bigger data is split
+     * into chunks that the guest science manager sends to the ground at a steady rate, so this
+     * returns long before the data is on the ground. Put it back together on the ground with a
+     * ChunkReassembler. The chunks are sent on a reserved topic, see ReservedTopics, so if the
+     * data doesn't fit in one message the topic can only be
+     * ReservedTopics.MAX_FRAMED_TOPIC_LENGTH characters long.
+     */
+    public void sendLargeData(MessageType type, String topic, byte[] data) {
+        if (data.length <= MAX_DATA_SIZE) {
+            sendMsg(type, topic, data);
+            return;
+        }
+
+        String chunkTopic = ReservedTopics.frame(ReservedTopics.CHUNK_PREFIX, topic);
+        int id = mNextTransferId.getAndIncrement() & Integer.MAX_VALUE;
+        int count = ChunkReassembler.chunkCount(data.length);
+        for (int i = 0; i < count; i++) {
+            // The manager paces chunks and drops whole transfers, so it is told which transfer
+            // each chunk belongs to rather than reading the header the ground reads
+            Bundle extras = new Bundle();
+            extras.putInt("transferId", id);
+            extras.putInt("chunkIndex", i);
+            extras.putInt("chunkCount", count);
+            send(MessageType.CHUNK, chunkTopic,
+                    ChunkReassembler.makeChunk(id, i, count, type.toInt(), data), extras);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the topic is reserved, see ReservedTopics.
+     */
     public void sendMsg(MessageType type, String topic, byte[] data) {
+        if (ReservedTopics.isReserved(topic)) {
+            throw new IllegalArgumentException("Topic " + topic + " is reserved. Topics must " +
+                    "not start with " + ReservedTopics.PREFIX + ".");
+        }
+        send(type, topic, data, null);
+    }
+
+    private void send(MessageType type, String topic, byte[] data) {
+        send(type, topic, data, null);
+    }
+
+    private void send(MessageType type, String topic, byte[] data, Bundle extras) {
         if (!mBound) {
             Log.e(LIB_LOG_TAG, "Not bound to guest science manager. This shouldn't happen. " +
                     "If it does, contact the Astrobee guest science team.,");
             return;
         }
 
-        if (data.length > 2048) {
+        if (data.length > MAX_DATA_SIZE) {
             throw new RuntimeException("Data passed to sendData function is too big to send to " +
                     "ground. Must be 2K.");
         }
@@ -193,6 +300,9 @@ public abstract class StartGuestScienceService extends Service {
         dataBundle.putString("apkFullName", mFullApkName);
         dataBundle.putString("topic", topic);
         dataBundle.putByteArray("data", data);
+        if (extras != null) {
+            dataBundle.putAll(extras);
+        }
 
         Message msg = Message.obtain(null, type.toInt());
         msg.setData(dataBundle);
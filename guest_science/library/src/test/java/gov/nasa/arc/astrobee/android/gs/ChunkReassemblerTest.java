@@ -0,0 +1,103 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Splits data the way StartGuestScienceService.sendLargeData does and puts it back together.
+ */
+public class ChunkReassemblerTest {
+    private static final String TOPIC = ReservedTopics.CHUNK_PREFIX + "topic";
+    private static byte[] makeData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+
+    private static byte[][] split(int id, byte[] data) {
+        int count = ChunkReassembler.chunkCount(data.length);
+        byte[][] chunks = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = ChunkReassembler.makeChunk(id, i, count, MessageType.JSON.toInt(), data);
+        }
+        return chunks;
+    }
+
+    @Test
+    public void reassemblesChunksInAnyOrder() throws Exception {
+        byte[] data = makeData(ChunkReassembler.CHUNK_DATA_SIZE * 3 + 5);
+        byte[][] chunks = split(1, data);
+        assertEquals(4, chunks.length);
+
+        ChunkReassembler reassembler = new ChunkReassembler();
+        assertNull(reassembler.add("apk", TOPIC, chunks[2], 0));
+        assertNull(reassembler.add("apk", TOPIC, chunks[0], 0));
+        assertNull(reassembler.add("apk", TOPIC, chunks[3], 0));
+        ChunkReassembler.Transfer transfer = reassembler.add("apk", TOPIC, chunks[1], 0);
+
+        assertNotNull(transfer);
+        assertEquals("apk", transfer.getApkName());
+        // The ground sees the topic the apk sent the data on
+        assertEquals("topic", transfer.getTopic());
+        assertEquals(MessageType.JSON.toInt(), transfer.getType());
+        assertArrayEquals(data, transfer.getData());
+        assertEquals(0, reassembler.getPendingCount());
+    }
+
+    @Test
+    public void keepsSlowTransfersWhileChunksKeepComing() throws Exception {
+        byte[] data = makeData(ChunkReassembler.CHUNK_DATA_SIZE * 5);
+        byte[][] chunks = split(2, data);
+        ChunkReassembler reassembler = new ChunkReassembler().setTimeout(1000);
+
+        // Takes four times the timeout overall, but never more than the timeout between chunks
+        ChunkReassembler.Transfer transfer = null;
+        for (int i = 0; i < chunks.length; i++) {
+            transfer = reassembler.add("apk", TOPIC, chunks[i], i * 900L);
+        }
+        assertNotNull(transfer);
+        assertArrayEquals(data, transfer.getData());
+    }
+
+    @Test
+    public void dropsTransfersThatStall() throws Exception {
+        byte[][] chunks = split(3, makeData(ChunkReassembler.CHUNK_DATA_SIZE * 2));
+        ChunkReassembler reassembler = new ChunkReassembler().setTimeout(1000);
+
+        assertNull(reassembler.add("apk", TOPIC, chunks[0], 0));
+        assertEquals(1, reassembler.getPendingCount());
+        // The first chunk is forgotten, so the last one alone doesn't complete the transfer
+        assertNull(reassembler.add("apk", TOPIC, chunks[1], 1000));
+        assertEquals(1, reassembler.getPendingCount());
+    }
+
+    @Test
+    public void dropsTheIdlestTransferWhenFull() throws Exception {
+        byte[][] first = split(4, makeData(ChunkReassembler.CHUNK_DATA_SIZE * 2));
+        byte[][] second = split(5, makeData(ChunkReassembler.CHUNK_DATA_SIZE * 2));
+        byte[][] third = split(6, makeData(ChunkReassembler.CHUNK_DATA_SIZE * 2));
+        ChunkReassembler reassembler = new ChunkReassembler().setMaxTransfers(2);
+
+        reassembler.add("apk", TOPIC, first[0], 0);
+        reassembler.add("apk", TOPIC, second[0], 1);
+        // Touch the first transfer again so the second one is now the idlest
+        reassembler.add("apk", TOPIC, first[0], 2);
+        reassembler.add("apk", TOPIC, third[0], 3);
+
+        assertNotNull(reassembler.add("apk", TOPIC, first[1], 4));
+        assertNull(reassembler.add("apk", TOPIC, second[1], 5));
+    }
+
+    @Test
+    public void onlyTakesChunksOnTheChunkTopic() throws Exception {
+        byte[] chunk = split(7, makeData(ChunkReassembler.CHUNK_DATA_SIZE * 2))[0];
+
+        // Plain binary data that happens to look like a chunk
+        assertFalse(ChunkReassembler.isChunk("topic", chunk));
+        assertFalse(ChunkReassembler.isChunk(ReservedTopics.COMPACT_PREFIX + "topic", chunk));
+        assertTrue(ChunkReassembler.isChunk(TOPIC, chunk));
+    }
+}
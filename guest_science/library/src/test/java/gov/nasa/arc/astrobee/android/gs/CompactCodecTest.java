@@ -0,0 +1,143 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips data through CompactWriter and CompactReader.
+ */
+public class CompactCodecTest {
+    private static final CompactSchema SCHEMA = new CompactSchema(7)
+            .add("flag", CompactSchema.FieldType.BOOL)
+            .add("count", CompactSchema.FieldType.INT)
+            .add("time", CompactSchema.FieldType.LONG)
+            .add("ratio", CompactSchema.FieldType.FLOAT)
+            .add("position", CompactSchema.FieldType.DOUBLE)
+            .add("name", CompactSchema.FieldType.STRING)
+            .add("raw", CompactSchema.FieldType.BYTES)
+            .add("samples", CompactSchema.FieldType.FLOAT_ARRAY);
+
+    private static final int FLAG = 0;
+    private static final int COUNT = 1;
+    private static final int TIME = 2;
+    private static final int RATIO = 3;
+    private static final int POSITION = 4;
+    private static final int NAME = 5;
+    private static final int RAW = 6;
+    private static final int SAMPLES = 7;
+
+    @Test
+    public void roundTripsEveryType() throws Exception {
+        CompactWriter writer = new CompactWriter(SCHEMA);
+        writer.putBool(FLAG, true)
+                .putInt(COUNT, -42)
+                .putLong(TIME, 1500000000123L)
+                .putFloat(RATIO, 0.25f)
+                .putDouble(POSITION, -3.5)
+                .putString(NAME, "r\u00e9sum\u00e9 \uD83D\uDE80")
+                .putBytes(RAW, new byte[] { 0, (byte) 0xC1, 127 })
+                .putFloats(SAMPLES, new float[] { 1f, -2f, 3.5f });
+
+        CompactReader reader = new CompactReader(SCHEMA);
+        reader.read(writer.toByteArray());
+        assertTrue(reader.getBool(FLAG));
+        assertEquals(-42, reader.getInt(COUNT));
+        assertEquals(1500000000123L, reader.getLong(TIME));
+        assertEquals(0.25f, reader.getFloat(RATIO), 0f);
+        assertEquals(-3.5, reader.getDouble(POSITION), 0.0);
+        assertEquals("r\u00e9sum\u00e9 \uD83D\uDE80", reader.getString(NAME));
+        assertArrayEquals(new byte[] { 0, (byte) 0xC1, 127 }, reader.getBytes(RAW));
+        assertArrayEquals(new float[] { 1f, -2f, 3.5f }, reader.getFloats(SAMPLES), 0f);
+        assertEquals(7, CompactReader.peekSchemaId(writer.toByteArray()));
+    }
+
+    @Test
+    public void onlyTakesCompactDataOnTheCompactTopic() throws Exception {
+        CompactWriter writer = new CompactWriter(SCHEMA).putInt(COUNT, 1);
+
+        assertFalse(CompactReader.isCompact("topic", writer.toByteArray()));
+        assertTrue(CompactReader.isCompact(ReservedTopics.COMPACT_PREFIX + "topic",
+                writer.toByteArray()));
+        assertEquals("topic", ReservedTopics.getOriginalTopic(ReservedTopics.COMPACT_PREFIX
+                + "topic"));
+    }
+
+    @Test
+    public void roundTripsIntAndLongLimits() throws Exception {
+        int[] ints = { 0, 1, -1, 1 << 30, -(1 << 30), Integer.MAX_VALUE, Integer.MIN_VALUE };
+        long[] longs = { 0, -1, Long.MAX_VALUE, Long.MIN_VALUE };
+        CompactWriter writer = new CompactWriter(SCHEMA);
+        CompactReader reader = new CompactReader(SCHEMA);
+
+        for (int value : ints) {
+            writer.reset().putInt(COUNT, value);
+            // Schema id, tag and at most five bytes of varint
+            assertTrue(writer.size() <= 2 + 5);
+            reader.read(writer.toByteArray());
+            assertEquals(value, reader.getInt(COUNT));
+        }
+        for (long value : longs) {
+            writer.reset().putLong(TIME, value);
+            reader.read(writer.toByteArray());
+            assertEquals(value, reader.getLong(TIME));
+        }
+    }
+
+    @Test
+    public void leavesOutFieldsThatWereNotPut() throws Exception {
+        CompactWriter writer = new CompactWriter(SCHEMA);
+        writer.putInt(COUNT, 3);
+
+        CompactReader reader = new CompactReader(SCHEMA);
+        reader.read(writer.toByteArray());
+        assertTrue(reader.has(COUNT));
+        assertFalse(reader.has(NAME));
+        assertEquals(1, reader.toMap().size());
+    }
+
+    @Test
+    public void skipsFieldsAnOlderSchemaDoesNotKnow() throws Exception {
+        CompactSchema older = new CompactSchema(7)
+                .add("flag", CompactSchema.FieldType.BOOL)
+                .add("count", CompactSchema.FieldType.INT);
+        CompactWriter writer = new CompactWriter(SCHEMA);
+        writer.putInt(COUNT, 9).putString(NAME, "new").putDouble(POSITION, 1.0);
+
+        CompactReader reader = new CompactReader(older);
+        reader.read(writer.toByteArray());
+        assertEquals(9, reader.getInt(COUNT));
+        assertEquals(1, reader.toMap().size());
+    }
+
+    @Test
+    public void putThatDoesNotFitLeavesWriterUnchanged() throws Exception {
+        CompactWriter writer = new CompactWriter(SCHEMA, 16);
+        writer.putInt(COUNT, 5);
+        byte[] before = writer.toByteArray();
+
+        try {
+            writer.putString(NAME, "this string is far too long for the buffer");
+            fail("Expected the put to overflow the buffer.");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertArrayEquals(before, writer.toByteArray());
+
+        // The writer is still usable and the message still decodes
+        writer.putBool(FLAG, true);
+        CompactReader reader = new CompactReader(SCHEMA);
+        reader.read(writer.toByteArray());
+        assertEquals(5, reader.getInt(COUNT));
+        assertTrue(reader.getBool(FLAG));
+        assertFalse(reader.has(NAME));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDataWrittenWithAnotherSchema() throws Exception {
+        CompactWriter writer = new CompactWriter(new CompactSchema(8).add("count",
+                CompactSchema.FieldType.INT));
+        writer.putInt(0, 1);
+        new CompactReader(SCHEMA).read(writer.toByteArray());
+    }
+}
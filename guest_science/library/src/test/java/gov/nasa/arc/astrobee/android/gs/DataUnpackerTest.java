@@ -0,0 +1,171 @@
+package gov.nasa.arc.astrobee.android.gs;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Takes apart data packed the way the guest science manager's DataPacker packs it.
+ */
+public class DataUnpackerTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Packs the messages, given as topic, type and data triples.
+     */
+    private static byte[] pack(boolean deflate, Object... messages) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < messages.length; i += 3) {
+            byte[] topic = ((String) messages[i]).getBytes(UTF_8);
+            byte[] data = (byte[]) messages[i + 2];
+            writeVarint(body, topic.length);
+            body.write(topic, 0, topic.length);
+            body.write(((MessageType) messages[i + 1]).toInt());
+            writeVarint(body, data.length);
+            body.write(data, 0, data.length);
+        }
+
+        byte[] rest = body.toByteArray();
+        if (deflate) {
+            Deflater deflater = new Deflater();
+            deflater.setInput(rest);
+            deflater.finish();
+            byte[] deflated = new byte[rest.length + 64];
+            int length = deflater.deflate(deflated);
+            deflater.end();
+            rest = Arrays.copyOf(deflated, length);
+        }
+        byte[] packed = new byte[1 + rest.length];
+        packed[0] = (byte) (deflate ? DataUnpacker.FLAG_DEFLATED : 0);
+        System.arraycopy(rest, 0, packed, 1, rest.length);
+        return packed;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(UTF_8);
+    }
+
+    private static void assertEntry(DataUnpacker.Entry entry, String topic, MessageType type,
+                                    byte[] data) {
+        assertEquals(topic, entry.getTopic());
+        assertEquals(type.toInt(), entry.getType());
+        assertArrayEquals(data, entry.getData());
+    }
+
+    @Test
+    public void unpacksSeveralMessagesInOrder() throws Exception {
+        byte[] packed = pack(false, "status", MessageType.JSON, bytes("{\"a\": 1}"),
+                "", MessageType.STRING, bytes("no topic"),
+                "raw", MessageType.BINARY, new byte[0]);
+        assertTrue(DataUnpacker.isPacked(ReservedTopics.PACKED, packed));
+
+        List<DataUnpacker.Entry> entries = new DataUnpacker().unpack(packed);
+        assertEquals(3, entries.size());
+        assertEntry(entries.get(0), "status", MessageType.JSON, bytes("{\"a\": 1}"));
+        assertEntry(entries.get(1), "", MessageType.STRING, bytes("no topic"));
+        assertEntry(entries.get(2), "raw", MessageType.BINARY, new byte[0]);
+    }
+
+    @Test
+    public void inflatesDeflatedData() throws Exception {
+        byte[] repeated = new byte[500];
+        Arrays.fill(repeated, (byte) 'x');
+        byte[] packed = pack(true, "first", MessageType.STRING, repeated,
+                "second", MessageType.BINARY, new byte[] { 1, 2, 3 });
+        assertTrue(packed.length < repeated.length);
+
+        DataUnpacker unpacker = new DataUnpacker();
+        List<DataUnpacker.Entry> entries = unpacker.unpack(packed);
+        assertEquals(2, entries.size());
+        assertEntry(entries.get(0), "first", MessageType.STRING, repeated);
+        assertEntry(entries.get(1), "second", MessageType.BINARY, new byte[] { 1, 2, 3 });
+
+        // The unpacker is reused for every message
+        entries = unpacker.unpack(pack(false, "third", MessageType.JSON, bytes("{}")));
+        assertEquals(1, entries.size());
+        assertEntry(entries.get(0), "third", MessageType.JSON, bytes("{}"));
+    }
+
+    @Test
+    public void leavesALoneOversizedMessageAlone() throws Exception {
+        // The manager sends a message too big to pack as it was, on its own topic
+        byte[] data = new byte[CompactWriter.MAX_SIZE];
+        assertFalse(DataUnpacker.isPacked("topic", data));
+        assertFalse(DataUnpacker.isPacked("topic", pack(false, "topic", MessageType.BINARY,
+                data)));
+    }
+
+    @Test
+    public void growsToFitDataThatInflatesBig() throws Exception {
+        // More than the unpacker's initial buffer once inflated
+        byte[] big = new byte[10 * CompactWriter.MAX_SIZE];
+        Arrays.fill(big, (byte) 7);
+        byte[] packed = pack(true, "big", MessageType.BINARY, big);
+        assertTrue(packed.length < CompactWriter.MAX_SIZE);
+
+        List<DataUnpacker.Entry> entries = new DataUnpacker().unpack(packed);
+        assertEquals(1, entries.size());
+        assertEntry(entries.get(0), "big", MessageType.BINARY, big);
+    }
+
+    @Test
+    public void onlyTakesPackedDataOnThePackedTopic() throws Exception {
+        byte[] packed = pack(false, "status", MessageType.JSON, bytes("{}"));
+        assertFalse(DataUnpacker.isPacked("status", packed));
+        assertFalse(DataUnpacker.isPacked(ReservedTopics.PACKED, new byte[0]));
+        assertFalse(DataUnpacker.isPacked(ReservedTopics.PACKED, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyData() throws Exception {
+        new DataUnpacker().unpack(new byte[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAMessageCutOffInTheMiddle() throws Exception {
+        byte[] packed = pack(false, "status", MessageType.JSON, bytes("{\"a\": 1}"));
+        new DataUnpacker().unpack(Arrays.copyOf(packed, packed.length - 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAMessageCutOffAfterItsTopic() throws Exception {
+        byte[] packed = pack(false, "status", MessageType.JSON, bytes("{}"));
+        // Flags, topic length and topic, but no type
+        new DataUnpacker().unpack(Arrays.copyOf(packed, 1 + 1 + 6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedDeflatedData() throws Exception {
+        byte[] repeated = new byte[500];
+        byte[] packed = pack(true, "first", MessageType.STRING, repeated);
+        new DataUnpacker().unpack(Arrays.copyOf(packed, packed.length / 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDataThatIsNotDeflated() throws Exception {
+        byte[] packed = pack(false, "status", MessageType.JSON, bytes("{}"));
+        packed[0] = (byte) DataUnpacker.FLAG_DEFLATED;
+        new DataUnpacker().unpack(packed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAMalformedLength() throws Exception {
+        byte[] packed = new byte[] { 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, 0 };
+        new DataUnpacker().unpack(packed);
+    }
+}
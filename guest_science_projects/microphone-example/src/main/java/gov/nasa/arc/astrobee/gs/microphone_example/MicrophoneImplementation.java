@@ -368,7 +368,9 @@ public class MicrophoneImplementation {
 
 
         int N = (int)(maxDist/epsilon);
-        Point prevPt = null;
+        // Only the sampled points become Points, the rest stay primitives
+        boolean havePrev = false;
+        double prevX = 0, prevY = 0, prevZ = 0;
         for (int it = 0; it < N; it++) {
 
             double radius = epsilon * it; // it goes from 0 to maxDist
@@ -385,10 +387,13 @@ public class MicrophoneImplementation {
             if (zval < minPoint.getZ()) zval = minPoint.getZ();
             if (zval > maxPoint.getZ()) zval = maxPoint.getZ();
 
-            Point pt = new Point(xval, yval, zval);
-            if (prevPt == null || pointDistance(pt, prevPt) > samplingRate) {
-                prevPt = pt;
-                trajectory.add(pt);
+            double dx = xval - prevX, dy = yval - prevY, dz = zval - prevZ;
+            if (!havePrev || dx*dx + dy*dy + dz*dz > samplingRate*samplingRate) {
+                havePrev = true;
+                prevX = xval;
+                prevY = yval;
+                prevZ = zval;
+                trajectory.add(new Point(xval, yval, zval));
             }
         }
 